@@ -7,6 +7,7 @@ package ca.teamdman.sfm;
 import ca.teamdman.sfm.client.ClientProxy;
 import ca.teamdman.sfm.common.Proxy;
 import ca.teamdman.sfm.common.ServerProxy;
+import ca.teamdman.sfm.common.capability.CapabilityBulkItemHandler;
 import ca.teamdman.sfm.common.config.ConfigHolder;
 import ca.teamdman.sfm.common.net.PacketHandler;
 import ca.teamdman.sfm.common.registrar.SFMBlocks;
@@ -64,6 +65,7 @@ public class SFM {
 
 	private void onCommonSetup(FMLCommonSetupEvent e) {
 		PacketHandler.setup();
+		CapabilityBulkItemHandler.register();
 	}
 
 	public void onClientSetup(FMLClientSetupEvent e) {
@@ -0,0 +1,124 @@
+package ca.teamdman.sfm.client.gui.flow.impl.manager.core;
+
+import ca.teamdman.sfm.client.gui.flow.core.BaseScreen;
+import ca.teamdman.sfm.client.gui.flow.core.Colour3f;
+import ca.teamdman.sfm.client.gui.flow.core.FlowComponent;
+import ca.teamdman.sfm.common.flow.core.FlowDataHolder;
+import ca.teamdman.sfm.common.tile.manager.ExecutionProfiler;
+import ca.teamdman.sfm.common.tile.manager.ExecutionProfiler.NodeSummary;
+import com.mojang.blaze3d.matrix.MatrixStack;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import net.minecraft.client.gui.screen.Screen;
+import net.minecraft.client.resources.I18n;
+import net.minecraft.util.text.ITextComponent;
+import net.minecraft.util.text.ITextProperties;
+import net.minecraft.util.text.StringTextComponent;
+import net.minecraft.util.text.TextFormatting;
+
+/**
+ * Outlines each node of the program with a colour from green to red, depending on how much of
+ * the manager's execution time it accounts for. Holding alt over a node shows a breakdown.
+ */
+public class ExecutionProfileOverlay extends FlowComponent {
+
+	public final ManagerFlowController CONTROLLER;
+	private NodeSummary hovered;
+
+	public ExecutionProfileOverlay(ManagerFlowController CONTROLLER) {
+		this.CONTROLLER = CONTROLLER;
+	}
+
+	@Override
+	public void draw(
+		BaseScreen screen,
+		MatrixStack matrixStack,
+		int mx,
+		int my,
+		float deltaTime
+	) {
+		Map<UUID, NodeSummary> profile = CONTROLLER.SCREEN.getExecutionProfile();
+		if (profile.isEmpty()) {
+			return;
+		}
+		long max = profile.values().stream()
+			.mapToLong(node -> node.NANOS)
+			.max()
+			.orElse(1);
+		for (FlowComponent c : CONTROLLER.getChildren()) {
+			if (!(c instanceof FlowDataHolder) || !c.isVisible()) {
+				continue;
+			}
+			NodeSummary node = profile.get(((FlowDataHolder<?>) c).getData().getId());
+			if (node == null) {
+				continue;
+			}
+			float heat = max == 0 ? 0 : (float) node.NANOS / max;
+			screen.drawBorder(
+				matrixStack,
+				c.getPosition().getX() - 2,
+				c.getPosition().getY() - 2,
+				c.getSize().getWidth() + 4,
+				c.getSize().getHeight() + 4,
+				2,
+				new Colour3f(heat, 1 - heat, 0)
+			);
+		}
+	}
+
+	@Override
+	public boolean isTooltipEnabled(int mx, int my) {
+		hovered = null;
+		if (!Screen.hasAltDown()) {
+			return false;
+		}
+		Map<UUID, NodeSummary> profile = CONTROLLER.SCREEN.getExecutionProfile();
+		hovered = CONTROLLER.getElementsUnderMouse(mx, my)
+			.filter(FlowDataHolder.class::isInstance)
+			.map(c -> profile.get(((FlowDataHolder<?>) c).getData().getId()))
+			.filter(node -> node != null)
+			.findFirst()
+			.orElse(null);
+		return hovered != null;
+	}
+
+	@Override
+	public List<? extends ITextProperties> getTooltip() {
+		List<ITextComponent> list = new ArrayList<>();
+		NodeSummary node = hovered;
+		if (node == null) {
+			return list;
+		}
+		int seconds = ExecutionProfiler.BUCKETS * ExecutionProfiler.BUCKET_TICKS / 20;
+		list.add(new StringTextComponent(I18n.format(
+			"gui.sfm.flow.tooltip.profile.header",
+			seconds
+		)));
+		list.add(new StringTextComponent(I18n.format(
+			"gui.sfm.flow.tooltip.profile.time",
+			String.format("%.2f", node.NANOS / 1_000_000d),
+			node.RUNS
+		)).mergeStyle(TextFormatting.GRAY));
+		list.add(new StringTextComponent(I18n.format(
+			"gui.sfm.flow.tooltip.profile.slots",
+			node.SLOT_VISITS
+		)).mergeStyle(TextFormatting.GRAY));
+		list.add(new StringTextComponent(I18n.format(
+			"gui.sfm.flow.tooltip.profile.calls",
+			node.EXTRACT_CALLS,
+			node.INSERT_CALLS
+		)).mergeStyle(TextFormatting.GRAY));
+		list.add(new StringTextComponent(I18n.format(
+			"gui.sfm.flow.tooltip.profile.moved",
+			node.ITEMS_MOVED
+		)).mergeStyle(TextFormatting.GRAY));
+		return list;
+	}
+
+	@Override
+	public int getZIndex() {
+		return super.getZIndex() + 500;
+	}
+}
@@ -54,6 +54,7 @@ public class ManagerFlowController extends FlowContainer implements Observer {
 		addChild(new FlowBackground());
 		addChild(new FlowInstructions(new Position(506, 212)));
 		addChild(new DebugController(this));
+		addChild(new ExecutionProfileOverlay(this));
 		addChild(new CloneController(this));
 		addChild(new DeletionController(this));
 		addChild(new RelationshipController(this));
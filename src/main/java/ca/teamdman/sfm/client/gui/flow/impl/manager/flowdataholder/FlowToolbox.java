@@ -6,13 +6,24 @@ import ca.teamdman.sfm.client.gui.flow.core.FlowComponent;
 import ca.teamdman.sfm.client.gui.flow.core.Size;
 import ca.teamdman.sfm.client.gui.flow.impl.manager.core.ManagerFlowController;
 import ca.teamdman.sfm.client.gui.flow.impl.manager.template.toolboxspawner.FlowTimerTriggerSpawnerButton;
+import ca.teamdman.sfm.client.gui.flow.impl.manager.template.toolboxspawner.FluidConditionSpawnerFlowButton;
+import ca.teamdman.sfm.client.gui.flow.impl.manager.template.toolboxspawner.InventoryChangeTriggerSpawnerButton;
 import ca.teamdman.sfm.client.gui.flow.impl.manager.template.toolboxspawner.ItemConditionSpawnerFlowButton;
 import ca.teamdman.sfm.client.gui.flow.impl.manager.template.toolboxspawner.ItemInputSpawnerFlowButton;
 import ca.teamdman.sfm.client.gui.flow.impl.manager.template.toolboxspawner.ItemOutputSpawnerFlowButton;
+import ca.teamdman.sfm.client.gui.flow.impl.manager.template.toolboxspawner.RuleNodeSpawnerFlowButton;
 import ca.teamdman.sfm.client.gui.flow.impl.util.FlowContainer;
 import ca.teamdman.sfm.client.gui.flow.impl.util.FlowDrawer;
+import ca.teamdman.sfm.common.compat.MekanismCompat;
 import ca.teamdman.sfm.common.flow.core.FlowDataHolder;
 import ca.teamdman.sfm.common.flow.core.Position;
+import ca.teamdman.sfm.common.flow.data.ChemicalInputFlowData;
+import ca.teamdman.sfm.common.flow.data.ChemicalOutputFlowData;
+import ca.teamdman.sfm.common.flow.data.EnergyInputFlowData;
+import ca.teamdman.sfm.common.flow.data.EnergyOutputFlowData;
+import ca.teamdman.sfm.common.flow.data.FluidInputFlowData;
+import ca.teamdman.sfm.common.flow.data.FluidOutputFlowData;
+import ca.teamdman.sfm.common.flow.data.RuleNodeFlowData.Factory;
 import ca.teamdman.sfm.common.flow.data.ToolboxFlowData;
 import com.mojang.blaze3d.matrix.MatrixStack;
 import java.util.Collection;
@@ -42,14 +53,36 @@ public class FlowToolbox extends FlowContainer implements FlowDataHolder<Toolbox
 	public void setChildrenToDefault() {
 		DRAWER.getChildren().clear();
 		DRAWER.addChild(new FlowTimerTriggerSpawnerButton(CONTROLLER));
+		DRAWER.addChild(new InventoryChangeTriggerSpawnerButton(CONTROLLER));
 		DRAWER.addChild(new ItemInputSpawnerFlowButton(CONTROLLER));
 		DRAWER.addChild(new ItemOutputSpawnerFlowButton(CONTROLLER));
 		DRAWER.addChild(new ItemConditionSpawnerFlowButton(CONTROLLER));
+		addRuleNodeSpawners(ResourceKind.FLUID, FluidInputFlowData::new, FluidOutputFlowData::new);
+		DRAWER.addChild(new FluidConditionSpawnerFlowButton(CONTROLLER));
+		addRuleNodeSpawners(
+			ResourceKind.ENERGY,
+			EnergyInputFlowData::new,
+			EnergyOutputFlowData::new
+		);
+		if (MekanismCompat.isLoaded()) {
+			addRuleNodeSpawners(
+				ResourceKind.CHEMICAL,
+				ChemicalInputFlowData::new,
+				ChemicalOutputFlowData::new
+			);
+		}
 		DRAWER.setMaxItemsPerRow(4);
 		DRAWER.setMaxItemsPerColumn(3);
 		DRAWER.update();
 	}
 
+	private void addRuleNodeSpawners(
+		ResourceKind kind, Factory<?> input, Factory<?> output
+	) {
+		DRAWER.addChild(new RuleNodeSpawnerFlowButton(CONTROLLER, kind, true, input));
+		DRAWER.addChild(new RuleNodeSpawnerFlowButton(CONTROLLER, kind, false, output));
+	}
+
 	public void setDrawerChildren(Collection<FlowComponent> children) {
 		DRAWER.getChildren().clear();
 		children.forEach(DRAWER::addChild);
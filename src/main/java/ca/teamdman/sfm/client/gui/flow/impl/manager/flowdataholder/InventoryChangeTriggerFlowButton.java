@@ -0,0 +1,182 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package ca.teamdman.sfm.client.gui.flow.impl.manager.flowdataholder;
+
+import ca.teamdman.sfm.client.gui.flow.core.BaseScreen;
+import ca.teamdman.sfm.client.gui.flow.core.FlowComponent;
+import ca.teamdman.sfm.client.gui.flow.impl.manager.core.ManagerFlowController;
+import ca.teamdman.sfm.client.gui.flow.impl.util.ButtonLabel;
+import ca.teamdman.sfm.client.gui.flow.impl.util.FlowContainer;
+import ca.teamdman.sfm.client.gui.flow.impl.util.FlowIconButton;
+import ca.teamdman.sfm.client.gui.flow.impl.util.FlowSprite;
+import ca.teamdman.sfm.common.flow.core.FlowDataHolder;
+import ca.teamdman.sfm.common.flow.core.Position;
+import ca.teamdman.sfm.common.flow.data.InventoryChangeTriggerFlowData;
+import ca.teamdman.sfm.common.flow.data.ItemMovementRuleFlowData;
+import ca.teamdman.sfm.common.flow.holder.FlowDataHolderObserver;
+import com.mojang.blaze3d.matrix.MatrixStack;
+import com.mojang.blaze3d.systems.RenderSystem;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+import net.minecraft.util.text.ITextProperties;
+import net.minecraft.util.text.StringTextComponent;
+import net.minecraft.util.text.TextFormatting;
+import net.minecraft.util.text.TranslationTextComponent;
+
+/**
+ * Trigger node that opens the rule selecting the inventories it watches when clicked.
+ */
+public class InventoryChangeTriggerFlowButton extends FlowContainer implements
+	FlowDataHolder<InventoryChangeTriggerFlowData> {
+
+	private final ManagerFlowController CONTROLLER;
+	private final MyFlowIconButton BUTTON;
+	private ItemMovementRuleFlowData ruleData;
+	private InventoryChangeTriggerFlowData buttonData;
+
+	public InventoryChangeTriggerFlowButton(
+		ManagerFlowController controller,
+		InventoryChangeTriggerFlowData buttonData,
+		ItemMovementRuleFlowData ruleData
+	) {
+		this.buttonData = buttonData;
+		this.ruleData = ruleData;
+		this.CONTROLLER = controller;
+
+		this.BUTTON = new MyFlowIconButton(
+			ButtonLabel.TRIGGER,
+			buttonData.getPosition().copy()
+		);
+		BUTTON.setDraggable(true);
+		BUTTON.reloadFromRuleData();
+		addChild(BUTTON);
+
+		controller.SCREEN.getFlowDataContainer()
+			.addObserver(new FlowDataHolderObserver<>(InventoryChangeTriggerFlowData.class, this));
+		controller.SCREEN.getFlowDataContainer().addObserver(new FlowDataHolderObserver<>(
+			ItemMovementRuleFlowData.class,
+			data -> data.getId().equals(ruleData.getId()),
+			this::setRuleData
+		));
+	}
+
+	public void setRuleData(ItemMovementRuleFlowData data) {
+		this.ruleData = data;
+		this.BUTTON.reloadFromRuleData();
+	}
+
+	@Override
+	public InventoryChangeTriggerFlowData getData() {
+		return buttonData;
+	}
+
+	@Override
+	public void setData(InventoryChangeTriggerFlowData data) {
+		this.buttonData = data;
+		BUTTON.getPosition().setXY(this.buttonData.getPosition());
+	}
+
+	@Override
+	public boolean isDeletable() {
+		return true;
+	}
+
+	@Override
+	public boolean isCloneable() {
+		return true;
+	}
+
+	@Override
+	public Position getCentroid() {
+		return BUTTON.getCentroid();
+	}
+
+	@Override
+	public Position snapToEdge(Position outside) {
+		return BUTTON.snapToEdge(outside);
+	}
+
+	@Override
+	public Stream<? extends FlowComponent> getElementsUnderMouse(int mx, int my) {
+		return BUTTON.isElementUnderMouse(mx, my) ? Stream.of(this) : Stream.empty();
+	}
+
+	private class MyFlowIconButton extends FlowIconButton {
+
+		public MyFlowIconButton(ButtonLabel type, Position pos) {
+			super(type, pos);
+		}
+
+		@Override
+		public void onClicked(int mx, int my, int button) {
+			CONTROLLER.findFirstChild(buttonData.tileEntityRule)
+				.ifPresent(FlowComponent::toggleVisibilityAndEnabled);
+		}
+
+		@Override
+		public void onDragFinished(int dx, int dy, int mx, int my) {
+			buttonData.position = getPosition();
+			CONTROLLER.SCREEN.sendFlowDataToServer(buttonData);
+		}
+
+		@Override
+		public List<? extends ITextProperties> getTooltip() {
+			return Arrays.asList(
+				new TranslationTextComponent("gui.sfm.flow.tooltip.inventory_change_trigger"),
+				new StringTextComponent(ruleData.name).mergeStyle(TextFormatting.GRAY)
+			);
+		}
+
+		public void reloadFromRuleData() {
+			if (ruleData.getIcon().isEmpty()) {
+				// no custom icon, use default label
+				LABEL = ButtonLabel.TRIGGER.SPRITE;
+			} else {
+				// custom icon, hide the default label
+				LABEL = FlowSprite.EMPTY;
+			}
+		}
+
+		@Override
+		public void drawGhost(
+			BaseScreen screen, MatrixStack matrixStack, int mx, int my, float deltaTime
+		) {
+			super.drawGhost(screen, matrixStack, mx, my, deltaTime);
+			if (LABEL == FlowSprite.EMPTY) {
+				// custom icon is set, draw custom stack
+				screen.drawItemStack(
+					matrixStack,
+					ruleData.getIcon(),
+					getPosition().getX() + 3,
+					getPosition().getY() + 3
+				);
+			}
+		}
+
+		@Override
+		protected boolean isDepressed() {
+			return super.isDepressed() || ruleData.open;
+		}
+
+		@Override
+		public void draw(
+			BaseScreen screen, MatrixStack matrixStack, int mx, int my, float deltaTime
+		) {
+			// tinted to tell it apart from timer triggers
+			RenderSystem.color4f(0.5f, 0.9f, 0.9f, 1f);
+			super.draw(screen, matrixStack, mx, my, deltaTime);
+			RenderSystem.color4f(1f, 1f, 1f, 1f);
+			if (LABEL == FlowSprite.EMPTY) {
+				// custom icon is set, draw custom stack
+				screen.drawItemStack(
+					matrixStack,
+					ruleData.getIcon(),
+					getPosition().getX() + 3,
+					getPosition().getY() + 3
+				);
+			}
+		}
+	}
+}
@@ -0,0 +1,44 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package ca.teamdman.sfm.client.gui.flow.impl.manager.flowdataholder;
+
+import ca.teamdman.sfm.client.gui.flow.core.Colour3f;
+import com.mojang.blaze3d.systems.RenderSystem;
+
+/**
+ * What a node moves besides items. Decides the tint of its buttons, to tell them apart from the
+ * item nodes, and the prefix of their tooltips.
+ */
+public enum ResourceKind {
+	FLUID("fluid", new Colour3f(0.4f, 0.8f, 1f)),
+	ENERGY("energy", new Colour3f(1f, 0.9f, 0.3f)),
+	CHEMICAL("chemical", new Colour3f(0.5f, 1f, 0.5f));
+
+	public final String NAME;
+	public final Colour3f TINT;
+
+	ResourceKind(String name, Colour3f tint) {
+		this.NAME = name;
+		this.TINT = tint;
+	}
+
+	/**
+	 * @return Translation key of a tooltip for this kind, e.g. {@code
+	 * gui.sfm.flow.tooltip.fluid_input}
+	 */
+	public String getTooltipKey(String suffix) {
+		return "gui.sfm.flow.tooltip." + NAME + "_" + suffix;
+	}
+
+	/**
+	 * Tints everything drawn until {@link #clearTint()} is called.
+	 */
+	public void applyTint() {
+		RenderSystem.color4f(TINT.RED, TINT.GREEN, TINT.BLUE, 1f);
+	}
+
+	public static void clearTint() {
+		RenderSystem.color4f(1f, 1f, 1f, 1f);
+	}
+}
@@ -2,6 +2,7 @@ package ca.teamdman.sfm.client.gui.flow.impl.manager.flowdataholder.itemmovement
 
 import ca.teamdman.sfm.client.gui.flow.core.Size;
 import ca.teamdman.sfm.client.gui.flow.impl.util.FlowContainer;
+import ca.teamdman.sfm.client.gui.flow.impl.util.FlowToggleBox;
 import ca.teamdman.sfm.client.gui.flow.impl.util.TextAreaFlowComponent;
 import ca.teamdman.sfm.common.flow.core.Position;
 import ca.teamdman.sfm.common.flow.data.ItemMovementRuleFlowData;
@@ -16,6 +17,7 @@ public class SlotsSection extends FlowContainer {
 
 	private final ItemMovementRuleFlowComponent PARENT;
 	private final TextAreaFlowComponent INPUT;
+	private final FlowToggleBox ROUND_ROBIN;
 
 	public SlotsSection(
 		ItemMovementRuleFlowComponent PARENT,
@@ -61,10 +63,38 @@ public class SlotsSection extends FlowContainer {
 			}
 		});
 		addChild(INPUT);
+
+		ROUND_ROBIN = new FlowToggleBox(
+			new Position(0, 30),
+			new Size(10, 10),
+			PARENT.getData().roundRobin
+		) {
+			@Override
+			public void onChecked(boolean checked) {
+				if (PARENT.getData().roundRobin != checked) {
+					PARENT.getData().roundRobin = checked;
+					PARENT.CONTROLLER.SCREEN.sendFlowDataToServer(PARENT.getData());
+				}
+			}
+
+			@Override
+			public List<? extends ITextProperties> getTooltip() {
+				return Arrays.asList(
+					new StringTextComponent(I18n.format(
+						"gui.sfm.manager.tile_entity_rule.round_robin"
+					)).mergeStyle(TextFormatting.WHITE),
+					new StringTextComponent(I18n.format(
+						"gui.sfm.manager.tile_entity_rule.round_robin.hint"
+					)).mergeStyle(TextFormatting.GRAY)
+				);
+			}
+		};
+		addChild(ROUND_ROBIN);
 		onDataChanged(PARENT.getData());
 	}
 
 	public void onDataChanged(ItemMovementRuleFlowData data) {
 		INPUT.setContent(data.slots.getDefinition());
+		ROUND_ROBIN.setChecked(data.roundRobin);
 	}
 }
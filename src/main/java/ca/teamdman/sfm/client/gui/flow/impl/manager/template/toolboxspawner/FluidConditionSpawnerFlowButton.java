@@ -0,0 +1,46 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package ca.teamdman.sfm.client.gui.flow.impl.manager.template.toolboxspawner;
+
+import ca.teamdman.sfm.client.gui.flow.core.FlowComponent;
+import ca.teamdman.sfm.client.gui.flow.impl.manager.core.ManagerFlowController;
+import ca.teamdman.sfm.client.gui.flow.impl.manager.flowdataholder.FluidConditionFlowButton;
+import ca.teamdman.sfm.client.gui.flow.impl.manager.flowdataholder.ResourceKind;
+import ca.teamdman.sfm.client.gui.flow.impl.util.ButtonLabel;
+import ca.teamdman.sfm.common.flow.core.Position;
+import ca.teamdman.sfm.common.flow.data.FluidConditionFlowData;
+import ca.teamdman.sfm.common.flow.data.ItemConditionRuleFlowData;
+import ca.teamdman.sfm.common.flow.holder.BasicFlowDataContainer;
+import java.util.UUID;
+
+public class FluidConditionSpawnerFlowButton extends ResourceSpawnerFlowButton {
+
+	public FluidConditionSpawnerFlowButton(
+		ManagerFlowController controller
+	) {
+		super(
+			controller,
+			ButtonLabel.CONDITIONAL,
+			ResourceKind.FLUID,
+			ResourceKind.FLUID.getTooltipKey("condition_spawner")
+		);
+	}
+
+	@Override
+	protected FlowComponent createNode(BasicFlowDataContainer container) {
+		// create default rule data
+		ItemConditionRuleFlowData ruleData = new ItemConditionRuleFlowData();
+		container.put(ruleData);
+
+		// create button data
+		FluidConditionFlowData buttonData = new FluidConditionFlowData(
+			UUID.randomUUID(),
+			new Position(),
+			ruleData.getId()
+		);
+
+		// create rule button component
+		return new FluidConditionFlowButton(CONTROLLER, buttonData, ruleData);
+	}
+}
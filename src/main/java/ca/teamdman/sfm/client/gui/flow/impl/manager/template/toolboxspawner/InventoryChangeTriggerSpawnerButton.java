@@ -0,0 +1,88 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package ca.teamdman.sfm.client.gui.flow.impl.manager.template.toolboxspawner;
+
+import ca.teamdman.sfm.client.gui.flow.core.BaseScreen;
+import ca.teamdman.sfm.client.gui.flow.core.FlowComponent;
+import ca.teamdman.sfm.client.gui.flow.impl.manager.core.CloneController;
+import ca.teamdman.sfm.client.gui.flow.impl.manager.core.ManagerFlowController;
+import ca.teamdman.sfm.client.gui.flow.impl.manager.flowdataholder.InventoryChangeTriggerFlowButton;
+import ca.teamdman.sfm.client.gui.flow.impl.util.ButtonLabel;
+import ca.teamdman.sfm.client.gui.flow.impl.util.FlowIconButton;
+import ca.teamdman.sfm.common.flow.core.Position;
+import ca.teamdman.sfm.common.flow.data.InventoryChangeTriggerFlowData;
+import ca.teamdman.sfm.common.flow.data.ItemMovementRuleFlowData;
+import ca.teamdman.sfm.common.flow.holder.BasicFlowDataContainer;
+import com.mojang.blaze3d.matrix.MatrixStack;
+import com.mojang.blaze3d.systems.RenderSystem;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import net.minecraft.util.text.ITextComponent;
+import net.minecraft.util.text.ITextProperties;
+import net.minecraft.util.text.TranslationTextComponent;
+
+public class InventoryChangeTriggerSpawnerButton extends FlowIconButton {
+
+	private final ManagerFlowController CONTROLLER;
+
+	public InventoryChangeTriggerSpawnerButton(
+		ManagerFlowController controller
+	) {
+		super(ButtonLabel.ADD_TIMER_TRIGGER, new Position());
+		this.CONTROLLER = controller;
+	}
+
+	@Override
+	public List<? extends ITextProperties> getTooltip() {
+		List<ITextComponent> list = new ArrayList<>();
+		list.add(new TranslationTextComponent("gui.sfm.flow.tooltip.inventory_change_trigger_spawner"));
+		return list;
+	}
+
+	@Override
+	public void draw(
+		BaseScreen screen, MatrixStack matrixStack, int mx, int my, float deltaTime
+	) {
+		// same tint as the trigger it creates
+		RenderSystem.color4f(0.5f, 0.9f, 0.9f, 1f);
+		super.draw(screen, matrixStack, mx, my, deltaTime);
+		RenderSystem.color4f(1f, 1f, 1f, 1f);
+	}
+
+	@Override
+	public boolean mousePressed(int mx, int my, int button) {
+		// override mousePressed instead of onClicked because of custom hover logic
+		boolean rtn = super.mousePressed(mx, my, button);
+		if (clicking) {
+			clicking = false;
+			CONTROLLER.findFirstChild(CloneController.class).ifPresent(cloner -> {
+				BasicFlowDataContainer container = new BasicFlowDataContainer();
+
+				// create default rule data
+				ItemMovementRuleFlowData ruleData = new ItemMovementRuleFlowData();
+				container.put(ruleData);
+
+				// create trigger data
+				InventoryChangeTriggerFlowData buttonData = new InventoryChangeTriggerFlowData(
+					UUID.randomUUID(),
+					new Position(),
+					ruleData.getId()
+				);
+
+				// create trigger button component
+				FlowComponent comp = new InventoryChangeTriggerFlowButton(CONTROLLER, buttonData, ruleData);
+
+				// set component as cloning
+				cloner.startCloning(comp, container);
+			});
+			return true;
+		}
+		return rtn;
+	}
+
+	@Override
+	public void onClicked(int mx, int my, int button) {
+	}
+}
@@ -0,0 +1,86 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package ca.teamdman.sfm.client.gui.flow.impl.manager.template.toolboxspawner;
+
+import ca.teamdman.sfm.client.gui.flow.core.BaseScreen;
+import ca.teamdman.sfm.client.gui.flow.core.FlowComponent;
+import ca.teamdman.sfm.client.gui.flow.impl.manager.core.CloneController;
+import ca.teamdman.sfm.client.gui.flow.impl.manager.core.ManagerFlowController;
+import ca.teamdman.sfm.client.gui.flow.impl.manager.flowdataholder.ResourceKind;
+import ca.teamdman.sfm.client.gui.flow.impl.util.ButtonLabel;
+import ca.teamdman.sfm.client.gui.flow.impl.util.FlowIconButton;
+import ca.teamdman.sfm.common.flow.core.Position;
+import ca.teamdman.sfm.common.flow.holder.BasicFlowDataContainer;
+import com.mojang.blaze3d.matrix.MatrixStack;
+import java.util.ArrayList;
+import java.util.List;
+import net.minecraft.util.text.ITextComponent;
+import net.minecraft.util.text.ITextProperties;
+import net.minecraft.util.text.TranslationTextComponent;
+
+/**
+ * Toolbox button creating a node for something other than items, tinted the same as the node.
+ */
+public abstract class ResourceSpawnerFlowButton extends FlowIconButton {
+
+	protected final ManagerFlowController CONTROLLER;
+	private final ResourceKind KIND;
+	private final String TOOLTIP_KEY;
+
+	public ResourceSpawnerFlowButton(
+		ManagerFlowController controller,
+		ButtonLabel label,
+		ResourceKind kind,
+		String tooltipKey
+	) {
+		super(label, new Position());
+		this.CONTROLLER = controller;
+		this.KIND = kind;
+		this.TOOLTIP_KEY = tooltipKey;
+	}
+
+	/**
+	 * @param container Container to put the new node and the data it depends on in
+	 * @return Component of the new node
+	 */
+	protected abstract FlowComponent createNode(BasicFlowDataContainer container);
+
+	@Override
+	public List<? extends ITextProperties> getTooltip() {
+		List<ITextComponent> list = new ArrayList<>();
+		list.add(new TranslationTextComponent(TOOLTIP_KEY));
+		return list;
+	}
+
+	@Override
+	public void draw(
+		BaseScreen screen, MatrixStack matrixStack, int mx, int my, float deltaTime
+	) {
+		KIND.applyTint();
+		super.draw(screen, matrixStack, mx, my, deltaTime);
+		ResourceKind.clearTint();
+	}
+
+	@Override
+	public boolean mousePressed(int mx, int my, int button) {
+		// override mousePressed instead of onClicked because of custom hover logic
+		boolean rtn = super.mousePressed(mx, my, button);
+		if (clicking) {
+			clicking = false;
+			CONTROLLER.findFirstChild(CloneController.class).ifPresent(cloner -> {
+				BasicFlowDataContainer container = new BasicFlowDataContainer();
+				FlowComponent comp = createNode(container);
+
+				// set component as cloning
+				cloner.startCloning(comp, container);
+			});
+			return true;
+		}
+		return rtn;
+	}
+
+	@Override
+	public void onClicked(int mx, int my, int button) {
+	}
+}
@@ -0,0 +1,58 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package ca.teamdman.sfm.client.gui.flow.impl.manager.template.toolboxspawner;
+
+import ca.teamdman.sfm.client.gui.flow.core.FlowComponent;
+import ca.teamdman.sfm.client.gui.flow.impl.manager.core.ManagerFlowController;
+import ca.teamdman.sfm.client.gui.flow.impl.manager.flowdataholder.ResourceKind;
+import ca.teamdman.sfm.client.gui.flow.impl.util.ButtonLabel;
+import ca.teamdman.sfm.common.flow.core.Position;
+import ca.teamdman.sfm.common.flow.data.ItemMovementRuleFlowData;
+import ca.teamdman.sfm.common.flow.data.RuleNodeFlowData;
+import ca.teamdman.sfm.common.flow.data.RuleNodeFlowData.Factory;
+import ca.teamdman.sfm.common.flow.holder.BasicFlowDataContainer;
+import java.util.UUID;
+
+/**
+ * Creates an input or output for something other than items, along with a default rule.
+ */
+public class RuleNodeSpawnerFlowButton extends ResourceSpawnerFlowButton {
+
+	private final Factory<?> FACTORY;
+
+	/**
+	 * @param input {@code true} for an input node, {@code false} for an output node
+	 */
+	public RuleNodeSpawnerFlowButton(
+		ManagerFlowController controller,
+		ResourceKind kind,
+		boolean input,
+		Factory<?> factory
+	) {
+		super(
+			controller,
+			input ? ButtonLabel.ADD_INPUT : ButtonLabel.ADD_OUTPUT,
+			kind,
+			kind.getTooltipKey(input ? "input_spawner" : "output_spawner")
+		);
+		this.FACTORY = factory;
+	}
+
+	@Override
+	protected FlowComponent createNode(BasicFlowDataContainer container) {
+		// create default rule data
+		ItemMovementRuleFlowData ruleData = new ItemMovementRuleFlowData();
+		container.put(ruleData);
+
+		// create button data
+		RuleNodeFlowData buttonData = FACTORY.create(
+			UUID.randomUUID(),
+			new Position(),
+			ruleData.getId()
+		);
+
+		// create rule button component
+		return buttonData.createController(CONTROLLER, ruleData);
+	}
+}
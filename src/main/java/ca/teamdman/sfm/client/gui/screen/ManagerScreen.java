@@ -14,12 +14,17 @@ import ca.teamdman.sfm.common.flow.holder.BasicFlowDataContainer;
 import ca.teamdman.sfm.common.net.PacketHandler;
 import ca.teamdman.sfm.common.net.packet.manager.delete.ManagerDeletePacketC2S;
 import ca.teamdman.sfm.common.net.packet.manager.put.ManagerFlowDataPacketC2S;
+import ca.teamdman.sfm.common.tile.manager.ExecutionProfiler.NodeSummary;
 import ca.teamdman.sfm.common.util.SFMUtil;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
 import net.minecraft.client.gui.IHasContainer;
 import net.minecraft.entity.player.PlayerInventory;
 import net.minecraft.util.text.ITextComponent;
@@ -29,6 +34,7 @@ public class ManagerScreen extends ComponentScreen<ManagerFlowController> implem
 
 	private final ManagerFlowController CONTROLLER;
 	private final ManagerContainer CONTAINER;
+	private Map<UUID, NodeSummary> executionProfile = Collections.emptyMap();
 
 	public ManagerScreen(ManagerContainer container, PlayerInventory inv, ITextComponent name) {
 		super(name, 512, 256);
@@ -46,6 +52,18 @@ public class ManagerScreen extends ComponentScreen<ManagerFlowController> implem
 		return getContainer().getSource().getFlowDataContainer();
 	}
 
+	/**
+	 * @param summary Latest execution stats sent by the server
+	 */
+	public void setExecutionProfile(List<NodeSummary> summary) {
+		executionProfile = summary.stream()
+			.collect(Collectors.toMap(node -> node.ID, node -> node));
+	}
+
+	public Map<UUID, NodeSummary> getExecutionProfile() {
+		return executionProfile;
+	}
+
 	@Override
 	public ManagerContainer getContainer() {
 		return CONTAINER;
@@ -5,6 +5,7 @@ package ca.teamdman.sfm.common.block;
 
 import ca.teamdman.sfm.SFM;
 import ca.teamdman.sfm.common.cablenetwork.CableNetworkManager;
+import ca.teamdman.sfm.common.tile.manager.ManagerScheduler;
 import ca.teamdman.sfm.common.util.SFMUtil;
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
@@ -36,6 +37,8 @@ public class CableBlock extends Block implements ICable {
 			CableNetworkManager
 				.getOrRegisterNetwork(((World) world), pos)
 				.ifPresent(network -> network.rebuildAdjacentInventories(pos));
+			// also called when a neighbouring tile entity is marked dirty
+			ManagerScheduler.onInventoryChanged((World) world, neighbor);
 		}
 	}
 
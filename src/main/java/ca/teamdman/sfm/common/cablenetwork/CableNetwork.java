@@ -1,29 +1,41 @@
 package ca.teamdman.sfm.common.cablenetwork;
 
 import ca.teamdman.sfm.common.block.ICable;
+import ca.teamdman.sfm.common.capability.CapabilityBulkItemHandler;
 import ca.teamdman.sfm.common.util.SFMUtil;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import javax.annotation.Nullable;
 import net.minecraft.item.ItemStack;
 import net.minecraft.tileentity.TileEntity;
 import net.minecraft.util.Direction;
+import net.minecraft.util.ResourceLocation;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
+import net.minecraftforge.common.capabilities.Capability;
+import net.minecraftforge.items.CapabilityItemHandler;
+import net.minecraftforge.items.IItemHandler;
 
 public class CableNetwork {
 
 	private final World WORLD;
 	private final Set<BlockPos> CABLES = new HashSet<>();
 	private final Map<BlockPos, TileEntity> INVENTORIES = new HashMap<>();
+	// secondary index of the inventories, kept in step by addInventory and removeInventory
+	private final Map<String, Set<TileEntity>> INVENTORIES_BY_MOD = new HashMap<>();
+	private final CapabilityCache CAPABILITIES = new CapabilityCache();
 
 	public CableNetwork(World world) {
 		this.WORLD = world;
@@ -32,6 +44,8 @@ public class CableNetwork {
 	public void rebuildNetwork(BlockPos pos) {
 		CABLES.clear();
 		INVENTORIES.clear();
+		INVENTORIES_BY_MOD.clear();
+		CAPABILITIES.clear();
 		discoverCables(pos).forEach(this::addCable);
 	}
 
@@ -66,15 +80,67 @@ public class CableNetwork {
 		return WORLD;
 	}
 
+	/**
+	 * Tiles only join the network if they have something SFM can move, handlers resolved from
+	 * tiles that are no longer there are dropped.
+	 * <p>
+	 * Tiles that are still there keep their place in the indexes. This runs whenever a
+	 * neighbour is marked dirty, and re-adding them would reorder the handlers of rules, which
+	 * slot cursors are indexed by.
+	 */
 	public void rebuildAdjacentInventories(BlockPos pos) {
-		Arrays.stream(Direction.values())
-			.map(pos::offset)
-			.distinct()
-			.peek(INVENTORIES::remove)
-			.filter(this::containsNeighbour) // Verify if should [re]join network
-			.map(WORLD::getTileEntity)
-			.filter(Objects::nonNull)
-			.forEach(tile -> INVENTORIES.put(tile.getPos(), tile)); // register tile [again]
+		for (Direction direction : Direction.values()) {
+			BlockPos neighbour = pos.offset(direction);
+			TileEntity previous = INVENTORIES.get(neighbour);
+			// Verify if should [re]join network
+			TileEntity tile = containsNeighbour(neighbour) ? WORLD.getTileEntity(neighbour) : null;
+			if (tile != previous) {
+				CAPABILITIES.invalidate(neighbour);
+			} else {
+				// a face may have gained a capability, such as a machine changing its side config
+				CAPABILITIES.invalidateMissing(neighbour);
+			}
+			boolean member = tile != null && CAPABILITIES.hasMovable(tile);
+			if (member && tile == previous) {
+				continue;
+			}
+			removeInventory(neighbour);
+			if (member) {
+				addInventory(tile); // register tile [again]
+			}
+		}
+	}
+
+	private void addInventory(TileEntity tile) {
+		removeInventory(tile.getPos());
+		INVENTORIES.put(tile.getPos(), tile);
+		ResourceLocation type = tile.getType().getRegistryName();
+		if (type != null) {
+			INVENTORIES_BY_MOD.computeIfAbsent(type.getNamespace(), m -> new LinkedHashSet<>())
+				.add(tile);
+		}
+	}
+
+	/**
+	 * @return The inventory that was at the position, if any
+	 */
+	@Nullable
+	private TileEntity removeInventory(BlockPos pos) {
+		TileEntity tile = INVENTORIES.remove(pos);
+		if (tile != null) {
+			ResourceLocation type = tile.getType().getRegistryName();
+			if (type != null) {
+				removeIndexed(INVENTORIES_BY_MOD, type.getNamespace(), tile);
+			}
+		}
+		return tile;
+	}
+
+	private static <K> void removeIndexed(Map<K, Set<TileEntity>> index, K key, TileEntity tile) {
+		Set<TileEntity> tiles = index.get(key);
+		if (tiles != null && tiles.remove(tile) && tiles.isEmpty()) {
+			index.remove(key);
+		}
 	}
 
 	/**
@@ -150,6 +216,75 @@ public class CableNetwork {
 		return Optional.ofNullable(INVENTORIES.get(pos));
 	}
 
+	/**
+	 * @return Handler of the given capability on the face of a tile in this network, resolved
+	 * once and reused until the tile invalidates it
+	 */
+	public <T> Optional<T> getCapability(
+		TileEntity tile,
+		Capability<T> capability,
+		@Nullable Direction face
+	) {
+		return CAPABILITIES.get(tile, capability, face);
+	}
+
+	/**
+	 * @return Handlers of the given capability on the given faces of each tile, in order
+	 */
+	public <T> List<T> getCapabilities(
+		Stream<TileEntity> tiles,
+		Capability<T> capability,
+		Collection<Direction> faces
+	) {
+		List<T> handlers = new ArrayList<>();
+		for (Iterator<TileEntity> it = tiles.iterator(); it.hasNext(); ) {
+			TileEntity tile = it.next();
+			for (Direction face : faces) {
+				CAPABILITIES.get(tile, capability, face).ifPresent(handlers::add);
+			}
+		}
+		return handlers;
+	}
+
+	/**
+	 * Bulk handlers are item handlers too, they are preferred so moves can be batched. Handlers
+	 * over the same storage, such as one chest seen from every face, are only listed once.
+	 *
+	 * @return Item handlers on the given faces of each tile, in order
+	 */
+	public List<IItemHandler> getItemHandlers(Stream<TileEntity> tiles, Collection<Direction> faces) {
+		List<IItemHandler> handlers = new ArrayList<>();
+		Set<IItemHandler> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (Iterator<TileEntity> it = tiles.iterator(); it.hasNext(); ) {
+			TileEntity tile = it.next();
+			for (Direction face : faces) {
+				Optional<? extends IItemHandler> handler = CAPABILITIES
+					.get(tile, CapabilityBulkItemHandler.BULK_ITEM_HANDLER, face);
+				if (!handler.isPresent()) {
+					handler = CAPABILITIES
+						.get(tile, CapabilityItemHandler.ITEM_HANDLER_CAPABILITY, face);
+				}
+				if (handler.isPresent()) {
+					IItemHandler canonical = CAPABILITIES.getCanonical(tile, handler.get());
+					if (seen.add(canonical)) {
+						handlers.add(canonical);
+					}
+				}
+			}
+		}
+		return handlers;
+	}
+
+	/**
+	 * Handlers over the same storage are merged, the ones left may still share it, like the
+	 * faces of a sided inventory do. A move through one can change what the others hold.
+	 *
+	 * @return Every item handler handed out for the tile the handler came from, itself included
+	 */
+	public Collection<IItemHandler> getSiblingItemHandlers(IItemHandler handler) {
+		return CAPABILITIES.getSiblings(handler);
+	}
+
 	public int size() {
 		return CABLES.size();
 	}
@@ -161,7 +296,9 @@ public class CableNetwork {
 	 */
 	public void mergeNetwork(CableNetwork other) {
 		CABLES.addAll(other.CABLES);
-		INVENTORIES.putAll(other.INVENTORIES);
+		other.INVENTORIES.values().forEach(this::addInventory);
+		// handlers of the other network are resolved again, its invalidation listeners only
+		// clear its own cache
 	}
 
 	public boolean isEmpty() {
@@ -172,6 +309,13 @@ public class CableNetwork {
 		return INVENTORIES.values();
 	}
 
+	/**
+	 * @param modId Namespace of the tile entity types
+	 */
+	public Collection<TileEntity> getInventories(String modId) {
+		return INVENTORIES_BY_MOD.getOrDefault(modId, Collections.emptySet());
+	}
+
 	public ItemStack getPreview(BlockPos pos) {
 		return new ItemStack(WORLD.getBlockState(pos).getBlock().asItem());
 	}
@@ -0,0 +1,207 @@
+package ca.teamdman.sfm.common.cablenetwork;
+
+import ca.teamdman.sfm.common.compat.MekanismCompat;
+import ca.teamdman.sfm.common.compat.mekanism.ChemicalTransfer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.WeakHashMap;
+import javax.annotation.Nullable;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.Direction;
+import net.minecraft.util.math.BlockPos;
+import net.minecraftforge.common.capabilities.Capability;
+import net.minecraftforge.common.util.LazyOptional;
+import net.minecraftforge.energy.CapabilityEnergy;
+import net.minecraftforge.fluids.capability.CapabilityFluidHandler;
+import net.minecraftforge.items.CapabilityItemHandler;
+import net.minecraftforge.items.IItemHandler;
+import net.minecraftforge.items.wrapper.InvWrapper;
+
+/**
+ * Handlers resolved from the tiles of a network, by tile, face and capability.
+ * <p>
+ * An entry is dropped when the tile invalidates the capability it was resolved from, or when
+ * the network finds a different tile at its position. Capabilities a tile didn't have are
+ * forgotten whenever a neighbour changes, since tiles rarely invalidate anything when a face
+ * gains one.
+ */
+class CapabilityCache {
+
+	// stands in for a capability the tile doesn't have on a face, null means not resolved yet
+	private static final Object ABSENT = new Object();
+	// caches holding a handler from each optional, the optional only gets one listener however
+	// many times it is resolved, and caches of discarded networks are not kept alive by it
+	private static final Map<LazyOptional<?>, Set<CapabilityCache>> WATCHERS = new WeakHashMap<>();
+	private static List<Capability<?>> movable;
+	private final Map<BlockPos, Entry> ENTRIES = new HashMap<>();
+	// entry each canonical item handler was handed out from
+	private final Map<IItemHandler, Entry> OWNERS = new IdentityHashMap<>();
+
+	/**
+	 * @return Capabilities SFM can move something through
+	 */
+	private static List<Capability<?>> getMovable() {
+		if (movable == null) {
+			List<Capability<?>> capabilities = new ArrayList<>();
+			capabilities.add(CapabilityItemHandler.ITEM_HANDLER_CAPABILITY);
+			capabilities.add(CapabilityFluidHandler.FLUID_HANDLER_CAPABILITY);
+			capabilities.add(CapabilityEnergy.ENERGY);
+			if (MekanismCompat.isLoaded()) {
+				capabilities.add(ChemicalTransfer.GAS_HANDLER);
+				capabilities.add(ChemicalTransfer.INFUSION_HANDLER);
+			}
+			movable = capabilities;
+		}
+		return movable;
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T> Optional<T> get(TileEntity tile, Capability<T> capability, @Nullable Direction face) {
+		Entry entry = ENTRIES.get(tile.getPos());
+		if (entry == null || entry.TILE != tile) {
+			invalidate(tile.getPos());
+			entry = new Entry(tile);
+			ENTRIES.put(tile.getPos(), entry);
+		}
+		Object[] faces = entry.FACES.computeIfAbsent(capability, c -> new Object[7]);
+		int index = face == null ? 6 : face.ordinal();
+		Object handler = faces[index];
+		if (handler == null) {
+			LazyOptional<T> resolved = tile.getCapability(capability, face);
+			handler = resolved.resolve().map(Object.class::cast).orElse(ABSENT);
+			if (handler != ABSENT) {
+				watch(resolved, tile);
+			}
+			faces[index] = handler;
+		}
+		return handler == ABSENT ? Optional.empty() : Optional.of((T) handler);
+	}
+
+	/**
+	 * Drops the entry of the tile when the optional is invalidated, in this cache and every other
+	 * cache watching it.
+	 */
+	private <T> void watch(LazyOptional<T> optional, TileEntity tile) {
+		Set<CapabilityCache> caches = WATCHERS.get(optional);
+		if (caches == null) {
+			caches = Collections.newSetFromMap(new WeakHashMap<>());
+			WATCHERS.put(optional, caches);
+			optional.addListener(invalidated -> {
+				Set<CapabilityCache> watching = WATCHERS.remove(invalidated);
+				if (watching != null) {
+					new ArrayList<>(watching).forEach(cache -> cache.onInvalidated(tile));
+				}
+			});
+		}
+		caches.add(this);
+	}
+
+	private void onInvalidated(TileEntity tile) {
+		// only if the entry wasn't already replaced by another tile since
+		Entry entry = ENTRIES.get(tile.getPos());
+		if (entry != null && entry.TILE == tile) {
+			invalidate(tile.getPos());
+		}
+	}
+
+	/**
+	 * Item handlers of a tile that work on the same storage are interchangeable, the first one
+	 * seen stands in for the rest so the storage is only scanned once.
+	 *
+	 * @return Handler standing in for every handler of the tile over the same storage
+	 */
+	public IItemHandler getCanonical(TileEntity tile, IItemHandler handler) {
+		Entry entry = ENTRIES.get(tile.getPos());
+		if (entry == null || entry.TILE != tile) {
+			return handler;
+		}
+		IItemHandler canonical = entry.CANONICAL.computeIfAbsent(getStorage(handler), s -> handler);
+		OWNERS.put(canonical, entry);
+		return canonical;
+	}
+
+	/**
+	 * @return Every canonical item handler of the tile the handler came from, itself included
+	 */
+	public Collection<IItemHandler> getSiblings(IItemHandler handler) {
+		Entry entry = OWNERS.get(handler);
+		return entry == null ? Collections.singleton(handler) : entry.CANONICAL.values();
+	}
+
+	/**
+	 * Plain wrappers expose their inventory the same way whichever face they came from. Sided
+	 * wrappers and anything unknown are only the same as themselves, what they allow may depend
+	 * on the face.
+	 */
+	private static Object getStorage(IItemHandler handler) {
+		if (handler.getClass() == InvWrapper.class) {
+			return ((InvWrapper) handler).getInv();
+		}
+		return handler;
+	}
+
+	/**
+	 * @return true if the tile has a capability SFM can move something through on any face
+	 */
+	public boolean hasMovable(TileEntity tile) {
+		for (Capability<?> capability : getMovable()) {
+			if (get(tile, capability, null).isPresent()) {
+				return true;
+			}
+			for (Direction face : Direction.values()) {
+				if (get(tile, capability, face).isPresent()) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	public void invalidate(BlockPos pos) {
+		Entry entry = ENTRIES.remove(pos);
+		if (entry != null) {
+			entry.CANONICAL.values().forEach(OWNERS::remove);
+		}
+	}
+
+	/**
+	 * Forgets which capabilities the tile at the position didn't have, so they are looked up
+	 * again. Handlers that were found are kept.
+	 */
+	public void invalidateMissing(BlockPos pos) {
+		Entry entry = ENTRIES.get(pos);
+		if (entry == null) {
+			return;
+		}
+		for (Object[] faces : entry.FACES.values()) {
+			for (int i = 0; i < faces.length; i++) {
+				if (faces[i] == ABSENT) {
+					faces[i] = null;
+				}
+			}
+		}
+	}
+
+	public void clear() {
+		ENTRIES.clear();
+		OWNERS.clear();
+	}
+
+	private static class Entry {
+
+		public final TileEntity TILE;
+		public final Map<Capability<?>, Object[]> FACES = new IdentityHashMap<>();
+		public final Map<Object, IItemHandler> CANONICAL = new IdentityHashMap<>();
+
+		public Entry(TileEntity tile) {
+			this.TILE = tile;
+		}
+	}
+}
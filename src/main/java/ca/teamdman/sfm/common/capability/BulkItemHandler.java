@@ -0,0 +1,61 @@
+package ca.teamdman.sfm.common.capability;
+
+import java.util.ArrayList;
+import java.util.List;
+import net.minecraft.item.ItemStack;
+import net.minecraftforge.items.IItemHandler;
+
+/**
+ * Item handler that takes and gives several stacks in one call, and reacts to the change once
+ * rather than once per stack. Exposed by SFM's own tiles through {@link
+ * CapabilityBulkItemHandler#BULK_ITEM_HANDLER}, next to the plain item handler capability.
+ */
+public interface BulkItemHandler extends IItemHandler {
+
+	/**
+	 * Holds back reacting to changes until {@link #endBatch()}, so the tile is marked dirty and
+	 * recomputes its state only once.
+	 */
+	void beginBatch();
+
+	/**
+	 * Reacts to everything that changed since {@link #beginBatch()}, if anything did.
+	 */
+	void endBatch();
+
+	/**
+	 * @param slots  Slot to insert each stack into
+	 * @param stacks Stacks to insert, not modified
+	 * @return What could not be inserted of each stack
+	 */
+	default List<ItemStack> insertItems(int[] slots, List<ItemStack> stacks, boolean simulate) {
+		List<ItemStack> remainders = new ArrayList<>(stacks.size());
+		beginBatch();
+		try {
+			for (int i = 0; i < slots.length; i++) {
+				remainders.add(insertItem(slots[i], stacks.get(i), simulate));
+			}
+		} finally {
+			endBatch();
+		}
+		return remainders;
+	}
+
+	/**
+	 * @param slots   Slot to extract from for each amount
+	 * @param amounts Amount to extract from each slot
+	 * @return What was extracted from each slot
+	 */
+	default List<ItemStack> extractItems(int[] slots, int[] amounts, boolean simulate) {
+		List<ItemStack> extracted = new ArrayList<>(slots.length);
+		beginBatch();
+		try {
+			for (int i = 0; i < slots.length; i++) {
+				extracted.add(extractItem(slots[i], amounts[i], simulate));
+			}
+		} finally {
+			endBatch();
+		}
+		return extracted;
+	}
+}
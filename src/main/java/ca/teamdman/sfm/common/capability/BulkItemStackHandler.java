@@ -0,0 +1,53 @@
+package ca.teamdman.sfm.common.capability;
+
+import net.minecraftforge.items.ItemStackHandler;
+
+/**
+ * Item stack handler with batches, subclasses check {@link #deferChange()} before reacting to a
+ * change and react in {@link #onBatchChanged()} instead when it returns true.
+ */
+public class BulkItemStackHandler extends ItemStackHandler implements BulkItemHandler {
+
+	// batches may be nested, e.g. by several ranges of the same handler
+	private int batchDepth = 0;
+	private boolean changedDuringBatch = false;
+
+	public BulkItemStackHandler() {
+		this(1);
+	}
+
+	public BulkItemStackHandler(int size) {
+		super(size);
+	}
+
+	@Override
+	public void beginBatch() {
+		batchDepth++;
+	}
+
+	@Override
+	public void endBatch() {
+		if (batchDepth > 0 && --batchDepth == 0 && changedDuringBatch) {
+			changedDuringBatch = false;
+			onBatchChanged();
+		}
+	}
+
+	/**
+	 * @return true if a batch is in progress, in which case the change is reacted to once the
+	 * batch ends
+	 */
+	protected boolean deferChange() {
+		if (batchDepth > 0) {
+			changedDuringBatch = true;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Called once at the end of a batch during which anything changed.
+	 */
+	protected void onBatchChanged() {
+	}
+}
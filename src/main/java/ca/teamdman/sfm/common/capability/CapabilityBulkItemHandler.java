@@ -0,0 +1,41 @@
+package ca.teamdman.sfm.common.capability;
+
+import net.minecraft.nbt.INBT;
+import net.minecraft.util.Direction;
+import net.minecraftforge.common.capabilities.Capability;
+import net.minecraftforge.common.capabilities.Capability.IStorage;
+import net.minecraftforge.common.capabilities.CapabilityInject;
+import net.minecraftforge.common.capabilities.CapabilityManager;
+
+public class CapabilityBulkItemHandler {
+
+	@CapabilityInject(BulkItemHandler.class)
+	public static Capability<BulkItemHandler> BULK_ITEM_HANDLER = null;
+
+	public static void register() {
+		CapabilityManager.INSTANCE.register(
+			BulkItemHandler.class,
+			new IStorage<BulkItemHandler>() {
+				// the tiles exposing it save their own inventories
+				@Override
+				public INBT writeNBT(
+					Capability<BulkItemHandler> capability,
+					BulkItemHandler instance,
+					Direction side
+				) {
+					return null;
+				}
+
+				@Override
+				public void readNBT(
+					Capability<BulkItemHandler> capability,
+					BulkItemHandler instance,
+					Direction side,
+					INBT nbt
+				) {
+				}
+			},
+			BulkItemStackHandler::new
+		);
+	}
+}
@@ -0,0 +1,33 @@
+package ca.teamdman.sfm.common.capability;
+
+import net.minecraftforge.items.wrapper.RangedWrapper;
+
+/**
+ * Range of the slots of a bulk handler, batches apply to the whole handler.
+ */
+public class RangedBulkWrapper extends RangedWrapper implements BulkItemHandler {
+
+	private final BulkItemStackHandler HANDLER;
+
+	public RangedBulkWrapper(BulkItemStackHandler handler, int minSlot, int maxSlotExclusive) {
+		super(handler, minSlot, maxSlotExclusive);
+		this.HANDLER = handler;
+	}
+
+	/**
+	 * @return Handler the range is of
+	 */
+	public BulkItemStackHandler getWrapped() {
+		return HANDLER;
+	}
+
+	@Override
+	public void beginBatch() {
+		HANDLER.beginBatch();
+	}
+
+	@Override
+	public void endBatch() {
+		HANDLER.endBatch();
+	}
+}
@@ -0,0 +1,21 @@
+package ca.teamdman.sfm.common.compat;
+
+import net.minecraftforge.fml.ModList;
+
+/**
+ * Mekanism is optional, anything referring to its classes lives in {@link
+ * ca.teamdman.sfm.common.compat.mekanism} and must only be reached after checking {@link
+ * #isLoaded()}.
+ */
+public class MekanismCompat {
+
+	public static final String MOD_ID = "mekanism";
+	private static Boolean loaded;
+
+	public static boolean isLoaded() {
+		if (loaded == null) {
+			loaded = ModList.get().isLoaded(MOD_ID);
+		}
+		return loaded;
+	}
+}
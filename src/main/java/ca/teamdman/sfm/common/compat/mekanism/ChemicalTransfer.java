@@ -0,0 +1,171 @@
+package ca.teamdman.sfm.common.compat.mekanism;
+
+import ca.teamdman.sfm.common.cablenetwork.CableNetwork;
+import ca.teamdman.sfm.common.flow.data.ItemMovementRuleFlowData;
+import ca.teamdman.sfm.common.tile.manager.CompiledRule;
+import ca.teamdman.sfm.common.tile.manager.ExecutionBudget;
+import ca.teamdman.sfm.common.tile.manager.ExecutionProfiler.Counters;
+import ca.teamdman.sfm.common.tile.manager.ExecutionStep;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import mekanism.api.Action;
+import mekanism.api.chemical.Chemical;
+import mekanism.api.chemical.ChemicalStack;
+import mekanism.api.chemical.IChemicalHandler;
+import mekanism.api.chemical.gas.IGasHandler;
+import mekanism.api.chemical.infuse.IInfusionHandler;
+import net.minecraftforge.common.capabilities.Capability;
+import net.minecraftforge.common.capabilities.CapabilityInject;
+
+/**
+ * Moves Mekanism gases and infuse types between the tiles of chemical nodes. Only loaded when
+ * Mekanism is, see {@link ca.teamdman.sfm.common.compat.MekanismCompat}.
+ * <p>
+ * Chemicals have no item form, so the item matchers and quotas of the rules don't apply. The
+ * tiles, faces and slots of the rules do, slots selecting the tanks of the sources.
+ */
+public class ChemicalTransfer {
+
+	@CapabilityInject(IGasHandler.class)
+	public static Capability<IGasHandler> GAS_HANDLER = null;
+	@CapabilityInject(IInfusionHandler.class)
+	public static Capability<IInfusionHandler> INFUSION_HANDLER = null;
+
+	/**
+	 * Moves every chemical of the chemical inputs hit so far into the tiles of the output rule,
+	 * one tank of the source at a time, moving as much as the destination accepts at once.
+	 */
+	public static void move(
+		ExecutionStep step,
+		CableNetwork network,
+		CompiledRule<ItemMovementRuleFlowData> compiledOutRule
+	) {
+		List<IGasHandler> gasOut = getHandlers(GAS_HANDLER, compiledOutRule, network);
+		List<IInfusionHandler> infusionOut = getHandlers(INFUSION_HANDLER, compiledOutRule, network);
+		if (gasOut.isEmpty() && infusionOut.isEmpty()) {
+			return;
+		}
+
+		// pick up where the previous tick ran out of budget, if it did
+		ChemicalCursor cursor = step.resume(ChemicalCursor.class).orElse(ChemicalCursor.START);
+		ExecutionBudget budget = step.getBudget();
+		Counters counters = step.getCounters();
+		boolean visitedAny = false;
+
+		// the inputs don't change while this node is suspended, so indices stay valid
+		List<CompiledRule<ItemMovementRuleFlowData>> inputs = new ArrayList<>(step.CHEMICAL_INPUTS);
+		for (int inputIndex = cursor.INPUT; inputIndex < inputs.size(); inputIndex++) {
+			CompiledRule<ItemMovementRuleFlowData> in = inputs.get(inputIndex);
+			// the cursor counts gas handlers first, then infusion handlers
+			List<IGasHandler> gasIn = getHandlers(GAS_HANDLER, in, network);
+			List<IInfusionHandler> infusionIn = getHandlers(INFUSION_HANDLER, in, network);
+			int handlers = gasIn.size() + infusionIn.size();
+
+			int firstHandler = inputIndex == cursor.INPUT ? cursor.HANDLER : 0;
+			for (int handlerIndex = firstHandler; handlerIndex < handlers; handlerIndex++) {
+				// stop between tank holders once out of budget, the rest happens next tick
+				if (visitedAny && budget.isExhausted()) {
+					step.suspend(new ChemicalCursor(inputIndex, handlerIndex));
+					return;
+				}
+				visitedAny = true;
+
+				if (handlerIndex < gasIn.size()) {
+					moveTanks(gasIn.get(handlerIndex), gasOut, in.RULE, budget, counters);
+				} else {
+					IInfusionHandler from = infusionIn.get(handlerIndex - gasIn.size());
+					moveTanks(from, infusionOut, in.RULE, budget, counters);
+				}
+			}
+		}
+	}
+
+	private static <T> List<T> getHandlers(
+		Capability<T> capability,
+		CompiledRule<ItemMovementRuleFlowData> rule,
+		CableNetwork network
+	) {
+		return network.getCapabilities(
+			rule.RULE.getTiles(rule.TILE_MATCHERS, network),
+			capability,
+			rule.RULE.faces
+		).stream()
+			.distinct()
+			.collect(Collectors.toList());
+	}
+
+	/**
+	 * Moves the tanks of the source selected by the input rule into the destinations.
+	 */
+	private static <C extends Chemical<C>, S extends ChemicalStack<C>> void moveTanks(
+		IChemicalHandler<C, S> from,
+		List<? extends IChemicalHandler<C, S>> destinations,
+		ItemMovementRuleFlowData inRule,
+		ExecutionBudget budget,
+		Counters counters
+	) {
+		for (int tank : inRule.slots.getSlots(from.getTanks()).toArray()) {
+			budget.consume(1);
+			counters.slotVisits++;
+			for (IChemicalHandler<C, S> to : destinations) {
+				if (from.getChemicalInTank(tank).isEmpty()) {
+					break;
+				}
+				if (to == from) {
+					continue;
+				}
+				budget.consume(1);
+				transfer(from, tank, to, counters);
+			}
+		}
+	}
+
+	/**
+	 * Moves the contents of a tank of the source with one extract and one insert, after asking
+	 * the destination how much it accepts.
+	 */
+	private static <C extends Chemical<C>, S extends ChemicalStack<C>> void transfer(
+		IChemicalHandler<C, S> from,
+		int tank,
+		IChemicalHandler<C, S> to,
+		Counters counters
+	) {
+		counters.extractCalls++;
+		S available = from.extractChemical(tank, Long.MAX_VALUE, Action.SIMULATE);
+		if (available.isEmpty()) {
+			return;
+		}
+		counters.insertCalls++;
+		long accepted = available.getAmount()
+			- to.insertChemical(available, Action.SIMULATE).getAmount();
+		if (accepted <= 0) {
+			return;
+		}
+
+		counters.extractCalls++;
+		S extracted = from.extractChemical(tank, accepted, Action.EXECUTE);
+		counters.insertCalls++;
+		S leftover = to.insertChemical(extracted, Action.EXECUTE);
+		if (!leftover.isEmpty()) {
+			// the destination took less than it accepted a moment ago, give the rest back
+			counters.insertCalls++;
+			from.insertChemical(tank, leftover, Action.EXECUTE);
+		}
+		counters.itemsMoved += extracted.getAmount() - leftover.getAmount();
+	}
+
+	/**
+	 * Position in the input tank holders at which a suspended transfer resumes
+	 */
+	private static class ChemicalCursor {
+
+		public static final ChemicalCursor START = new ChemicalCursor(0, 0);
+		public final int INPUT, HANDLER;
+
+		public ChemicalCursor(int input, int handler) {
+			this.INPUT = input;
+			this.HANDLER = handler;
+		}
+	}
+}
@@ -20,6 +20,17 @@ public class Config {
 	}
 
 	public static class Server {
-
+		public static int executionTimeBudgetMicros;
+		public static int executionOperationBudget;
+		public static boolean offThreadPlanning;
+		public static int planningThreads;
+		public static boolean allowProfiling;
+		public static int maxStepsPerTick;
+		public static int maxFramesPerRun;
+		public static int changeTriggerPollInterval;
+		public static boolean skipUnchangedInventories;
+		public static boolean bulkTransfers;
+		public static boolean trustedHandlers;
+		public static int maxEnergyPerTick;
 	}
 }
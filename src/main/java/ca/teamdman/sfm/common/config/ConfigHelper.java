@@ -5,6 +5,7 @@ package ca.teamdman.sfm.common.config;
 
 import ca.teamdman.sfm.SFM;
 import ca.teamdman.sfm.common.config.Config.Client;
+import ca.teamdman.sfm.common.config.Config.Server;
 import net.minecraftforge.common.ForgeConfigSpec.ConfigValue;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
@@ -60,6 +61,18 @@ public final class ConfigHelper {
 
 	public static void bakeServer(final ModConfig config) {
 		serverConfig = config;
+		Server.executionTimeBudgetMicros = ConfigHolder.SERVER.executionTimeBudgetMicros.get();
+		Server.executionOperationBudget = ConfigHolder.SERVER.executionOperationBudget.get();
+		Server.offThreadPlanning = ConfigHolder.SERVER.offThreadPlanning.get();
+		Server.planningThreads = ConfigHolder.SERVER.planningThreads.get();
+		Server.allowProfiling = ConfigHolder.SERVER.allowProfiling.get();
+		Server.maxStepsPerTick = ConfigHolder.SERVER.maxStepsPerTick.get();
+		Server.maxFramesPerRun = ConfigHolder.SERVER.maxFramesPerRun.get();
+		Server.changeTriggerPollInterval = ConfigHolder.SERVER.changeTriggerPollInterval.get();
+		Server.skipUnchangedInventories = ConfigHolder.SERVER.skipUnchangedInventories.get();
+		Server.bulkTransfers = ConfigHolder.SERVER.bulkTransfers.get();
+		Server.trustedHandlers = ConfigHolder.SERVER.trustedHandlers.get();
+		Server.maxEnergyPerTick = ConfigHolder.SERVER.maxEnergyPerTick.get();
 	}
 
 	public static void bakeClient(final ModConfig config) {
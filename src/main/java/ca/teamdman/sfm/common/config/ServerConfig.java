@@ -7,6 +7,88 @@ import net.minecraftforge.common.ForgeConfigSpec;
 
 public final class ServerConfig {
 
+	public final ForgeConfigSpec.IntValue executionTimeBudgetMicros;
+	public final ForgeConfigSpec.IntValue executionOperationBudget;
+	public final ForgeConfigSpec.BooleanValue offThreadPlanning;
+	public final ForgeConfigSpec.IntValue planningThreads;
+	public final ForgeConfigSpec.BooleanValue allowProfiling;
+	public final ForgeConfigSpec.IntValue maxStepsPerTick;
+	public final ForgeConfigSpec.IntValue maxFramesPerRun;
+	public final ForgeConfigSpec.IntValue changeTriggerPollInterval;
+	public final ForgeConfigSpec.BooleanValue skipUnchangedInventories;
+	public final ForgeConfigSpec.BooleanValue bulkTransfers;
+	public final ForgeConfigSpec.BooleanValue trustedHandlers;
+	public final ForgeConfigSpec.IntValue maxEnergyPerTick;
+
 	ServerConfig(final ForgeConfigSpec.Builder builder) {
+		builder.push("Execution");
+		executionTimeBudgetMicros = builder
+			.comment(
+				"Time in microseconds a manager may spend executing each tick before the rest of the run is deferred to the next tick",
+				"0 for no limit"
+			)
+			.defineInRange("executionTimeBudgetMicros", 5000, 0, 1_000_000);
+		executionOperationBudget = builder
+			.comment(
+				"Number of slot operations a manager may perform each tick before the rest of the run is deferred to the next tick",
+				"0 for no limit"
+			)
+			.defineInRange("executionOperationBudget", 0, 0, Integer.MAX_VALUE);
+		offThreadPlanning = builder
+			.comment(
+				"Plan item transfers on worker threads from a snapshot of the inventories, applying the plan on the next tick",
+				"Moves most of the cost of large programs off the server thread, at the cost of one tick of latency per output"
+			)
+			.define("offThreadPlanning", false);
+		planningThreads = builder
+			.comment("Number of worker threads used when offThreadPlanning is enabled")
+			.defineInRange("planningThreads", 2, 1, 16);
+		allowProfiling = builder
+			.comment("Record how expensive each node of a program is while someone has the manager open, shown as an overlay in the manager")
+			.define("allowProfiling", true);
+		maxStepsPerTick = builder
+			.comment(
+				"Maximum number of program steps a manager may execute each tick, the rest of the run is deferred to the next tick",
+				"0 for no limit"
+			)
+			.defineInRange("maxStepsPerTick", 10000, 0, Integer.MAX_VALUE);
+		maxFramesPerRun = builder
+			.comment(
+				"Maximum number of program steps in a single run, runs exceeding this are stopped and reported to viewers",
+				"0 for no limit"
+			)
+			.defineInRange("maxFramesPerRun", 100000, 0, Integer.MAX_VALUE);
+		changeTriggerPollInterval = builder
+			.comment(
+				"Ticks between content checks for inventory change triggers, for inventories that do not notify neighbours of changes",
+				"0 disables the checks, triggers then only react to notifications"
+			)
+			.defineInRange("changeTriggerPollInterval", 20, 0, 1200);
+		skipUnchangedInventories = builder
+			.comment(
+				"Skip outputs that found nothing to move and conditions that were already checked, until their inventories change",
+				"Only applies when every inventory involved reports its changes, such as SFM's own blocks"
+			)
+			.define("skipUnchangedInventories", true);
+		bulkTransfers = builder
+			.comment(
+				"Move items grouped by item into an index of free output slots",
+				"false tries every output slot for every input slot, as older versions did"
+			)
+			.define("bulkTransfers", true);
+		trustedHandlers = builder
+			.comment(
+				"Work out moves into and out of well known inventories directly instead of simulating them",
+				"false always asks the inventory to simulate, for inventories that don't behave as expected"
+			)
+			.define("trustedHandlers", true);
+		maxEnergyPerTick = builder
+			.comment(
+				"Maximum Forge Energy a manager may move each tick, shared by all of its energy outputs",
+				"Managers running every few ticks may move the allowance of every tick since they last ran",
+				"0 for no limit"
+			)
+			.defineInRange("maxEnergyPerTick", 1000000, 0, Integer.MAX_VALUE);
+		builder.pop();
 	}
 }
@@ -57,6 +57,14 @@ public class ManagerContainer extends BaseContainer<ManagerTileEntity> {
 		data.writeCompoundTag(tile.serializeNBT());
 	}
 
+	@Override
+	public void detectAndSendChanges() {
+		super.detectAndSendChanges();
+		if (!IS_REMOTE) {
+			getSource().syncProfile();
+		}
+	}
+
 	@SubscribeEvent
 	public void onContainerOpen(PlayerContainerEvent.Open e) {
 		if (!IS_REMOTE) {
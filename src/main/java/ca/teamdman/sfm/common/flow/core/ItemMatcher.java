@@ -3,11 +3,19 @@ package ca.teamdman.sfm.common.flow.core;
 import java.util.List;
 import javax.annotation.Nonnull;
 import net.minecraft.item.ItemStack;
+import net.minecraftforge.fluids.FluidStack;
 
 public interface ItemMatcher {
 
 	boolean matches(@Nonnull ItemStack stack);
 
+	/**
+	 * Used by the fluid nodes, the quantity is read as millibuckets.
+	 *
+	 * @return true if the matcher selects the fluid
+	 */
+	boolean matchesFluid(@Nonnull FluidStack fluid);
+
 	int getQuantity();
 
 	List<ItemStack> getPreview();
@@ -2,6 +2,7 @@ package ca.teamdman.sfm.common.flow.core;
 
 import ca.teamdman.sfm.common.cablenetwork.CableNetwork;
 import java.util.List;
+import java.util.stream.Stream;
 import javax.annotation.Nonnull;
 import net.minecraft.item.ItemStack;
 import net.minecraft.tileentity.TileEntity;
@@ -11,6 +12,16 @@ public interface TileMatcher extends VisibilityHolder{
 
 	boolean matches(@Nonnull TileEntity tile);
 
+	/**
+	 * Matchers that can look their tiles up in the indexes of the network should, instead of
+	 * testing every inventory.
+	 *
+	 * @return Inventories of the network this matches
+	 */
+	default Stream<TileEntity> getMatches(CableNetwork network) {
+		return network.getInventories().stream().filter(this::matches);
+	}
+
 	List<ItemStack> getPreview(CableNetwork network);
 
 	List<? extends ITextProperties> getTooltip(List<? extends ITextProperties> normal);
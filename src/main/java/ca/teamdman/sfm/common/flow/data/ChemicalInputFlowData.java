@@ -0,0 +1,56 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package ca.teamdman.sfm.common.flow.data;
+
+import ca.teamdman.sfm.client.gui.flow.core.FlowComponent;
+import ca.teamdman.sfm.client.gui.flow.impl.manager.core.ManagerFlowController;
+import ca.teamdman.sfm.client.gui.flow.impl.manager.flowdataholder.ResourceFlowButton;
+import ca.teamdman.sfm.client.gui.flow.impl.manager.flowdataholder.ResourceKind;
+import ca.teamdman.sfm.client.gui.flow.impl.util.ButtonLabel;
+import ca.teamdman.sfm.common.flow.core.Position;
+import ca.teamdman.sfm.common.registrar.FlowDataSerializerRegistrar.FlowDataSerializers;
+import ca.teamdman.sfm.common.tile.manager.ExecutionStep;
+import java.util.UUID;
+
+/**
+ * Adds the Mekanism chemical tanks selected by its rule to the chemical inputs of the steps that
+ * follow, see {@link ChemicalOutputFlowData}.
+ */
+public class ChemicalInputFlowData extends RuleNodeFlowData {
+
+	public ChemicalInputFlowData(UUID uuid, Position position, UUID tileEntityRule) {
+		super(uuid, position, tileEntityRule);
+	}
+
+	@Override
+	protected ChemicalInputFlowData create(UUID uuid, Position position, UUID tileEntityRule) {
+		return new ChemicalInputFlowData(uuid, position, tileEntityRule);
+	}
+
+	@Override
+	public void execute(ExecutionStep step) {
+		step.PLAN.getRule(tileEntityRule, ItemMovementRuleFlowData.class)
+			.ifPresent(step.CHEMICAL_INPUTS::add);
+	}
+
+	@Override
+	public FlowComponent createController(
+		ManagerFlowController controller,
+		ItemMovementRuleFlowData ruleData
+	) {
+		return new ResourceFlowButton<>(
+			controller,
+			this,
+			ruleData,
+			ChemicalInputFlowData.class,
+			ResourceKind.CHEMICAL,
+			ButtonLabel.INPUT
+		);
+	}
+
+	@Override
+	public FlowDataSerializer<ChemicalInputFlowData> getSerializer() {
+		return FlowDataSerializers.CHEMICAL_INPUT;
+	}
+}
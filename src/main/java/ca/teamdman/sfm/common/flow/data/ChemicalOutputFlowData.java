@@ -0,0 +1,65 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package ca.teamdman.sfm.common.flow.data;
+
+import ca.teamdman.sfm.client.gui.flow.core.FlowComponent;
+import ca.teamdman.sfm.client.gui.flow.impl.manager.core.ManagerFlowController;
+import ca.teamdman.sfm.client.gui.flow.impl.manager.flowdataholder.ResourceFlowButton;
+import ca.teamdman.sfm.client.gui.flow.impl.manager.flowdataholder.ResourceKind;
+import ca.teamdman.sfm.client.gui.flow.impl.util.ButtonLabel;
+import ca.teamdman.sfm.common.cablenetwork.CableNetworkManager;
+import ca.teamdman.sfm.common.compat.MekanismCompat;
+import ca.teamdman.sfm.common.compat.mekanism.ChemicalTransfer;
+import ca.teamdman.sfm.common.flow.core.Position;
+import ca.teamdman.sfm.common.registrar.FlowDataSerializerRegistrar.FlowDataSerializers;
+import ca.teamdman.sfm.common.tile.manager.ExecutionStep;
+import java.util.UUID;
+
+/**
+ * Moves Mekanism gases and infuse types from the tanks of the chemical inputs hit so far into the
+ * tiles selected by its rule, see {@link ChemicalTransfer}. Only the tiles, faces and slots of the
+ * rules are used, item matchers don't apply to chemicals.
+ */
+public class ChemicalOutputFlowData extends RuleNodeFlowData {
+
+	public ChemicalOutputFlowData(UUID uuid, Position position, UUID tileEntityRule) {
+		super(uuid, position, tileEntityRule);
+	}
+
+	@Override
+	protected ChemicalOutputFlowData create(UUID uuid, Position position, UUID tileEntityRule) {
+		return new ChemicalOutputFlowData(uuid, position, tileEntityRule);
+	}
+
+	@Override
+	public void execute(ExecutionStep step) {
+		// kept in programs without Mekanism, but does nothing
+		if (!MekanismCompat.isLoaded()) {
+			return;
+		}
+		CableNetworkManager.getOrRegisterNetwork(step.TILE).ifPresent(network ->
+			step.PLAN.getRule(tileEntityRule, ItemMovementRuleFlowData.class)
+				.ifPresent(rule -> ChemicalTransfer.move(step, network, rule)));
+	}
+
+	@Override
+	public FlowComponent createController(
+		ManagerFlowController controller,
+		ItemMovementRuleFlowData ruleData
+	) {
+		return new ResourceFlowButton<>(
+			controller,
+			this,
+			ruleData,
+			ChemicalOutputFlowData.class,
+			ResourceKind.CHEMICAL,
+			ButtonLabel.OUTPUT
+		);
+	}
+
+	@Override
+	public FlowDataSerializer<ChemicalOutputFlowData> getSerializer() {
+		return FlowDataSerializers.CHEMICAL_OUTPUT;
+	}
+}
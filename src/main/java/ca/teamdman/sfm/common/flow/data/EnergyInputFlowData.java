@@ -0,0 +1,56 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package ca.teamdman.sfm.common.flow.data;
+
+import ca.teamdman.sfm.client.gui.flow.core.FlowComponent;
+import ca.teamdman.sfm.client.gui.flow.impl.manager.core.ManagerFlowController;
+import ca.teamdman.sfm.client.gui.flow.impl.manager.flowdataholder.ResourceFlowButton;
+import ca.teamdman.sfm.client.gui.flow.impl.manager.flowdataholder.ResourceKind;
+import ca.teamdman.sfm.client.gui.flow.impl.util.ButtonLabel;
+import ca.teamdman.sfm.common.flow.core.Position;
+import ca.teamdman.sfm.common.registrar.FlowDataSerializerRegistrar.FlowDataSerializers;
+import ca.teamdman.sfm.common.tile.manager.ExecutionStep;
+import java.util.UUID;
+
+/**
+ * Adds the energy storages selected by its rule to the energy inputs of the steps that follow,
+ * see {@link EnergyOutputFlowData}.
+ */
+public class EnergyInputFlowData extends RuleNodeFlowData {
+
+	public EnergyInputFlowData(UUID uuid, Position position, UUID tileEntityRule) {
+		super(uuid, position, tileEntityRule);
+	}
+
+	@Override
+	protected EnergyInputFlowData create(UUID uuid, Position position, UUID tileEntityRule) {
+		return new EnergyInputFlowData(uuid, position, tileEntityRule);
+	}
+
+	@Override
+	public void execute(ExecutionStep step) {
+		step.PLAN.getRule(tileEntityRule, ItemMovementRuleFlowData.class)
+			.ifPresent(step.ENERGY_INPUTS::add);
+	}
+
+	@Override
+	public FlowComponent createController(
+		ManagerFlowController controller,
+		ItemMovementRuleFlowData ruleData
+	) {
+		return new ResourceFlowButton<>(
+			controller,
+			this,
+			ruleData,
+			EnergyInputFlowData.class,
+			ResourceKind.ENERGY,
+			ButtonLabel.INPUT
+		);
+	}
+
+	@Override
+	public FlowDataSerializer<EnergyInputFlowData> getSerializer() {
+		return FlowDataSerializers.ENERGY_INPUT;
+	}
+}
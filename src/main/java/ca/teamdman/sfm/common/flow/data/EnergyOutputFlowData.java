@@ -0,0 +1,152 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package ca.teamdman.sfm.common.flow.data;
+
+import ca.teamdman.sfm.client.gui.flow.core.FlowComponent;
+import ca.teamdman.sfm.client.gui.flow.impl.manager.core.ManagerFlowController;
+import ca.teamdman.sfm.client.gui.flow.impl.manager.flowdataholder.ResourceFlowButton;
+import ca.teamdman.sfm.client.gui.flow.impl.manager.flowdataholder.ResourceKind;
+import ca.teamdman.sfm.client.gui.flow.impl.util.ButtonLabel;
+import ca.teamdman.sfm.common.cablenetwork.CableNetwork;
+import ca.teamdman.sfm.common.cablenetwork.CableNetworkManager;
+import ca.teamdman.sfm.common.flow.core.Position;
+import ca.teamdman.sfm.common.registrar.FlowDataSerializerRegistrar.FlowDataSerializers;
+import ca.teamdman.sfm.common.tile.manager.CompiledRule;
+import ca.teamdman.sfm.common.tile.manager.EnergyAllowance;
+import ca.teamdman.sfm.common.tile.manager.ExecutionProfiler.Counters;
+import ca.teamdman.sfm.common.tile.manager.ExecutionStep;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import net.minecraftforge.energy.IEnergyStorage;
+
+/**
+ * Moves Forge Energy from the storages of the energy inputs hit so far into the storages
+ * selected by its rule. Only the tiles and faces of the rules are used, item matchers don't
+ * apply to energy.
+ * <p>
+ * The amount to move is worked out once from the stored and free energy of both sides, capped
+ * by what the manager may still move this tick, and then moved with one call per storage.
+ */
+public class EnergyOutputFlowData extends RuleNodeFlowData {
+
+	public EnergyOutputFlowData(UUID uuid, Position position, UUID tileEntityRule) {
+		super(uuid, position, tileEntityRule);
+	}
+
+	@Override
+	protected EnergyOutputFlowData create(UUID uuid, Position position, UUID tileEntityRule) {
+		return new EnergyOutputFlowData(uuid, position, tileEntityRule);
+	}
+
+	@Override
+	public void execute(ExecutionStep step) {
+		CableNetworkManager.getOrRegisterNetwork(step.TILE).ifPresent(network ->
+			step.PLAN.getRule(tileEntityRule, ItemMovementRuleFlowData.class)
+				.ifPresent(rule -> moveEnergy(step, network, rule)));
+	}
+
+	/**
+	 * Moves as much energy as the sinks accept, the sources give and the manager is still allowed
+	 * to move this tick. Each storage is asked once how much it would move, then energy is only
+	 * taken for what the sinks said they would accept.
+	 */
+	private void moveEnergy(
+		ExecutionStep step,
+		CableNetwork network,
+		CompiledRule<ItemMovementRuleFlowData> compiledOutRule
+	) {
+		List<IEnergyStorage> sinks = compiledOutRule.RULE
+			.getEnergyStorages(compiledOutRule.TILE_MATCHERS, network)
+			.stream()
+			.filter(IEnergyStorage::canReceive)
+			.collect(Collectors.toList());
+		List<IEnergyStorage> sources = step.ENERGY_INPUTS.stream()
+			.flatMap(in -> in.RULE.getEnergyStorages(in.TILE_MATCHERS, network).stream())
+			.filter(IEnergyStorage::canExtract)
+			.filter(source -> !sinks.contains(source))
+			.distinct()
+			.collect(Collectors.toList());
+		if (sources.isEmpty() || sinks.isEmpty()) {
+			return;
+		}
+		Counters counters = step.getCounters();
+		step.getBudget().consume(sources.size() + sinks.size());
+
+		// work out how much to move, the stored amounts don't account for transfer rates
+		long supply = 0;
+		for (IEnergyStorage source : sources) {
+			counters.extractCalls++;
+			supply += source.extractEnergy(Integer.MAX_VALUE, true);
+		}
+		int[] accepted = new int[sinks.size()];
+		long demand = 0;
+		for (int i = 0; i < sinks.size(); i++) {
+			counters.insertCalls++;
+			accepted[i] = sinks.get(i).receiveEnergy(Integer.MAX_VALUE, true);
+			demand += accepted[i];
+		}
+		EnergyAllowance allowance = step.TILE.getEnergyAllowance();
+		int target = (int) Math.min(
+			allowance.getRemaining(step.TILE.getWorld().getGameTime()),
+			Math.min(supply, demand)
+		);
+		if (target <= 0) {
+			return;
+		}
+
+		// take it from the sources in order
+		int taken = 0;
+		for (IEnergyStorage source : sources) {
+			if (taken >= target) {
+				break;
+			}
+			counters.extractCalls++;
+			taken += source.extractEnergy(target - taken, false);
+		}
+
+		// hand it out to the sinks in order, each no more than it accepted
+		int given = 0;
+		for (int i = 0; i < sinks.size() && given < taken; i++) {
+			if (accepted[i] <= 0) {
+				continue;
+			}
+			counters.insertCalls++;
+			given += sinks.get(i).receiveEnergy(Math.min(accepted[i], taken - given), false);
+		}
+
+		// only left over if a sink took less than it accepted a moment ago, give the rest back
+		// sources that can't receive lose it, nothing else could hold it
+		int left = taken - given;
+		for (IEnergyStorage source : sources) {
+			if (left <= 0) {
+				break;
+			}
+			counters.insertCalls++;
+			left -= source.receiveEnergy(left, false);
+		}
+		allowance.use(given);
+		counters.itemsMoved += given;
+	}
+
+	@Override
+	public FlowComponent createController(
+		ManagerFlowController controller,
+		ItemMovementRuleFlowData ruleData
+	) {
+		return new ResourceFlowButton<>(
+			controller,
+			this,
+			ruleData,
+			EnergyOutputFlowData.class,
+			ResourceKind.ENERGY,
+			ButtonLabel.OUTPUT
+		);
+	}
+
+	@Override
+	public FlowDataSerializer<EnergyOutputFlowData> getSerializer() {
+		return FlowDataSerializers.ENERGY_OUTPUT;
+	}
+}
@@ -66,7 +66,18 @@ public abstract class FlowData {
 			.map(rel -> rel.to)
 			.map(container::get)
 			.filter(Optional::isPresent)
-			.map(Optional::get);
+			.map(Optional::get)
+			.filter(this::canContinueTo);
+	}
+
+	/**
+	 * Decides which relationships are followed once this node has executed.
+	 *
+	 * @param next Node on the other end of a relationship from this node
+	 * @return {@code true} if execution should continue to {@code next}
+	 */
+	public boolean canContinueTo(FlowData next) {
+		return true;
 	}
 
 	@Override
@@ -0,0 +1,284 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package ca.teamdman.sfm.common.flow.data;
+
+import ca.teamdman.sfm.client.gui.flow.core.FlowComponent;
+import ca.teamdman.sfm.client.gui.flow.impl.manager.core.ManagerFlowController;
+import ca.teamdman.sfm.client.gui.flow.impl.manager.flowdataholder.FluidConditionFlowButton;
+import ca.teamdman.sfm.client.gui.flow.impl.util.ButtonBackground;
+import ca.teamdman.sfm.common.cablenetwork.CableNetwork;
+import ca.teamdman.sfm.common.cablenetwork.CableNetworkManager;
+import ca.teamdman.sfm.common.flow.core.ItemMatcher;
+import ca.teamdman.sfm.common.flow.core.Position;
+import ca.teamdman.sfm.common.flow.core.PositionHolder;
+import ca.teamdman.sfm.common.flow.data.ItemConditionRuleFlowData.ItemMode;
+import ca.teamdman.sfm.common.flow.data.ItemConditionRuleFlowData.Result;
+import ca.teamdman.sfm.common.flow.data.ItemConditionRuleFlowData.TileMode;
+import ca.teamdman.sfm.common.flow.holder.BasicFlowDataContainer;
+import ca.teamdman.sfm.common.flow.holder.FlowDataRemovedObserver;
+import ca.teamdman.sfm.common.registrar.FlowDataSerializerRegistrar.FlowDataSerializers;
+import ca.teamdman.sfm.common.tile.manager.CompiledRule;
+import ca.teamdman.sfm.common.tile.manager.ExecutionProfiler.Counters;
+import ca.teamdman.sfm.common.tile.manager.ExecutionStep;
+import ca.teamdman.sfm.common.util.SFMUtil;
+import com.google.common.collect.ImmutableSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import net.minecraft.nbt.CompoundNBT;
+import net.minecraft.network.PacketBuffer;
+import net.minecraft.util.ResourceLocation;
+import net.minecraftforge.fluids.FluidStack;
+import net.minecraftforge.fluids.capability.IFluidHandler;
+
+/**
+ * Condition on the fluids in the tanks selected by its rule. Fluids are matched by the item
+ * matchers of the rule, a picked bucket or tank stands for the fluid it holds.
+ */
+public class FluidConditionFlowData extends FlowData implements Observer, PositionHolder {
+
+	private final FlowDataRemovedObserver OBSERVER;
+	public Position position;
+	public UUID rule;
+	private transient Result result;
+
+	public FluidConditionFlowData(FluidConditionFlowData other) {
+		this(
+			UUID.randomUUID(),
+			other.position.copy(),
+			other.rule
+		);
+	}
+
+	public FluidConditionFlowData(UUID uuid, Position position, UUID rule) {
+		super(uuid);
+		this.position = position;
+		this.rule = rule;
+		OBSERVER = new FlowDataRemovedObserver(
+			this,
+			data -> data.getId().equals(rule),
+			c -> c.remove(getId()) // remove this if rule gets deleted
+		);
+	}
+
+	@Override
+	public void addToDataContainer(BasicFlowDataContainer container) {
+		super.addToDataContainer(container);
+		container.addObserver(this);
+	}
+
+	@Override
+	public void removeFromDataContainer(BasicFlowDataContainer container) {
+		super.removeFromDataContainer(container);
+		container.get(rule)
+			.ifPresent(data -> data.removeFromDataContainer(container));
+	}
+
+	@Override
+	public void execute(ExecutionStep step) {
+		Optional<CableNetwork> net = CableNetworkManager
+			.getOrRegisterNetwork(step.TILE);
+		if (!net.isPresent()) {
+			return;
+		}
+		Optional<CompiledRule<ItemConditionRuleFlowData>> rule = step.PLAN
+			.getRule(this.rule, ItemConditionRuleFlowData.class);
+		if (!rule.isPresent()) {
+			return;
+		}
+
+		// set result to be used when branching later in {@code canContinueTo}
+		// inventory stamps only cover items, so tanks are always checked again
+		result = isSatisfied(step, net.get(), rule.get());
+	}
+
+	@Override
+	public FluidConditionFlowData duplicate(
+		BasicFlowDataContainer container, Consumer<FlowData> dependencyTracker
+	) {
+		FluidConditionFlowData dupe = new FluidConditionFlowData(this);
+		container.get(dupe.rule, ItemConditionRuleFlowData.class)
+			.ifPresent(data -> {
+				FlowData newRule = data.duplicate(container, dependencyTracker);
+				dependencyTracker.accept(newRule);
+				dupe.rule = newRule.getId();
+			});
+
+		// create line nodes and their relationships
+		ConditionLineNodeFlowData acceptedNode = new ConditionLineNodeFlowData(
+			Result.ACCEPTED);
+		dependencyTracker.accept(acceptedNode);
+		ConditionLineNodeFlowData rejectedNode = new ConditionLineNodeFlowData(
+			Result.REJECTED);
+		dependencyTracker.accept(rejectedNode);
+		RelationshipFlowData acceptedRel = new RelationshipFlowData(
+			dupe.getId(), acceptedNode.getId());
+		dependencyTracker.accept(acceptedRel);
+		RelationshipFlowData rejectedRel = new RelationshipFlowData(
+			dupe.getId(), rejectedNode.getId());
+		dependencyTracker.accept(rejectedRel);
+
+		// ugly hack to initialize node positions to an offset of parent position
+		dupe.position = new Position() {
+			@Override
+			public void setXY(int x, int y) {
+				super.setXY(x, y);
+				acceptedNode.position.setXY(dupe.getPosition()
+					.withOffset(-ButtonBackground.LINE_NODE.WIDTH, ButtonBackground.NORMAL.HEIGHT));
+				rejectedNode.position.setXY(dupe.getPosition()
+					.withOffset(ButtonBackground.NORMAL.WIDTH, ButtonBackground.NORMAL.HEIGHT));
+			}
+		};
+		return dupe;
+	}
+
+	@Override
+	public boolean isValidRelationshipTarget() {
+		return true;
+	}
+
+	@Override
+	public boolean canContinueTo(FlowData next) {
+		return next instanceof ConditionLineNodeFlowData
+			&& ((ConditionLineNodeFlowData) next).responsibility == result;
+	}
+
+	@Override
+	public FlowComponent createController(
+		FlowComponent parent
+	) {
+		if (parent instanceof ManagerFlowController) {
+			return new FluidConditionFlowButton(
+				(ManagerFlowController) parent,
+				this,
+				((ManagerFlowController) parent).SCREEN.getFlowDataContainer()
+					.get(rule, ItemConditionRuleFlowData.class)
+					.orElseGet(ItemConditionRuleFlowData::new)
+			);
+		}
+		return null;
+	}
+
+	@Override
+	public Set<Class<?>> getDependencies() {
+		return ImmutableSet.of(ItemConditionRuleFlowData.class);
+	}
+
+	@Override
+	public FlowDataSerializer<FluidConditionFlowData> getSerializer() {
+		return FlowDataSerializers.FLUID_CONDITION;
+	}
+
+	@Override
+	public Position getPosition() {
+		return position;
+	}
+
+	private Result isSatisfied(
+		ExecutionStep step,
+		CableNetwork network,
+		CompiledRule<ItemConditionRuleFlowData> compiledRule
+	) {
+		ItemConditionRuleFlowData rule = compiledRule.RULE;
+		List<ItemMatcher> itemMatchers = compiledRule.ITEM_MATCHERS;
+
+		List<IFluidHandler> handlers = rule
+			.getFluidHandlers(compiledRule.TILE_MATCHERS, network);
+		Counters counters = step.getCounters();
+
+		if (itemMatchers.size() == 0 || handlers.size() == 0) {
+			return Result.ACCEPTED;
+		}
+
+		// for each tank holder
+		for (IFluidHandler handler : handlers) {
+			// track remaining item matchers
+			Set<ItemMatcher> unsatisfied = new HashSet<>(itemMatchers);
+			// for each tank permitted by the slots of the rule
+			for (int tank : rule.slots.getSlots(handler.getTanks()).toArray()) {
+				// get fluid in tank
+				counters.slotVisits++;
+				FluidStack fluid = handler.getFluidInTank(tank);
+				// skip empty tanks
+				if (fluid.isEmpty()) {
+					continue;
+				}
+				// check if satisfied any matchers
+				boolean satisfiedAny = unsatisfied.removeIf(matcher -> matcher.matchesFluid(fluid));
+				// if satisfied item-any, stop iterating slots
+				if (satisfiedAny && rule.itemMode == ItemMode.MATCH_ANY) {
+					break;
+				}
+				// if satisfied item-all, stop iterating slots
+				if (unsatisfied.size() == 0) {
+					break;
+				}
+				// if satisfied item-any and tile-any, short circuit
+				if (rule.tileMode == TileMode.MATCH_ANY && satisfiedAny) {
+					return Result.ACCEPTED;
+				}
+			}
+			// if failed to satisfy item-any, reject
+			if (unsatisfied.size() == itemMatchers.size() && rule.itemMode == ItemMode.MATCH_ANY) {
+				return Result.REJECTED;
+			}
+			// if failed to satisfy item-all, reject
+			if (rule.itemMode == ItemMode.MATCH_ALL && unsatisfied.size() > 0) {
+				return Result.REJECTED;
+			}
+		}
+		// never rejected, so should be acceptable
+		return Result.ACCEPTED;
+	}
+
+	@Override
+	public void update(Observable o, Object arg) {
+		OBSERVER.update(o, arg);
+	}
+
+	public static class Serializer extends FlowDataSerializer<FluidConditionFlowData> {
+
+		public Serializer(ResourceLocation key) {
+			super(key);
+		}
+
+		@Override
+		public FluidConditionFlowData fromNBT(CompoundNBT tag) {
+			return new FluidConditionFlowData(
+				getUUID(tag),
+				new Position(tag.getCompound("pos")),
+				UUID.fromString(tag.getString("tileEntityRule"))
+			);
+		}
+
+		@Override
+		public CompoundNBT toNBT(FluidConditionFlowData data) {
+			CompoundNBT tag = super.toNBT(data);
+			tag.put("pos", data.position.serializeNBT());
+			tag.putString("tileEntityRule", data.rule.toString());
+			return tag;
+		}
+
+		@Override
+		public FluidConditionFlowData fromBuffer(PacketBuffer buf) {
+			return new FluidConditionFlowData(
+				SFMUtil.readUUID(buf),
+				Position.fromLong(buf.readLong()),
+				SFMUtil.readUUID(buf)
+			);
+		}
+
+		@Override
+		public void toBuffer(FluidConditionFlowData data, PacketBuffer buf) {
+			SFMUtil.writeUUID(data.getId(), buf);
+			buf.writeLong(data.position.toLong());
+			SFMUtil.writeUUID(data.rule, buf);
+		}
+	}
+}
@@ -0,0 +1,207 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package ca.teamdman.sfm.common.flow.data;
+
+import ca.teamdman.sfm.client.gui.flow.core.FlowComponent;
+import ca.teamdman.sfm.client.gui.flow.impl.manager.core.ManagerFlowController;
+import ca.teamdman.sfm.client.gui.flow.impl.manager.flowdataholder.ResourceFlowButton;
+import ca.teamdman.sfm.client.gui.flow.impl.manager.flowdataholder.ResourceKind;
+import ca.teamdman.sfm.client.gui.flow.impl.util.ButtonLabel;
+import ca.teamdman.sfm.common.cablenetwork.CableNetwork;
+import ca.teamdman.sfm.common.cablenetwork.CableNetworkManager;
+import ca.teamdman.sfm.common.flow.core.Position;
+import ca.teamdman.sfm.common.registrar.FlowDataSerializerRegistrar.FlowDataSerializers;
+import ca.teamdman.sfm.common.tile.manager.CompiledRule;
+import ca.teamdman.sfm.common.tile.manager.ExecutionBudget;
+import ca.teamdman.sfm.common.tile.manager.ExecutionProfiler.Counters;
+import ca.teamdman.sfm.common.tile.manager.ExecutionStep;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import net.minecraftforge.fluids.FluidStack;
+import net.minecraftforge.fluids.capability.IFluidHandler;
+import net.minecraftforge.fluids.capability.IFluidHandler.FluidAction;
+
+/**
+ * Moves fluid from the tanks of the fluid inputs hit so far into the tanks selected by its rule.
+ * <p>
+ * Each pair of tank holders is handled with a single drain and fill per fluid, moving as much
+ * as the quotas allow at once. Fluids are matched by the item matchers of the rules, a picked
+ * bucket or tank stands for the fluid it holds, and matcher quantities are read as millibuckets.
+ */
+public class FluidOutputFlowData extends RuleNodeFlowData {
+
+	public FluidOutputFlowData(UUID uuid, Position position, UUID tileEntityRule) {
+		super(uuid, position, tileEntityRule);
+	}
+
+	@Override
+	protected FluidOutputFlowData create(UUID uuid, Position position, UUID tileEntityRule) {
+		return new FluidOutputFlowData(uuid, position, tileEntityRule);
+	}
+
+	@Override
+	public void execute(ExecutionStep step) {
+		CableNetworkManager.getOrRegisterNetwork(step.TILE).ifPresent(network ->
+			step.PLAN.getRule(tileEntityRule, ItemMovementRuleFlowData.class)
+				.ifPresent(rule -> moveFluids(step, network, rule)));
+	}
+
+	/**
+	 * Moves fluid from every input tank holder to every output tank holder.
+	 */
+	private void moveFluids(
+		ExecutionStep step,
+		CableNetwork network,
+		CompiledRule<ItemMovementRuleFlowData> compiledOutRule
+	) {
+		ItemMovementRuleFlowData outRule = compiledOutRule.RULE;
+		List<IFluidHandler> outHandlers = outRule
+			.getFluidHandlers(compiledOutRule.TILE_MATCHERS, network);
+		if (outHandlers.isEmpty()) {
+			return;
+		}
+
+		// pick up where the previous tick ran out of budget, if it did
+		FluidCursor cursor = step.resume(FluidCursor.class).orElse(FluidCursor.START);
+		ExecutionBudget budget = step.getBudget();
+		Counters counters = step.getCounters();
+		boolean visitedAny = false;
+
+		// the inputs don't change while this node is suspended, so indices stay valid
+		List<CompiledRule<ItemMovementRuleFlowData>> inputs = new ArrayList<>(step.FLUID_INPUTS);
+		for (int inputIndex = cursor.INPUT; inputIndex < inputs.size(); inputIndex++) {
+			CompiledRule<ItemMovementRuleFlowData> compiledInRule = inputs.get(inputIndex);
+			ItemMovementRuleFlowData inRule = compiledInRule.RULE;
+			List<IFluidHandler> inHandlers = inRule
+				.getFluidHandlers(compiledInRule.TILE_MATCHERS, network);
+
+			int firstHandler = inputIndex == cursor.INPUT ? cursor.HANDLER : 0;
+			for (int handlerIndex = firstHandler; handlerIndex < inHandlers.size(); handlerIndex++) {
+				// nothing more is allowed to move
+				if (step.STATE.isExhausted(compiledInRule)
+					|| step.STATE.isExhausted(compiledOutRule)) {
+					break;
+				}
+
+				// stop between tank holders once out of budget, the rest happens next tick
+				if (visitedAny && budget.isExhausted()) {
+					step.suspend(new FluidCursor(inputIndex, handlerIndex));
+					return;
+				}
+				visitedAny = true;
+
+				IFluidHandler inHandler = inHandlers.get(handlerIndex);
+				for (int tank : inRule.slots.getSlots(inHandler.getTanks()).toArray()) {
+					budget.consume(1);
+					counters.slotVisits++;
+
+					// copied, some tanks hand out the stack they hold
+					FluidStack fluid = inHandler.getFluidInTank(tank).copy();
+					if (fluid.isEmpty()) {
+						continue;
+					}
+
+					int inMatcher = inRule.getBestFluidMatcher(compiledInRule, fluid, step.STATE);
+					int outMatcher = outRule.getBestFluidMatcher(compiledOutRule, fluid, step.STATE);
+					int remaining = Math.min(
+						fluid.getAmount(),
+						Math.min(
+							step.STATE.getRemainingQuantity(inRule, inMatcher),
+							step.STATE.getRemainingQuantity(outRule, outMatcher)
+						)
+					);
+
+					for (IFluidHandler outHandler : outHandlers) {
+						if (remaining <= 0) {
+							break;
+						}
+						if (outHandler == inHandler) {
+							continue;
+						}
+						budget.consume(1);
+						int moved = transfer(inHandler, outHandler, fluid, remaining, counters);
+						remaining -= moved;
+						step.STATE.recordUsage(inMatcher, moved);
+						step.STATE.recordUsage(outMatcher, moved);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Moves up to the given amount of a fluid in one drain and one fill, after checking how much
+	 * of it both sides accept.
+	 *
+	 * @return Millibuckets moved
+	 */
+	private static int transfer(
+		IFluidHandler from,
+		IFluidHandler to,
+		FluidStack fluid,
+		int amount,
+		Counters counters
+	) {
+		counters.extractCalls++;
+		FluidStack drainable = from.drain(new FluidStack(fluid, amount), FluidAction.SIMULATE);
+		if (drainable.isEmpty()) {
+			return 0;
+		}
+		counters.insertCalls++;
+		int fillable = to.fill(drainable, FluidAction.SIMULATE);
+		if (fillable <= 0) {
+			return 0;
+		}
+
+		counters.extractCalls++;
+		FluidStack drained = from.drain(new FluidStack(fluid, fillable), FluidAction.EXECUTE);
+		if (drained.isEmpty()) {
+			return 0;
+		}
+		counters.insertCalls++;
+		int filled = to.fill(drained, FluidAction.EXECUTE);
+		if (filled < drained.getAmount()) {
+			// the destination took less than it accepted a moment ago, give the rest back
+			counters.insertCalls++;
+			from.fill(new FluidStack(drained, drained.getAmount() - filled), FluidAction.EXECUTE);
+		}
+		counters.itemsMoved += filled;
+		return filled;
+	}
+
+	/**
+	 * Position in the input tank holders at which a suspended transfer resumes
+	 */
+	private static class FluidCursor {
+
+		public static final FluidCursor START = new FluidCursor(0, 0);
+		public final int INPUT, HANDLER;
+
+		public FluidCursor(int input, int handler) {
+			this.INPUT = input;
+			this.HANDLER = handler;
+		}
+	}
+
+	@Override
+	public FlowComponent createController(
+		ManagerFlowController controller,
+		ItemMovementRuleFlowData ruleData
+	) {
+		return new ResourceFlowButton<>(
+			controller,
+			this,
+			ruleData,
+			FluidOutputFlowData.class,
+			ResourceKind.FLUID,
+			ButtonLabel.OUTPUT
+		);
+	}
+
+	@Override
+	public FlowDataSerializer<FluidOutputFlowData> getSerializer() {
+		return FlowDataSerializers.FLUID_OUTPUT;
+	}
+}
@@ -0,0 +1,161 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package ca.teamdman.sfm.common.flow.data;
+
+import ca.teamdman.sfm.client.gui.flow.core.FlowComponent;
+import ca.teamdman.sfm.client.gui.flow.impl.manager.core.ManagerFlowController;
+import ca.teamdman.sfm.client.gui.flow.impl.manager.flowdataholder.InventoryChangeTriggerFlowButton;
+import ca.teamdman.sfm.common.flow.core.Position;
+import ca.teamdman.sfm.common.flow.core.PositionHolder;
+import ca.teamdman.sfm.common.flow.holder.BasicFlowDataContainer;
+import ca.teamdman.sfm.common.flow.holder.FlowDataRemovedObserver;
+import ca.teamdman.sfm.common.registrar.FlowDataSerializerRegistrar.FlowDataSerializers;
+import ca.teamdman.sfm.common.util.SFMUtil;
+import com.google.common.collect.ImmutableSet;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import net.minecraft.nbt.CompoundNBT;
+import net.minecraft.network.PacketBuffer;
+import net.minecraft.util.ResourceLocation;
+
+/**
+ * Trigger that fires when the contents of an inventory selected by its rule change, instead of
+ * on an interval. See {@link ca.teamdman.sfm.common.tile.manager.ManagerScheduler}.
+ */
+public class InventoryChangeTriggerFlowData extends FlowData implements Observer,
+	PositionHolder {
+
+	private final FlowDataRemovedObserver OBSERVER;
+	public Position position;
+	public UUID tileEntityRule;
+
+	public InventoryChangeTriggerFlowData(InventoryChangeTriggerFlowData other) {
+		this(
+			UUID.randomUUID(),
+			other.position.copy(),
+			other.tileEntityRule
+		);
+	}
+
+	public InventoryChangeTriggerFlowData(UUID uuid, Position position, UUID tileEntityRule) {
+		super(uuid);
+		this.position = position;
+		this.tileEntityRule = tileEntityRule;
+		OBSERVER = new FlowDataRemovedObserver(
+			this,
+			data -> data.getId().equals(tileEntityRule),
+			c -> c.remove(getId()) // remove this if rule gets deleted
+		);
+	}
+
+	@Override
+	public void addToDataContainer(BasicFlowDataContainer container) {
+		super.addToDataContainer(container);
+		container.addObserver(this);
+	}
+
+	@Override
+	public void removeFromDataContainer(BasicFlowDataContainer container) {
+		super.removeFromDataContainer(container);
+		container.get(tileEntityRule)
+			.ifPresent(data -> data.removeFromDataContainer(container));
+	}
+
+	@Override
+	public InventoryChangeTriggerFlowData duplicate(
+		BasicFlowDataContainer container, Consumer<FlowData> dependencyTracker
+	) {
+		InventoryChangeTriggerFlowData newTrigger = new InventoryChangeTriggerFlowData(this);
+		container.get(newTrigger.tileEntityRule, ItemMovementRuleFlowData.class).ifPresent(data -> {
+			FlowData newData = data.duplicate(container, dependencyTracker);
+			dependencyTracker.accept(newData);
+			newTrigger.tileEntityRule = newData.getId();
+		});
+		return newTrigger;
+	}
+
+	@Override
+	public boolean isValidRelationshipTarget() {
+		return true;
+	}
+
+	@Override
+	public FlowComponent createController(
+		FlowComponent parent
+	) {
+		if (parent instanceof ManagerFlowController) {
+			return new InventoryChangeTriggerFlowButton(
+				(ManagerFlowController) parent,
+				this,
+				((ManagerFlowController) parent).SCREEN.getFlowDataContainer()
+					.get(tileEntityRule, ItemMovementRuleFlowData.class)
+					.orElseGet(ItemMovementRuleFlowData::new)
+			);
+		}
+		return null;
+	}
+
+	@Override
+	public Set<Class<?>> getDependencies() {
+		return ImmutableSet.of(ItemMovementRuleFlowData.class);
+	}
+
+	@Override
+	public FlowDataSerializer<InventoryChangeTriggerFlowData> getSerializer() {
+		return FlowDataSerializers.INVENTORY_CHANGE_TRIGGER;
+	}
+
+	@Override
+	public void update(Observable o, Object arg) {
+		OBSERVER.update(o, arg);
+	}
+
+	@Override
+	public Position getPosition() {
+		return position;
+	}
+
+	public static class Serializer extends FlowDataSerializer<InventoryChangeTriggerFlowData> {
+
+		public Serializer(ResourceLocation key) {
+			super(key);
+		}
+
+		@Override
+		public InventoryChangeTriggerFlowData fromNBT(CompoundNBT tag) {
+			return new InventoryChangeTriggerFlowData(
+				getUUID(tag),
+				new Position(tag.getCompound("pos")),
+				UUID.fromString(tag.getString("tileEntityRule"))
+			);
+		}
+
+		@Override
+		public CompoundNBT toNBT(InventoryChangeTriggerFlowData data) {
+			CompoundNBT tag = super.toNBT(data);
+			tag.put("pos", data.position.serializeNBT());
+			tag.putString("tileEntityRule", data.tileEntityRule.toString());
+			return tag;
+		}
+
+		@Override
+		public InventoryChangeTriggerFlowData fromBuffer(PacketBuffer buf) {
+			return new InventoryChangeTriggerFlowData(
+				SFMUtil.readUUID(buf),
+				Position.fromLong(buf.readLong()),
+				SFMUtil.readUUID(buf)
+			);
+		}
+
+		@Override
+		public void toBuffer(InventoryChangeTriggerFlowData data, PacketBuffer buf) {
+			SFMUtil.writeUUID(data.getId(), buf);
+			buf.writeLong(data.position.toLong());
+			SFMUtil.writeUUID(data.tileEntityRule, buf);
+		}
+	}
+}
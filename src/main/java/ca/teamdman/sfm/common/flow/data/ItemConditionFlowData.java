@@ -9,6 +9,7 @@ import ca.teamdman.sfm.client.gui.flow.impl.manager.flowdataholder.ItemCondition
 import ca.teamdman.sfm.client.gui.flow.impl.util.ButtonBackground;
 import ca.teamdman.sfm.common.cablenetwork.CableNetwork;
 import ca.teamdman.sfm.common.cablenetwork.CableNetworkManager;
+import ca.teamdman.sfm.common.config.Config;
 import ca.teamdman.sfm.common.flow.core.ItemMatcher;
 import ca.teamdman.sfm.common.flow.core.Position;
 import ca.teamdman.sfm.common.flow.core.PositionHolder;
@@ -18,7 +19,11 @@ import ca.teamdman.sfm.common.flow.data.ItemConditionRuleFlowData.TileMode;
 import ca.teamdman.sfm.common.flow.holder.BasicFlowDataContainer;
 import ca.teamdman.sfm.common.flow.holder.FlowDataRemovedObserver;
 import ca.teamdman.sfm.common.registrar.FlowDataSerializerRegistrar.FlowDataSerializers;
+import ca.teamdman.sfm.common.tile.manager.CompiledRule;
+import ca.teamdman.sfm.common.tile.manager.ExecutionProfiler.Counters;
 import ca.teamdman.sfm.common.tile.manager.ExecutionStep;
+import ca.teamdman.sfm.common.tile.manager.InventoryTracker;
+import ca.teamdman.sfm.common.tile.manager.OccupancyIndex;
 import ca.teamdman.sfm.common.util.SFMUtil;
 import com.google.common.collect.ImmutableSet;
 import java.util.HashSet;
@@ -26,11 +31,10 @@ import java.util.List;
 import java.util.Observable;
 import java.util.Observer;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.Set;
 import java.util.UUID;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.CompoundNBT;
 import net.minecraft.network.PacketBuffer;
@@ -78,20 +82,34 @@ public class ItemConditionFlowData extends FlowData implements Observer, Positio
 
 	@Override
 	public void execute(ExecutionStep step) {
-		BasicFlowDataContainer container = step.TILE.getFlowDataContainer();
 		Optional<CableNetwork> net = CableNetworkManager
 			.getOrRegisterNetwork(step.TILE);
 		if (!net.isPresent()) {
 			return;
 		}
-		Optional<ItemConditionRuleFlowData> rule = container
-			.get(this.rule, ItemConditionRuleFlowData.class);
+		Optional<CompiledRule<ItemConditionRuleFlowData>> rule = step.PLAN
+			.getRule(this.rule, ItemConditionRuleFlowData.class);
 		if (!rule.isPresent()) {
 			return;
 		}
 
-		// set result to be used when branching later in {@code getNextUsingRelationships}
-		result = isSatisfied(step, container, net.get(), rule.get());
+		// keep the previous result if the inventories haven't changed since it was worked out
+		InventoryTracker tracker = step.TILE.getInventoryTracker();
+		if (Config.Server.skipUnchangedInventories) {
+			OptionalLong signature = InventoryTracker.getVersion(
+				rule.get().RULE.getTiles(rule.get().TILE_MATCHERS, net.get())
+			);
+			if (signature.isPresent()) {
+				if (tracker.isUnchanged(step.PLAN, getId(), signature.getAsLong())) {
+					return;
+				}
+				tracker.begin(getId(), signature.getAsLong());
+			}
+		}
+
+		// set result to be used when branching later in {@code canContinueTo}
+		result = isSatisfied(step, net.get(), rule.get());
+		tracker.finish(getId());
 	}
 
 	@Override
@@ -140,11 +158,9 @@ public class ItemConditionFlowData extends FlowData implements Observer, Positio
 	}
 
 	@Override
-	public Stream<ConditionLineNodeFlowData> getNextUsingRelationships(BasicFlowDataContainer container) {
-		return super.getNextUsingRelationships(container)
-			.filter(ConditionLineNodeFlowData.class::isInstance)
-			.map(ConditionLineNodeFlowData.class::cast)
-			.filter(node -> node.responsibility == result);
+	public boolean canContinueTo(FlowData next) {
+		return next instanceof ConditionLineNodeFlowData
+			&& ((ConditionLineNodeFlowData) next).responsibility == result;
 	}
 
 	@Override
@@ -180,19 +196,18 @@ public class ItemConditionFlowData extends FlowData implements Observer, Positio
 
 	private Result isSatisfied(
 		ExecutionStep step,
-		BasicFlowDataContainer container,
 		CableNetwork network,
-		ItemConditionRuleFlowData rule
+		CompiledRule<ItemConditionRuleFlowData> compiledRule
 	) {
-		List<ItemMatcher> itemMatchers = rule.itemMatcherIds.stream()
-			.map(container::get)
-			.filter(Optional::isPresent)
-			.map(Optional::get)
-			.filter(ItemMatcher.class::isInstance)
-			.map(ItemMatcher.class::cast)
-			.collect(Collectors.toList());
+		ItemConditionRuleFlowData rule = compiledRule.RULE;
+		List<ItemMatcher> itemMatchers = compiledRule.ITEM_MATCHERS;
 
-		List<IItemHandler> handlers = rule.getItemHandlers(container, network);
+		List<IItemHandler> handlers = rule
+			.getItemHandlers(compiledRule.TILE_MATCHERS, network);
+		Counters counters = step.getCounters();
+		// shared with the other conditions and outputs of the manager this tick
+		OccupancyIndex reads = step.TILE.getOccupancyIndex();
+		long tick = step.TILE.getWorld().getGameTime();
 
 		if (itemMatchers.size() == 0 || handlers.size() == 0) {
 			return Result.ACCEPTED;
@@ -205,7 +220,8 @@ public class ItemConditionFlowData extends FlowData implements Observer, Positio
 			// for each slot in inv
 			for (int slot : rule.slots.getSlots(handler.getSlots()).toArray()) {
 				// get stack in slot
-				ItemStack stack = handler.getStackInSlot(slot);
+				counters.slotVisits++;
+				ItemStack stack = reads.getStack(handler, slot, tick);
 				// skip empty slots
 				if (stack.isEmpty()) {
 					continue;
@@ -22,7 +22,6 @@ import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.function.Consumer;
-import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.annotation.Nullable;
@@ -33,8 +32,8 @@ import net.minecraft.network.PacketBuffer;
 import net.minecraft.tileentity.TileEntity;
 import net.minecraft.util.Direction;
 import net.minecraft.util.ResourceLocation;
-import net.minecraftforge.common.util.LazyOptional;
-import net.minecraftforge.items.CapabilityItemHandler;
+import net.minecraftforge.fluids.capability.CapabilityFluidHandler;
+import net.minecraftforge.fluids.capability.IFluidHandler;
 import net.minecraftforge.items.IItemHandler;
 
 public class ItemConditionRuleFlowData extends FlowData implements PositionHolder,
@@ -120,31 +119,53 @@ public class ItemConditionRuleFlowData extends FlowData implements PositionHolde
 		BasicFlowDataContainer container,
 		CableNetwork network
 	) {
-		return this.getTiles(container, network)
-			.flatMap(tile -> faces.stream()
-				.map(face -> tile.getCapability(
-					CapabilityItemHandler.ITEM_HANDLER_CAPABILITY,
-					face
-				)))
-			.filter(LazyOptional::isPresent)
-			.map(LazyOptional::resolve)
-			.filter(Optional::isPresent)
-			.map(Optional::get)
-			.collect(Collectors.toList());
+		return getItemHandlers(getTileMatchers(container), network);
 	}
 
-	public Stream<TileEntity> getTiles(BasicFlowDataContainer container, CableNetwork network) {
-		List<TileMatcher> matchers = tileMatcherIds.stream()
+	/**
+	 * @param matchers Tile matchers already resolved for this rule
+	 */
+	public List<IItemHandler> getItemHandlers(
+		List<TileMatcher> matchers,
+		CableNetwork network
+	) {
+		return network.getItemHandlers(getTiles(matchers, network), faces);
+	}
+
+	/**
+	 * @param matchers Tile matchers already resolved for this rule
+	 */
+	public List<IFluidHandler> getFluidHandlers(
+		List<TileMatcher> matchers,
+		CableNetwork network
+	) {
+		return network.getCapabilities(
+			getTiles(matchers, network),
+			CapabilityFluidHandler.FLUID_HANDLER_CAPABILITY,
+			faces
+		);
+	}
+
+	public List<TileMatcher> getTileMatchers(BasicFlowDataContainer container) {
+		return tileMatcherIds.stream()
 			.map(id -> container.get(id, TileMatcher.class))
 			.filter(Optional::isPresent)
 			.map(Optional::get)
 			.collect(Collectors.toList());
+	}
 
-		Predicate<TileEntity> matches = tile -> matchers.stream()
-			.anyMatch(m -> m.matches(tile));
+	public Stream<TileEntity> getTiles(BasicFlowDataContainer container, CableNetwork network) {
+		return getTiles(getTileMatchers(container), network);
+	}
 
-		return network.getInventories().stream()
-			.filter(matches);
+	public Stream<TileEntity> getTiles(List<TileMatcher> matchers, CableNetwork network) {
+		if (matchers.size() == 1) {
+			return matchers.get(0).getMatches(network);
+		}
+		// a tile matched more than once is still only one tile
+		return matchers.stream()
+			.flatMap(matcher -> matcher.getMatches(network))
+			.distinct();
 	}
 
 	public ItemStack getIcon() {
@@ -39,8 +39,7 @@ public class ItemInputFlowData extends FlowData implements Observer, PositionHol
 
 	@Override
 	public void execute(ExecutionStep step) {
-		BasicFlowDataContainer container = step.TILE.getFlowDataContainer();
-		container.get(tileEntityRule, ItemMovementRuleFlowData.class)
+		step.PLAN.getRule(tileEntityRule, ItemMovementRuleFlowData.class)
 			.ifPresent(step.INPUTS::add);
 	}
 
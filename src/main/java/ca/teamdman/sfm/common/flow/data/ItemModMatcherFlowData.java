@@ -19,6 +19,7 @@ import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.CompoundNBT;
 import net.minecraft.network.PacketBuffer;
 import net.minecraft.util.ResourceLocation;
+import net.minecraftforge.fluids.FluidStack;
 
 public class ItemModMatcherFlowData extends FlowData implements ItemMatcher {
 
@@ -129,6 +130,12 @@ public class ItemModMatcherFlowData extends FlowData implements ItemMatcher {
 			&& (quantity == 0 || stack.getCount() >= quantity);
 	}
 
+	@Override
+	public boolean matchesFluid(@Nonnull FluidStack fluid) {
+		return fluid.getFluid().getRegistryName().getNamespace().equals(modId)
+			&& (quantity == 0 || fluid.getAmount() >= quantity);
+	}
+
 	@Override
 	public int getQuantity() {
 		return quantity == 0 ? Integer.MAX_VALUE : quantity;
@@ -16,6 +16,7 @@ import ca.teamdman.sfm.common.flow.core.TileMatcher;
 import ca.teamdman.sfm.common.flow.holder.BasicFlowDataContainer;
 import ca.teamdman.sfm.common.flow.holder.FlowDataRemovedObserver;
 import ca.teamdman.sfm.common.registrar.FlowDataSerializerRegistrar.FlowDataSerializers;
+import ca.teamdman.sfm.common.tile.manager.CompiledRule;
 import ca.teamdman.sfm.common.tile.manager.ExecutionState;
 import ca.teamdman.sfm.common.util.EnumSetSerializationHelper;
 import ca.teamdman.sfm.common.util.SFMUtil;
@@ -24,14 +25,12 @@ import ca.teamdman.sfm.common.util.UUIDList;
 import com.google.common.collect.ImmutableSet;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.function.Consumer;
-import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import net.minecraft.client.resources.I18n;
@@ -41,8 +40,11 @@ import net.minecraft.network.PacketBuffer;
 import net.minecraft.tileentity.TileEntity;
 import net.minecraft.util.Direction;
 import net.minecraft.util.ResourceLocation;
-import net.minecraftforge.common.util.LazyOptional;
-import net.minecraftforge.items.CapabilityItemHandler;
+import net.minecraftforge.energy.CapabilityEnergy;
+import net.minecraftforge.energy.IEnergyStorage;
+import net.minecraftforge.fluids.FluidStack;
+import net.minecraftforge.fluids.capability.CapabilityFluidHandler;
+import net.minecraftforge.fluids.capability.IFluidHandler;
 import net.minecraftforge.items.IItemHandler;
 
 public class ItemMovementRuleFlowData extends FlowData implements
@@ -59,6 +61,10 @@ public class ItemMovementRuleFlowData extends FlowData implements
 	public UUIDList tileMatcherIds;
 	public EnumSet<Direction> faces;
 	public SlotsRule slots;
+	/**
+	 * Outputs only, insert into each inventory of the rule in turn instead of filling the first
+	 */
+	public boolean roundRobin;
 	public boolean open;
 
 	public ItemMovementRuleFlowData() {
@@ -72,6 +78,7 @@ public class ItemMovementRuleFlowData extends FlowData implements
 			Collections.emptyList(),
 			EnumSet.allOf(Direction.class),
 			new SlotsRule(""),
+			false,
 			false
 		);
 	}
@@ -86,6 +93,7 @@ public class ItemMovementRuleFlowData extends FlowData implements
 		Collection<UUID> tileMatcherIds,
 		EnumSet<Direction> faces,
 		SlotsRule slots,
+		boolean roundRobin,
 		boolean open
 	) {
 		super(uuid);
@@ -96,6 +104,7 @@ public class ItemMovementRuleFlowData extends FlowData implements
 		this.itemMatcherIds = new UUIDList(itemMatcherIds);
 		this.faces = faces;
 		this.slots = slots;
+		this.roundRobin = roundRobin;
 		this.open = open;
 		this.DATA_REMOVED_OBSERVER = new FlowDataRemovedObserver(
 			this,
@@ -119,56 +128,131 @@ public class ItemMovementRuleFlowData extends FlowData implements
 			new UUIDList(other.tileMatcherIds),
 			EnumSet.copyOf(other.faces),
 			other.slots.copy(),
+			other.roundRobin,
 			other.open
 		);
 	}
 
 	/**
-	 * @return maximum amount allowed through according to this rule
+	 * Finds the matcher for the stack with the most quota remaining, without allocating.
+	 *
+	 * @param compiled This rule, compiled as part of the current execution plan
+	 * @return Plan id of the best matcher, -1 if none match
 	 */
-	public Optional<ItemMatcher> getBestItemMatcher(
-		BasicFlowDataContainer container,
+	public int getBestItemMatcher(
+		CompiledRule<ItemMovementRuleFlowData> compiled,
 		ItemStack stack,
 		ExecutionState state
 	) {
-		return itemMatcherIds.stream()
-			.map(id -> container.get(id, ItemMatcher.class))
-			.filter(Optional::isPresent)
-			.map(Optional::get)
-			.filter(m -> m.matches(stack))
-			.max(Comparator
-				.comparingInt(m -> state.getRemainingQuantity(this, m))); // Most remaining first
+		int best = -1;
+		int bestRemaining = -1;
+		// only the matchers that can match the item, a single lookup for item pickers
+		for (int i : compiled.getCandidateMatchers(stack)) {
+			if (compiled.ITEM_MATCHERS.get(i).matches(stack)) {
+				int id = compiled.ITEM_MATCHER_IDS[i];
+				int remaining = state.getRemainingQuantity(this, id);
+				if (remaining > bestRemaining) { // Most remaining first
+					best = id;
+					bestRemaining = remaining;
+				}
+			}
+		}
+		return best;
 	}
 
-	public List<IItemHandler> getItemHandlers(
-		BasicFlowDataContainer container,
-		CableNetwork network
+	/**
+	 * Same as {@link #getBestItemMatcher} for a fluid, every matcher is asked since the lookup
+	 * by item doesn't apply.
+	 */
+	public int getBestFluidMatcher(
+		CompiledRule<ItemMovementRuleFlowData> compiled,
+		FluidStack fluid,
+		ExecutionState state
 	) {
-		return this.getTiles(container, network)
-			.flatMap(tile -> faces.stream()
-				.map(face -> tile.getCapability(
-					CapabilityItemHandler.ITEM_HANDLER_CAPABILITY,
-					face
-				)))
-			.filter(LazyOptional::isPresent)
-			.map(LazyOptional::resolve)
+		int best = -1;
+		int bestRemaining = -1;
+		for (int i = 0; i < compiled.ITEM_MATCHERS.size(); i++) {
+			if (compiled.ITEM_MATCHERS.get(i).matchesFluid(fluid)) {
+				int id = compiled.ITEM_MATCHER_IDS[i];
+				int remaining = state.getRemainingQuantity(this, id);
+				if (remaining > bestRemaining) { // Most remaining first
+					best = id;
+					bestRemaining = remaining;
+				}
+			}
+		}
+		return best;
+	}
+
+	public List<ItemMatcher> getItemMatchers(BasicFlowDataContainer container) {
+		return itemMatcherIds.stream()
+			.map(id -> container.get(id, ItemMatcher.class))
 			.filter(Optional::isPresent)
 			.map(Optional::get)
 			.collect(Collectors.toList());
 	}
 
-	public Stream<TileEntity> getTiles(BasicFlowDataContainer container, CableNetwork network) {
-		List<TileMatcher> matchers = tileMatcherIds.stream()
+	public List<TileMatcher> getTileMatchers(BasicFlowDataContainer container) {
+		return tileMatcherIds.stream()
 			.map(id -> container.get(id, TileMatcher.class))
 			.filter(Optional::isPresent)
 			.map(Optional::get)
 			.collect(Collectors.toList());
+	}
+
+	public List<IItemHandler> getItemHandlers(
+		BasicFlowDataContainer container,
+		CableNetwork network
+	) {
+		return getItemHandlers(getTileMatchers(container), network);
+	}
 
-		Predicate<TileEntity> matches = tile -> matchers.stream()
-			.anyMatch(m -> m.matches(tile));
+	/**
+	 * @param matchers Tile matchers already resolved for this rule
+	 */
+	public List<IItemHandler> getItemHandlers(
+		List<TileMatcher> matchers,
+		CableNetwork network
+	) {
+		return network.getItemHandlers(getTiles(matchers, network), faces);
+	}
 
-		return network.getInventories().stream()
-			.filter(matches);
+	/**
+	 * @param matchers Tile matchers already resolved for this rule
+	 */
+	public List<IFluidHandler> getFluidHandlers(
+		List<TileMatcher> matchers,
+		CableNetwork network
+	) {
+		return network.getCapabilities(
+			getTiles(matchers, network),
+			CapabilityFluidHandler.FLUID_HANDLER_CAPABILITY,
+			faces
+		);
+	}
+
+	/**
+	 * @param matchers Tile matchers already resolved for this rule
+	 */
+	public List<IEnergyStorage> getEnergyStorages(
+		List<TileMatcher> matchers,
+		CableNetwork network
+	) {
+		return network.getCapabilities(getTiles(matchers, network), CapabilityEnergy.ENERGY, faces);
+	}
+
+	public Stream<TileEntity> getTiles(BasicFlowDataContainer container, CableNetwork network) {
+		return getTiles(getTileMatchers(container), network);
+	}
+
+	public Stream<TileEntity> getTiles(List<TileMatcher> matchers, CableNetwork network) {
+		if (matchers.size() == 1) {
+			return matchers.get(0).getMatches(network);
+		}
+		// a tile matched more than once is still only one tile
+		return matchers.stream()
+			.flatMap(matcher -> matcher.getMatches(network))
+			.distinct();
 	}
 
 	public ItemStack getIcon() {
@@ -282,6 +366,7 @@ public class ItemMovementRuleFlowData extends FlowData implements
 				new UUIDList(tag, "tileMatchers"),
 				EnumSetSerializationHelper.deserialize(tag, "faces", Direction::valueOf),
 				new SlotsRule(tag.getString("slots")),
+				tag.getBoolean("roundRobin"),
 				tag.getBoolean("open")
 			);
 		}
@@ -297,6 +382,7 @@ public class ItemMovementRuleFlowData extends FlowData implements
 			tag.put("tileMatchers", data.tileMatcherIds.serialize());
 			tag.put("faces", EnumSetSerializationHelper.serialize(data.faces));
 			tag.putString("slots", data.slots.getDefinition());
+			tag.putBoolean("roundRobin", data.roundRobin);
 			tag.putBoolean("open", data.open);
 			return tag;
 		}
@@ -313,6 +399,7 @@ public class ItemMovementRuleFlowData extends FlowData implements
 				new UUIDList(buf),
 				EnumSetSerializationHelper.deserialize(buf, Direction::valueOf, Direction.class),
 				new SlotsRule(buf.readString(32)),
+				buf.readBoolean(),
 				buf.readBoolean()
 			);
 		}
@@ -328,6 +415,7 @@ public class ItemMovementRuleFlowData extends FlowData implements
 			data.tileMatcherIds.serialize(buf);
 			EnumSetSerializationHelper.serialize(data.faces, buf);
 			buf.writeString(data.slots.getDefinition(), 32);
+			buf.writeBoolean(data.roundRobin);
 			buf.writeBoolean(data.open);
 		}
 	}
@@ -9,21 +9,41 @@ import ca.teamdman.sfm.client.gui.flow.impl.manager.core.ManagerFlowController;
 import ca.teamdman.sfm.client.gui.flow.impl.manager.flowdataholder.ItemOutputFlowButton;
 import ca.teamdman.sfm.common.cablenetwork.CableNetwork;
 import ca.teamdman.sfm.common.cablenetwork.CableNetworkManager;
-import ca.teamdman.sfm.common.flow.core.ItemMatcher;
+import ca.teamdman.sfm.common.capability.BulkItemHandler;
+import ca.teamdman.sfm.common.config.Config;
 import ca.teamdman.sfm.common.flow.core.Position;
 import ca.teamdman.sfm.common.flow.core.PositionHolder;
 import ca.teamdman.sfm.common.flow.holder.BasicFlowDataContainer;
 import ca.teamdman.sfm.common.flow.holder.FlowDataRemovedObserver;
 import ca.teamdman.sfm.common.registrar.FlowDataSerializerRegistrar.FlowDataSerializers;
+import ca.teamdman.sfm.common.tile.manager.BulkTransfer;
+import ca.teamdman.sfm.common.tile.manager.CompiledRule;
+import ca.teamdman.sfm.common.tile.manager.ExecutionBudget;
+import ca.teamdman.sfm.common.tile.manager.ExecutionProfiler.Counters;
 import ca.teamdman.sfm.common.tile.manager.ExecutionStep;
+import ca.teamdman.sfm.common.tile.manager.InventoryTracker;
+import ca.teamdman.sfm.common.tile.manager.MoveTransaction;
+import ca.teamdman.sfm.common.tile.manager.OccupancyIndex;
+import ca.teamdman.sfm.common.tile.manager.SlotCursors;
+import ca.teamdman.sfm.common.tile.manager.SlotCursors.Cursors;
+import ca.teamdman.sfm.common.tile.manager.SlotOccupancy;
+import ca.teamdman.sfm.common.tile.manager.TransferPlan;
+import ca.teamdman.sfm.common.tile.manager.TransferPlanner;
+import ca.teamdman.sfm.common.tile.manager.TrustedHandlers;
+import ca.teamdman.sfm.common.util.ItemKey;
 import ca.teamdman.sfm.common.util.SFMUtil;
 import com.google.common.collect.ImmutableSet;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Observable;
 import java.util.Observer;
+import java.util.OptionalLong;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.CompoundNBT;
 import net.minecraft.network.PacketBuffer;
@@ -70,45 +90,266 @@ public class ItemOutputFlowData extends FlowData implements Observer, PositionHo
 
 	@Override
 	public void execute(ExecutionStep step) {
-		BasicFlowDataContainer container = step.TILE.getFlowDataContainer();
 		CableNetworkManager.getOrRegisterNetwork(step.TILE).ifPresent(network ->
-			container.get(tileEntityRule, ItemMovementRuleFlowData.class)
-				.ifPresent(rule -> satisfyOutput(step, network, rule)));
+			step.PLAN.getRule(tileEntityRule, ItemMovementRuleFlowData.class)
+				.ifPresent(rule -> execute(step, network, rule)));
 	}
 
-	private void satisfyOutput(
+	private void execute(
 		ExecutionStep step,
 		CableNetwork network,
-		ItemMovementRuleFlowData outRule
+		CompiledRule<ItemMovementRuleFlowData> rule
 	) {
-		BasicFlowDataContainer dataContainer = step.TILE.getFlowDataContainer();
-		List<IItemHandler> outHandlers = outRule.getItemHandlers(dataContainer, network);
+		// skip the scan if nothing changed since a run that found nothing to move
+		InventoryTracker tracker = step.TILE.getInventoryTracker();
+		if (Config.Server.skipUnchangedInventories && !step.isSuspended()) {
+			OptionalLong signature = getSignature(step, network, rule);
+			if (signature.isPresent()) {
+				if (tracker.isUnchanged(step.PLAN, getId(), signature.getAsLong())) {
+					return;
+				}
+				tracker.begin(getId(), signature.getAsLong());
+			}
+		}
+
+		boolean moved;
+		if (Config.Server.offThreadPlanning) {
+			// plans are committed in batches already
+			moved = planOutput(step, network, rule);
+		} else {
+			// bulk outputs react once when the node is done with them instead of after each move
+			List<BulkItemHandler> batches = new ArrayList<>();
+			long tick = step.TILE.getWorld().getGameTime();
+			for (IItemHandler handler : step.TILE.getOccupancyIndex()
+				.getItemHandlers(rule, network, tick)) {
+				if (handler instanceof BulkItemHandler) {
+					((BulkItemHandler) handler).beginBatch();
+					batches.add((BulkItemHandler) handler);
+				}
+			}
+			try {
+				moved = Config.Server.bulkTransfers
+					? bulkOutput(step, network, rule)
+					: satisfyOutput(step, network, rule);
+			} finally {
+				batches.forEach(BulkItemHandler::endBatch);
+			}
+		}
+
+		if (moved) {
+			tracker.onMoved(getId());
+			if (Config.Server.offThreadPlanning) {
+				// plans are applied without keeping the slot occupancy up to date
+				step.TILE.getOccupancyIndex().invalidate();
+			}
+		}
+		if (!step.isSuspended()) {
+			tracker.finish(getId());
+		}
+	}
+
+	/**
+	 * @return Versions of the input and output inventories and the quota left for their
+	 * matchers, empty if any of the inventories doesn't report its changes
+	 */
+	private OptionalLong getSignature(
+		ExecutionStep step,
+		CableNetwork network,
+		CompiledRule<ItemMovementRuleFlowData> compiledOutRule
+	) {
+		OptionalLong version = InventoryTracker.getVersion(
+			compiledOutRule.RULE.getTiles(compiledOutRule.TILE_MATCHERS, network)
+		);
+		if (!version.isPresent()) {
+			return version;
+		}
+		long signature = version.getAsLong();
+		signature = 31 * signature + step.STATE.hashUsage(compiledOutRule.ITEM_MATCHER_IDS);
+		for (CompiledRule<ItemMovementRuleFlowData> in : step.INPUTS) {
+			version = InventoryTracker.getVersion(in.RULE.getTiles(in.TILE_MATCHERS, network));
+			if (!version.isPresent()) {
+				return version;
+			}
+			signature = 31 * signature + in.RULE.getId().hashCode();
+			signature = 31 * signature + version.getAsLong();
+			signature = 31 * signature + step.STATE.hashUsage(in.ITEM_MATCHER_IDS);
+		}
+		return OptionalLong.of(signature);
+	}
+
+	/**
+	 * Plans the transfer on a worker thread from a snapshot of the inventories, waiting until
+	 * the plan is ready and then applying it. Other nodes that don't follow this one keep
+	 * running meanwhile, so outputs side by side are planned at the same time.
+	 *
+	 * @return true if anything was moved
+	 */
+	private boolean planOutput(
+		ExecutionStep step,
+		CableNetwork network,
+		CompiledRule<ItemMovementRuleFlowData> compiledOutRule
+	) {
+		CompletableFuture<?> pending = step.resume(CompletableFuture.class).orElse(null);
+		if (pending == null) {
+			List<CompiledRule<ItemMovementRuleFlowData>> inputs = new ArrayList<>(step.INPUTS);
+			List<List<IItemHandler>> inputHandlers = inputs.stream()
+				.map(in -> in.RULE.getItemHandlers(in.TILE_MATCHERS, network))
+				.collect(Collectors.toList());
+			pending = new TransferPlanner(
+				inputs,
+				inputHandlers,
+				compiledOutRule,
+				compiledOutRule.RULE.getItemHandlers(compiledOutRule.TILE_MATCHERS, network),
+				step.STATE
+			).submit();
+		}
+
+		if (!pending.isDone()) {
+			// check again next tick
+			step.await(pending);
+			return false;
+		}
+
+		try {
+			TransferPlan plan = (TransferPlan) pending.join();
+			boolean moved = plan.apply(step.STATE, step.getBudget(), step.getCounters());
+			if (plan.hasRemaining()) {
+				// out of budget, apply the rest of the same plan next tick
+				step.suspend(pending);
+			}
+			return moved;
+		} catch (CompletionException e) {
+			SFM.LOGGER.warn(
+				SFMUtil.getMarker(getClass()),
+				"Transfer planning failed, moving items directly instead",
+				e
+			);
+			return satisfyOutput(step, network, compiledOutRule);
+		}
+	}
+
+	/**
+	 * Moves items grouped by item into an index of the output slots, see {@link BulkTransfer}.
+	 *
+	 * @return true if anything was moved
+	 */
+	private boolean bulkOutput(
+		ExecutionStep step,
+		CableNetwork network,
+		CompiledRule<ItemMovementRuleFlowData> compiledOutRule
+	) {
+		// pick up at the input and slot group the previous tick ran out of budget at, if it did
+		BulkTransfer.Resume resume = step.resume(BulkTransfer.Resume.class).orElse(null);
+		OccupancyIndex index = step.TILE.getOccupancyIndex();
+		long tick = step.TILE.getWorld().getGameTime();
+		BulkTransfer transfer = new BulkTransfer(
+			compiledOutRule,
+			index.getItemHandlers(compiledOutRule, network, tick),
+			step
+		);
+		// the inputs don't change while this node is suspended, so indices stay valid
+		List<CompiledRule<ItemMovementRuleFlowData>> inputs = new ArrayList<>(step.INPUTS);
+		for (int i = resume == null ? 0 : resume.INPUT; i < inputs.size(); i++) {
+			CompiledRule<ItemMovementRuleFlowData> in = inputs.get(i);
+			if (!transfer.run(i, in, index.getItemHandlers(in, network, tick), resume)) {
+				transfer.getSuspended().ifPresent(step::suspend);
+				break;
+			}
+		}
+		return transfer.hasMoved();
+	}
+
+	/**
+	 * Moves items slot by slot, trying every output slot for every input slot.
+	 *
+	 * @return true if anything was moved
+	 */
+	private boolean satisfyOutput(
+		ExecutionStep step,
+		CableNetwork network,
+		CompiledRule<ItemMovementRuleFlowData> compiledOutRule
+	) {
+		ItemMovementRuleFlowData outRule = compiledOutRule.RULE;
+		OccupancyIndex occupancies = step.TILE.getOccupancyIndex();
+		long tick = step.TILE.getWorld().getGameTime();
+		List<IItemHandler> outHandlers = occupancies
+			.getItemHandlers(compiledOutRule, network, tick);
+		SlotCursors cursors = step.TILE.getSlotCursors();
+		Cursors outCursors = cursors.get(step.PLAN, outRule.getId(), outHandlers.size());
+
+		// pick up where the previous tick ran out of budget, if it did
+		TransferCursor cursor = step.resume(TransferCursor.class).orElse(TransferCursor.START);
+		ExecutionBudget budget = step.getBudget();
+		Counters counters = step.getCounters();
+		MoveTransaction transaction = new MoveTransaction(step.STATE, counters);
+		boolean visitedAny = false;
+		boolean moved = false;
 
 		// for each input rule hit so far during flow execution
-		for (ItemMovementRuleFlowData inRule : step.INPUTS) {
+		// the inputs don't change while this node is suspended, so indices stay valid
+		List<CompiledRule<ItemMovementRuleFlowData>> inputs = new ArrayList<>(step.INPUTS);
+		for (int inputIndex = cursor.INPUT; inputIndex < inputs.size(); inputIndex++) {
+			CompiledRule<ItemMovementRuleFlowData> compiledInRule = inputs.get(inputIndex);
+			ItemMovementRuleFlowData inRule = compiledInRule.RULE;
+			List<IItemHandler> inHandlers = occupancies
+				.getItemHandlers(compiledInRule, network, tick);
+			Cursors inCursors = cursors.get(step.PLAN, inRule.getId(), inHandlers.size());
 
 			// for each tile defined in the input rule
-			for (IItemHandler inHandler : inRule.getItemHandlers(dataContainer, network)) {
-
-				// for each slot defined in the input rule
+			int firstHandler = inputIndex == cursor.INPUT ? cursor.HANDLER : 0;
+			for (int handlerIndex = firstHandler; handlerIndex < inHandlers.size(); handlerIndex++) {
+				IItemHandler inHandler = inHandlers.get(handlerIndex);
+				int[] inSlots = inRule.slots.getSlots(inHandler.getSlots()).toArray();
+				// shared with every other output reading this inventory this tick
+				SlotOccupancy inOccupancy = occupancies.get(inHandler, tick);
+
+				// for each slot defined in the input rule, starting where the last run took items
+				// the cursor only moves once the handler is done, so a suspended run resumes in step
+				int start = inCursors.EXTRACT[handlerIndex];
+				int taken = -1;
+				int firstSlot = inputIndex == cursor.INPUT && handlerIndex == cursor.HANDLER
+					? cursor.SLOT
+					: 0;
 				IN_SLOT:
-				for (int inSlot : inRule.slots.getSlots(inHandler.getSlots()).toArray()) {
+				for (int slotIndex = firstSlot; slotIndex < inSlots.length; slotIndex++) {
+					int position = Cursors.rotate(start, slotIndex, inSlots.length);
+					int inSlot = inSlots[position];
+
+					// nothing more is allowed to move, no need to look at the remaining slots
+					if (step.STATE.isExhausted(compiledInRule)
+						|| step.STATE.isExhausted(compiledOutRule)) {
+						break;
+					}
+
+					// stop between slots once out of budget, the rest of the run happens next tick
+					// quota usage is kept in the execution state so nothing is counted twice
+					if (visitedAny && budget.isExhausted()) {
+						step.suspend(new TransferCursor(inputIndex, handlerIndex, slotIndex));
+						return moved;
+					}
+					visitedAny = true;
+					budget.consume(1);
+					counters.slotVisits++;
+
+					// go to next slot if empty, without asking the inventory
+					if (inOccupancy.isEmpty(inSlot)) {
+						continue;
+					}
 
-					// Get stack in slot
-					ItemStack stack = inHandler.getStackInSlot(inSlot);
+					// Get stack in slot, the occupancy catches up if it changed behind its back
+					ItemStack stack = inOccupancy.getStack(inSlot);
 
 					// go to next slot if empty
 					if (stack.isEmpty()) {
 						continue;
 					}
 
+					ItemKey key = ItemKey.of(stack);
+
 					// get the matchers that determine how much of the item is allowed to move
 					// transfer can be throttled input and output at the same time
-					ItemMatcher inMatcher = inRule
-						.getBestItemMatcher(dataContainer, stack, step.STATE)
-						.orElse(null);
-					ItemMatcher outMatcher = outRule
-						.getBestItemMatcher(dataContainer, stack, step.STATE).orElse(null);
+					int inMatcher = inRule.getBestItemMatcher(compiledInRule, stack, step.STATE);
+					int outMatcher = outRule.getBestItemMatcher(compiledOutRule, stack, step.STATE);
 
 					// get the amount allowed to be moved, noting whitelist/blacklist
 					int allowedToExtract = step.STATE.getRemainingQuantity(inRule, inMatcher);
@@ -133,58 +374,105 @@ public class ItemOutputFlowData extends FlowData implements Observer, PositionHo
 						previous = remainingQuantity;
 
 						// for each destination inventory, try and distribute input stack
-						for (IItemHandler outHandler : outHandlers) {
+						// round robin outputs start after the inventory that was last inserted into
+						int firstOut = outRule.roundRobin ? outCursors.nextHandler : 0;
+						for (int o = 0; o < outHandlers.size(); o++) {
+							int outIndex = Cursors.rotate(firstOut, o, outHandlers.size());
+							IItemHandler outHandler = outHandlers.get(outIndex);
+
+							// skip inventories without a free slot or partial stack of the item
+							SlotOccupancy occupancy = occupancies.get(outHandler, tick);
+							if (!occupancy.hasRoomFor(key)) {
+								continue;
+							}
 
 							// for each slot in destination that is permitted by output rule
-							for (int outSlot : outRule.slots.getSlots(outHandler.getSlots())
-								.toArray()) {
-
-								// get stack simulating extraction
-								ItemStack extracted = inHandler
-									.extractItem(inSlot, remainingQuantity, true);
+							// starting where the last run found room
+							int[] outSlots = outRule.slots.getSlots(outHandler.getSlots()).toArray();
+							for (int j = 0; j < outSlots.length; j++) {
+								int outPosition = Cursors
+									.rotate(outCursors.INSERT[outIndex], j, outSlots.length);
+								int outSlot = outSlots[outPosition];
+
+								budget.consume(1);
+
+								// simulate the move, computed directly for well known inventories
+								int toTransfer = TrustedHandlers.simulateMove(
+									inHandler,
+									inSlot,
+									outHandler,
+									outSlot,
+									remainingQuantity,
+									counters
+								);
 
 								// if can't extract anything, skip to the next input slot
-								if (extracted.isEmpty()) {
+								if (toTransfer < 0) {
 									continue IN_SLOT;
 								}
 
-								// get leftovers simulating insertion
-								ItemStack leftoverStack = outHandler
-									.insertItem(outSlot, extracted, true);
-
-								// calculate difference based on what we will extract vs what we will insert
-								int toTransfer = extracted.getCount() - leftoverStack.getCount();
-
-								// extract for real, only pulling what we know we can insert into destination
-								extracted = inHandler.extractItem(inSlot, toTransfer, false);
+								if (toTransfer == 0) {
+									continue;
+								}
 
-								// insert for real, leftovers should be empty
-								leftoverStack = outHandler.insertItem(outSlot, extracted, false);
+								// move for real, only pulling what we know we can insert into destination
+								// anything the destination refuses after all is put back, not voided
+								int transferred = transaction.move(
+									inHandler,
+									inSlot,
+									inRule.slots,
+									outHandler,
+									outSlot,
+									outRule.slots,
+									toTransfer
+								);
+								if (transferred < 0) {
+									continue IN_SLOT;
+								}
+								moved |= transferred > 0;
+								if (transferred > 0) {
+									taken = position;
+									outCursors.INSERT[outIndex] = outPosition;
+									outCursors.nextHandler = outIndex + 1;
+									// other faces of either tile may have changed too
+									occupancies.onMoved(outHandler);
+									occupancies.onMoved(inHandler);
+								}
+								occupancy.update(outSlot, transaction.wasRerouted());
+								inOccupancy.update(inSlot, transaction.wasRerouted());
 
 								// record how much we were able to move before attempting to insert to next output slot
 								// e.g., if we're allowed to extract 64xCobble, it might have to be deposited into multiple slots
-								remainingQuantity -= toTransfer;
+								remainingQuantity -= transferred;
 
 								// record how much of the actual matcher quota we used
-								step.STATE.recordUsage(inMatcher, toTransfer);
-								step.STATE.recordUsage(outMatcher, toTransfer);
-
-								// if somehow we extracted more than we were able to deposit, log a warning
-								// the leftovers will be voided to prevent dupe bugs since this should never happen
-								if (!leftoverStack.isEmpty()) {
-									SFM.LOGGER.warn(
-										SFMUtil.getMarker(getClass()),
-										"Failed to fully insert stack {}, remaining {} will be voided",
-										extracted,
-										leftoverStack
-									);
-								}
+								step.STATE.recordUsage(inMatcher, transferred);
+								step.STATE.recordUsage(outMatcher, transferred);
 							}
 						}
 					}
 				}
+				if (taken != -1) {
+					inCursors.EXTRACT[handlerIndex] = taken;
+				}
 			}
 		}
+		return moved;
+	}
+
+	/**
+	 * Position in the input slots at which a suspended transfer resumes
+	 */
+	private static class TransferCursor {
+
+		public static final TransferCursor START = new TransferCursor(0, 0, 0);
+		public final int INPUT, HANDLER, SLOT;
+
+		public TransferCursor(int input, int handler, int slot) {
+			this.INPUT = input;
+			this.HANDLER = handler;
+			this.SLOT = slot;
+		}
 	}
 
 	@Override
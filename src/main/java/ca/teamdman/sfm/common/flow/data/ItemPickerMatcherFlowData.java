@@ -18,6 +18,8 @@ import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.CompoundNBT;
 import net.minecraft.network.PacketBuffer;
 import net.minecraft.util.ResourceLocation;
+import net.minecraftforge.fluids.FluidStack;
+import net.minecraftforge.fluids.FluidUtil;
 
 public class ItemPickerMatcherFlowData extends FlowData implements ItemMatcher {
 
@@ -86,6 +88,14 @@ public class ItemPickerMatcherFlowData extends FlowData implements ItemMatcher {
 		return this.stack.isItemEqual(stack) && (quantity == 0 || stack.getCount() >= quantity);
 	}
 
+	@Override
+	public boolean matchesFluid(@Nonnull FluidStack fluid) {
+		// a picked bucket or tank stands for the fluid it holds
+		return FluidUtil.getFluidContained(stack)
+			.map(contained -> contained.getFluid() == fluid.getFluid())
+			.orElse(false) && (quantity == 0 || fluid.getAmount() >= quantity);
+	}
+
 	@Override
 	public int getQuantity() {
 		return quantity == 0 ? Integer.MAX_VALUE : quantity;
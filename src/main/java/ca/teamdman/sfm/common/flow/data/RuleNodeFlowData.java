@@ -0,0 +1,171 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
+package ca.teamdman.sfm.common.flow.data;
+
+import ca.teamdman.sfm.client.gui.flow.core.FlowComponent;
+import ca.teamdman.sfm.client.gui.flow.impl.manager.core.ManagerFlowController;
+import ca.teamdman.sfm.common.flow.core.Position;
+import ca.teamdman.sfm.common.flow.core.PositionHolder;
+import ca.teamdman.sfm.common.flow.holder.BasicFlowDataContainer;
+import ca.teamdman.sfm.common.flow.holder.FlowDataRemovedObserver;
+import ca.teamdman.sfm.common.util.SFMUtil;
+import com.google.common.collect.ImmutableSet;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import net.minecraft.nbt.CompoundNBT;
+import net.minecraft.network.PacketBuffer;
+import net.minecraft.util.ResourceLocation;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.api.distmarker.OnlyIn;
+
+/**
+ * Node that only points at a movement rule, shared by the inputs and outputs of everything other
+ * than items. Subclasses decide what the node does with the rule when executed.
+ */
+public abstract class RuleNodeFlowData extends FlowData implements Observer, PositionHolder {
+
+	private final FlowDataRemovedObserver OBSERVER;
+	public Position position;
+	public UUID tileEntityRule;
+
+	public RuleNodeFlowData(UUID uuid, Position position, UUID tileEntityRule) {
+		super(uuid);
+		this.position = position;
+		this.tileEntityRule = tileEntityRule;
+		OBSERVER = new FlowDataRemovedObserver(
+			this,
+			data -> data.getId().equals(tileEntityRule),
+			c -> c.remove(getId()) // remove this if rule gets deleted
+		);
+	}
+
+	/**
+	 * @return Node of the same type holding the given values
+	 */
+	protected abstract RuleNodeFlowData create(UUID uuid, Position position, UUID tileEntityRule);
+
+	/**
+	 * @param controller Manager the button is shown in
+	 * @param ruleData   Rule this node points at
+	 * @return Button showing this node
+	 */
+	@OnlyIn(Dist.CLIENT)
+	public abstract FlowComponent createController(
+		ManagerFlowController controller,
+		ItemMovementRuleFlowData ruleData
+	);
+
+	@Override
+	public void addToDataContainer(BasicFlowDataContainer container) {
+		super.addToDataContainer(container);
+		container.addObserver(this);
+	}
+
+	@Override
+	public void removeFromDataContainer(BasicFlowDataContainer container) {
+		super.removeFromDataContainer(container);
+		container.get(tileEntityRule)
+			.ifPresent(data -> data.removeFromDataContainer(container));
+	}
+
+	@Override
+	public RuleNodeFlowData duplicate(
+		BasicFlowDataContainer container, Consumer<FlowData> dependencyTracker
+	) {
+		RuleNodeFlowData newNode = create(UUID.randomUUID(), position.copy(), tileEntityRule);
+		container.get(newNode.tileEntityRule, ItemMovementRuleFlowData.class).ifPresent(data -> {
+			FlowData newData = data.duplicate(container, dependencyTracker);
+			dependencyTracker.accept(newData);
+			newNode.tileEntityRule = newData.getId();
+		});
+		return newNode;
+	}
+
+	@Override
+	public boolean isValidRelationshipTarget() {
+		return true;
+	}
+
+	@Override
+	public FlowComponent createController(
+		FlowComponent parent
+	) {
+		if (parent instanceof ManagerFlowController) {
+			ManagerFlowController controller = (ManagerFlowController) parent;
+			return createController(
+				controller,
+				controller.SCREEN.getFlowDataContainer()
+					.get(tileEntityRule, ItemMovementRuleFlowData.class)
+					.orElseGet(ItemMovementRuleFlowData::new)
+			);
+		}
+		return null;
+	}
+
+	@Override
+	public Set<Class<?>> getDependencies() {
+		return ImmutableSet.of(ItemMovementRuleFlowData.class);
+	}
+
+	@Override
+	public void update(Observable o, Object arg) {
+		OBSERVER.update(o, arg);
+	}
+
+	@Override
+	public Position getPosition() {
+		return position;
+	}
+
+	public interface Factory<T extends RuleNodeFlowData> {
+
+		T create(UUID uuid, Position position, UUID tileEntityRule);
+	}
+
+	public static class Serializer<T extends RuleNodeFlowData> extends FlowDataSerializer<T> {
+
+		private final Factory<T> FACTORY;
+
+		public Serializer(ResourceLocation key, Factory<T> factory) {
+			super(key);
+			this.FACTORY = factory;
+		}
+
+		@Override
+		public T fromNBT(CompoundNBT tag) {
+			return FACTORY.create(
+				getUUID(tag),
+				new Position(tag.getCompound("pos")),
+				UUID.fromString(tag.getString("tileEntityRule"))
+			);
+		}
+
+		@Override
+		public CompoundNBT toNBT(T data) {
+			CompoundNBT tag = super.toNBT(data);
+			tag.put("pos", data.position.serializeNBT());
+			tag.putString("tileEntityRule", data.tileEntityRule.toString());
+			return tag;
+		}
+
+		@Override
+		public T fromBuffer(PacketBuffer buf) {
+			return FACTORY.create(
+				SFMUtil.readUUID(buf),
+				Position.fromLong(buf.readLong()),
+				SFMUtil.readUUID(buf)
+			);
+		}
+
+		@Override
+		public void toBuffer(T data, PacketBuffer buf) {
+			SFMUtil.writeUUID(data.getId(), buf);
+			buf.writeLong(data.position.toLong());
+			SFMUtil.writeUUID(data.tileEntityRule, buf);
+		}
+	}
+}
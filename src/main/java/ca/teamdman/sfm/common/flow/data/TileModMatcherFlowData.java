@@ -14,6 +14,7 @@ import java.util.List;
 import java.util.UUID;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.annotation.Nonnull;
 import net.minecraft.client.resources.I18n;
 import net.minecraft.item.ItemStack;
@@ -84,11 +85,15 @@ public class TileModMatcherFlowData extends FlowData implements TileMatcher {
 		return tile.getType().getRegistryName().getNamespace().equals(modId);
 	}
 
+	@Override
+	public Stream<TileEntity> getMatches(CableNetwork network) {
+		return network.getInventories(modId).stream();
+	}
+
 	@Override
 	public List<ItemStack> getPreview(CableNetwork network) {
 		if (preview == null) {
-			return preview = network.getInventories().stream()
-				.filter(this::matches)
+			return preview = getMatches(network)
 				.map(TileEntity::getPos)
 				.map(network::getPreview)
 				.collect(Collectors.toList());
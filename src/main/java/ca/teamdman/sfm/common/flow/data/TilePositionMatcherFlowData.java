@@ -15,6 +15,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import net.minecraft.block.Blocks;
@@ -55,6 +56,11 @@ public class TilePositionMatcherFlowData extends FlowData implements TileMatcher
 		return Objects.equals(tile.getPos(), position);
 	}
 
+	@Override
+	public Stream<TileEntity> getMatches(CableNetwork network) {
+		return network.getInventory(position).map(Stream::of).orElseGet(Stream::empty);
+	}
+
 	@Override
 	public List<ItemStack> getPreview(CableNetwork network) {
 		if (previewCache == null) {
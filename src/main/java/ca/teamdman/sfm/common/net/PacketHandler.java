@@ -10,6 +10,7 @@ import ca.teamdman.sfm.common.net.packet.manager.S2CManagerPacket;
 import ca.teamdman.sfm.common.net.packet.manager.S2CManagerPacket.S2CHandler;
 import ca.teamdman.sfm.common.net.packet.manager.delete.ManagerDeletePacketC2S;
 import ca.teamdman.sfm.common.net.packet.manager.delete.ManagerDeletePacketS2C;
+import ca.teamdman.sfm.common.net.packet.manager.profile.ManagerProfilePacketS2C;
 import ca.teamdman.sfm.common.net.packet.manager.put.ManagerCreateLineNodePacketC2S;
 import ca.teamdman.sfm.common.net.packet.manager.put.ManagerCreateLineNodePacketS2C;
 import ca.teamdman.sfm.common.net.packet.manager.put.ManagerFlowDataPacketC2S;
@@ -82,6 +83,11 @@ public class PacketHandler {
 			new ManagerFlowDataPacketS2C.Handler()
 		);
 
+		register(i++,
+			ManagerProfilePacketS2C.class,
+			new ManagerProfilePacketS2C.Handler()
+		);
+
 		INSTANCE.registerMessage(i++,
 			C2SWorkstationModeSwitchPacket.class,
 			C2SWorkstationModeSwitchPacket::encode,
@@ -0,0 +1,48 @@
+package ca.teamdman.sfm.common.net.packet.manager.profile;
+
+import ca.teamdman.sfm.client.gui.screen.ManagerScreen;
+import ca.teamdman.sfm.common.net.packet.manager.S2CManagerPacket;
+import ca.teamdman.sfm.common.tile.manager.ExecutionProfiler.NodeSummary;
+import java.util.ArrayList;
+import java.util.List;
+import net.minecraft.network.PacketBuffer;
+
+public class ManagerProfilePacketS2C extends S2CManagerPacket {
+
+	private final List<NodeSummary> SUMMARY;
+
+	public ManagerProfilePacketS2C(int windowId, List<NodeSummary> summary) {
+		super(windowId);
+		this.SUMMARY = summary;
+	}
+
+	public static class Handler extends S2CHandler<ManagerProfilePacketS2C> {
+
+		@Override
+		public void finishEncode(
+			ManagerProfilePacketS2C msg,
+			PacketBuffer buf
+		) {
+			buf.writeInt(msg.SUMMARY.size());
+			msg.SUMMARY.forEach(node -> node.toBuffer(buf));
+		}
+
+		@Override
+		public ManagerProfilePacketS2C finishDecode(int windowId, PacketBuffer buf) {
+			int size = buf.readInt();
+			List<NodeSummary> summary = new ArrayList<>(size);
+			for (int i = 0; i < size; i++) {
+				summary.add(NodeSummary.fromBuffer(buf));
+			}
+			return new ManagerProfilePacketS2C(windowId, summary);
+		}
+
+		@Override
+		public void handleDetailed(
+			ManagerScreen screen,
+			ManagerProfilePacketS2C msg
+		) {
+			screen.setExecutionProfile(msg.SUMMARY);
+		}
+	}
+}
@@ -4,9 +4,17 @@
 package ca.teamdman.sfm.common.registrar;
 
 import ca.teamdman.sfm.SFM;
+import ca.teamdman.sfm.common.flow.data.ChemicalInputFlowData;
+import ca.teamdman.sfm.common.flow.data.ChemicalOutputFlowData;
 import ca.teamdman.sfm.common.flow.data.ConditionLineNodeFlowData;
 import ca.teamdman.sfm.common.flow.data.CursorFlowData;
+import ca.teamdman.sfm.common.flow.data.EnergyInputFlowData;
+import ca.teamdman.sfm.common.flow.data.EnergyOutputFlowData;
 import ca.teamdman.sfm.common.flow.data.FlowDataSerializer;
+import ca.teamdman.sfm.common.flow.data.FluidConditionFlowData;
+import ca.teamdman.sfm.common.flow.data.FluidInputFlowData;
+import ca.teamdman.sfm.common.flow.data.FluidOutputFlowData;
+import ca.teamdman.sfm.common.flow.data.InventoryChangeTriggerFlowData;
 import ca.teamdman.sfm.common.flow.data.ItemConditionFlowData;
 import ca.teamdman.sfm.common.flow.data.ItemConditionRuleFlowData;
 import ca.teamdman.sfm.common.flow.data.ItemInputFlowData;
@@ -16,6 +24,7 @@ import ca.teamdman.sfm.common.flow.data.ItemOutputFlowData;
 import ca.teamdman.sfm.common.flow.data.ItemPickerMatcherFlowData;
 import ca.teamdman.sfm.common.flow.data.LineNodeFlowData;
 import ca.teamdman.sfm.common.flow.data.RelationshipFlowData;
+import ca.teamdman.sfm.common.flow.data.RuleNodeFlowData;
 import ca.teamdman.sfm.common.flow.data.TileModMatcherFlowData;
 import ca.teamdman.sfm.common.flow.data.TilePositionMatcherFlowData;
 import ca.teamdman.sfm.common.flow.data.TimerTriggerFlowData;
@@ -44,6 +53,8 @@ public class FlowDataSerializerRegistrar {
 				.Serializer(new ResourceLocation(SFM.MOD_ID, "line_node")),
 			new TimerTriggerFlowData
 				.Serializer(new ResourceLocation(SFM.MOD_ID, "timer_trigger")),
+			new InventoryChangeTriggerFlowData
+				.Serializer(new ResourceLocation(SFM.MOD_ID, "inventory_change_trigger")),
 			new ItemMovementRuleFlowData
 				.Serializer(new ResourceLocation(SFM.MOD_ID, "item_movement_rule")),
 			new ItemPickerMatcherFlowData
@@ -60,7 +71,32 @@ public class FlowDataSerializerRegistrar {
 			new TileModMatcherFlowData.Serializer(new ResourceLocation(SFM.MOD_ID, "tile_mod_matcher")),
 			new ItemConditionRuleFlowData.Serializer(new ResourceLocation(SFM.MOD_ID, "item_condition_rule")),
 			new ItemConditionFlowData.Serializer(new ResourceLocation(SFM.MOD_ID, "item_condition")),
-			new ConditionLineNodeFlowData.Serializer(new ResourceLocation(SFM.MOD_ID, "condition_line_node"))
+			new ConditionLineNodeFlowData.Serializer(new ResourceLocation(SFM.MOD_ID, "condition_line_node")),
+			new RuleNodeFlowData.Serializer<>(
+				new ResourceLocation(SFM.MOD_ID, "fluid_input"),
+				FluidInputFlowData::new
+			),
+			new RuleNodeFlowData.Serializer<>(
+				new ResourceLocation(SFM.MOD_ID, "fluid_output"),
+				FluidOutputFlowData::new
+			),
+			new FluidConditionFlowData.Serializer(new ResourceLocation(SFM.MOD_ID, "fluid_condition")),
+			new RuleNodeFlowData.Serializer<>(
+				new ResourceLocation(SFM.MOD_ID, "energy_input"),
+				EnergyInputFlowData::new
+			),
+			new RuleNodeFlowData.Serializer<>(
+				new ResourceLocation(SFM.MOD_ID, "energy_output"),
+				EnergyOutputFlowData::new
+			),
+			new RuleNodeFlowData.Serializer<>(
+				new ResourceLocation(SFM.MOD_ID, "chemical_input"),
+				ChemicalInputFlowData::new
+			),
+			new RuleNodeFlowData.Serializer<>(
+				new ResourceLocation(SFM.MOD_ID, "chemical_output"),
+				ChemicalOutputFlowData::new
+			)
 		);
 	}
 
@@ -84,6 +120,7 @@ public class FlowDataSerializerRegistrar {
 		public static final FlowDataSerializer<LineNodeFlowData> LINE_NODE = WAITING;
 		public static final FlowDataSerializer<ConditionLineNodeFlowData> CONDITION_LINE_NODE = WAITING;
 		public static final FlowDataSerializer<TimerTriggerFlowData> TIMER_TRIGGER = WAITING;
+		public static final FlowDataSerializer<InventoryChangeTriggerFlowData> INVENTORY_CHANGE_TRIGGER = WAITING;
 		public static final FlowDataSerializer<ItemMovementRuleFlowData> ITEM_MOVEMENT_RULE = WAITING;
 		public static final FlowDataSerializer<ItemPickerMatcherFlowData> ITEM_PICKER_MATCHER = WAITING;
 		public static final FlowDataSerializer<ItemModMatcherFlowData> ITEM_MOD_MATCHER = WAITING;
@@ -93,6 +130,13 @@ public class FlowDataSerializerRegistrar {
 		public static final FlowDataSerializer<TilePositionMatcherFlowData> TILE_POSITION_MATCHER = WAITING;
 		public static final FlowDataSerializer<ItemConditionRuleFlowData> ITEM_CONDITION_RULE = WAITING;
 		public static final FlowDataSerializer<ItemConditionFlowData> ITEM_CONDITION = WAITING;
+		public static final FlowDataSerializer<FluidInputFlowData> FLUID_INPUT = WAITING;
+		public static final FlowDataSerializer<FluidOutputFlowData> FLUID_OUTPUT = WAITING;
+		public static final FlowDataSerializer<FluidConditionFlowData> FLUID_CONDITION = WAITING;
+		public static final FlowDataSerializer<EnergyInputFlowData> ENERGY_INPUT = WAITING;
+		public static final FlowDataSerializer<EnergyOutputFlowData> ENERGY_OUTPUT = WAITING;
+		public static final FlowDataSerializer<ChemicalInputFlowData> CHEMICAL_INPUT = WAITING;
+		public static final FlowDataSerializer<ChemicalOutputFlowData> CHEMICAL_OUTPUT = WAITING;
 	}
 
 	public static class FlowDataFactoryRegistry {
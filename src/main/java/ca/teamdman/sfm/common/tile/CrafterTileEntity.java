@@ -3,8 +3,12 @@
  * file, You can obtain one at https://mozilla.org/MPL/2.0/. */
 package ca.teamdman.sfm.common.tile;
 
+import ca.teamdman.sfm.common.capability.BulkItemStackHandler;
+import ca.teamdman.sfm.common.capability.CapabilityBulkItemHandler;
+import ca.teamdman.sfm.common.capability.RangedBulkWrapper;
 import ca.teamdman.sfm.common.container.CrafterContainer;
 import ca.teamdman.sfm.common.registrar.SFMTiles;
+import ca.teamdman.sfm.common.tile.manager.TrustedHandlers;
 import java.util.List;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -33,37 +37,23 @@ import net.minecraftforge.common.capabilities.Capability;
 import net.minecraftforge.common.capabilities.ICapabilityProvider;
 import net.minecraftforge.common.util.LazyOptional;
 import net.minecraftforge.items.CapabilityItemHandler;
-import net.minecraftforge.items.IItemHandlerModifiable;
-import net.minecraftforge.items.ItemStackHandler;
-import net.minecraftforge.items.wrapper.RangedWrapper;
 
 public class CrafterTileEntity extends TileEntity implements ICapabilityProvider, IRecipeHolder,
-	INamedContainerProvider {
+	INamedContainerProvider, VersionedInventory {
 
-	private final LazyOptional<ItemStackHandler> inventoryCapabilityExternal = LazyOptional
+	static {
+		TrustedHandlers.register(CrafterInventory.class);
+	}
+
+	private final LazyOptional<BulkItemStackHandler> inventoryCapabilityExternal = LazyOptional
 		.of(() -> this.inventory);
-	private final LazyOptional<IItemHandlerModifiable> inventoryInputCapabilityExternal = LazyOptional
-		.of(() -> new RangedWrapper(this.inventory, 0, 10));
-	private final LazyOptional<IItemHandlerModifiable> inventoryOutputCapabilityExternal = LazyOptional
-		.of(() -> new RangedWrapper(this.inventory, 10, 11));
+	private final LazyOptional<RangedBulkWrapper> inventoryInputCapabilityExternal = LazyOptional
+		.of(() -> new RangedBulkWrapper(this.inventory, 0, 10));
+	private final LazyOptional<RangedBulkWrapper> inventoryOutputCapabilityExternal = LazyOptional
+		.of(() -> new RangedBulkWrapper(this.inventory, 10, 11));
 	private boolean debounce = false;
-	public final ItemStackHandler inventory = new ItemStackHandler(10) {
-		@Override
-		protected void onContentsChanged(int slot) {
-			super.onContentsChanged(slot);
-			if (!debounce) {
-				debounce = true;
-				CrafterTileEntity.this.markDirty();
-				if (slot == 9) {
-					if (inventory.getStackInSlot(9) == ItemStack.EMPTY) {
-						CrafterTileEntity.this.consumeIngredients(1);
-					}
-				}
-				CrafterTileEntity.this.onInputChanged();
-				debounce = false;
-			}
-		}
-	};
+	private long inventoryVersion = 0;
+	public final BulkItemStackHandler inventory = new CrafterInventory();
 	private IRecipe<?> recipe;
 
 
@@ -78,7 +68,9 @@ public class CrafterTileEntity extends TileEntity implements ICapabilityProvider
 	@Nonnull
 	@Override
 	public <T> LazyOptional<T> getCapability(@Nonnull Capability<T> cap, @Nullable Direction side) {
-		if (cap == CapabilityItemHandler.ITEM_HANDLER_CAPABILITY) {
+		// the same handlers, the bulk capability lets managers move ingredients in one go
+		if (cap == CapabilityItemHandler.ITEM_HANDLER_CAPABILITY
+			|| cap == CapabilityBulkItemHandler.BULK_ITEM_HANDLER) {
 			if (side == null) {
 				return inventoryCapabilityExternal.cast();
 			}
@@ -99,6 +91,12 @@ public class CrafterTileEntity extends TileEntity implements ICapabilityProvider
 	@Override
 	public void deserializeNBT(CompoundNBT nbt) {
 		this.inventory.deserializeNBT(nbt);
+		inventoryVersion++;
+	}
+
+	@Override
+	public long getInventoryVersion() {
+		return inventoryVersion;
 	}
 
 	@Override
@@ -188,4 +186,37 @@ public class CrafterTileEntity extends TileEntity implements ICapabilityProvider
 	public IRecipe<?> getRecipeUsed() {
 		return recipe;
 	}
-}
+
+	private class CrafterInventory extends BulkItemStackHandler {
+
+		public CrafterInventory() {
+			super(10);
+		}
+
+		@Override
+		protected void onBatchChanged() {
+			// any input slot will do, they all update the recipe the same way
+			onContentsChanged(0);
+		}
+
+		@Override
+		protected void onContentsChanged(int slot) {
+			super.onContentsChanged(slot);
+			inventoryVersion++;
+			// taking the result consumes ingredients, that can't wait for the batch to end
+			if (slot != 9 && deferChange()) {
+				return;
+			}
+			if (!debounce) {
+				debounce = true;
+				CrafterTileEntity.this.markDirty();
+				if (slot == 9) {
+					if (inventory.getStackInSlot(9) == ItemStack.EMPTY) {
+						CrafterTileEntity.this.consumeIngredients(1);
+					}
+				}
+				CrafterTileEntity.this.onInputChanged();
+				debounce = false;
+			}
+		}
+	}
@@ -0,0 +1,13 @@
+package ca.teamdman.sfm.common.tile;
+
+/**
+ * Tile entity that counts changes to its inventory, so managers can tell it hasn't changed
+ * without looking at every slot.
+ */
+public interface VersionedInventory {
+
+	/**
+	 * @return Value that changes whenever the contents of any face's inventory change
+	 */
+	long getInventoryVersion();
+}
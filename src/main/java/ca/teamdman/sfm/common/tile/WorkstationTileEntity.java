@@ -1,7 +1,10 @@
 package ca.teamdman.sfm.common.tile;
 
+import ca.teamdman.sfm.common.capability.BulkItemStackHandler;
+import ca.teamdman.sfm.common.capability.CapabilityBulkItemHandler;
 import ca.teamdman.sfm.common.item.CraftingContractItem;
 import ca.teamdman.sfm.common.registrar.SFMTiles;
+import ca.teamdman.sfm.common.tile.manager.TrustedHandlers;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import net.minecraft.block.BlockState;
@@ -12,13 +15,17 @@ import net.minecraft.util.Direction;
 import net.minecraftforge.common.capabilities.Capability;
 import net.minecraftforge.common.util.LazyOptional;
 import net.minecraftforge.items.CapabilityItemHandler;
-import net.minecraftforge.items.ItemStackHandler;
 
-public class WorkstationTileEntity extends TileEntity {
+public class WorkstationTileEntity extends TileEntity implements VersionedInventory {
 
-	public final ItemStackHandler INVENTORY = new WorkstationInventory();
-	public final LazyOptional<ItemStackHandler> INVENTORY_CAPABILITY = LazyOptional
+	static {
+		TrustedHandlers.register(WorkstationInventory.class);
+	}
+
+	public final BulkItemStackHandler INVENTORY = new WorkstationInventory();
+	public final LazyOptional<BulkItemStackHandler> INVENTORY_CAPABILITY = LazyOptional
 		.of(() -> INVENTORY);
+	private long inventoryVersion = 0;
 
 	public WorkstationTileEntity() {
 		super(SFMTiles.WORKSTATION.get());
@@ -30,7 +37,8 @@ public class WorkstationTileEntity extends TileEntity {
 	public <T> LazyOptional<T> getCapability(
 		@Nonnull Capability<T> cap, @Nullable Direction side
 	) {
-		if (cap == CapabilityItemHandler.ITEM_HANDLER_CAPABILITY) {
+		if (cap == CapabilityItemHandler.ITEM_HANDLER_CAPABILITY
+			|| cap == CapabilityBulkItemHandler.BULK_ITEM_HANDLER) {
 			return INVENTORY_CAPABILITY.cast();
 		}
 		return super.getCapability(cap, side);
@@ -42,6 +50,12 @@ public class WorkstationTileEntity extends TileEntity {
 	) {
 		super.read(state, nbt);
 		INVENTORY.deserializeNBT(nbt.getCompound("inv"));
+		inventoryVersion++;
+	}
+
+	@Override
+	public long getInventoryVersion() {
+		return inventoryVersion;
 	}
 
 	@Override
@@ -51,7 +65,7 @@ public class WorkstationTileEntity extends TileEntity {
 		return tag;
 	}
 
-	private class WorkstationInventory extends ItemStackHandler {
+	private class WorkstationInventory extends BulkItemStackHandler {
 
 		@Override
 		public boolean isItemValid(
@@ -64,8 +78,17 @@ public class WorkstationTileEntity extends TileEntity {
 			super(27);
 		}
 
+		@Override
+		protected void onBatchChanged() {
+			WorkstationTileEntity.this.markDirty();
+		}
+
 		@Override
 		protected void onContentsChanged(int slot) {
+			inventoryVersion++;
+			if (deferChange()) {
+				return;
+			}
 			WorkstationTileEntity.this.markDirty();
 		}
 	}
@@ -0,0 +1,451 @@
+package ca.teamdman.sfm.common.tile.manager;
+
+import ca.teamdman.sfm.common.flow.data.ItemMovementRuleFlowData;
+import ca.teamdman.sfm.common.tile.manager.ExecutionProfiler.Counters;
+import ca.teamdman.sfm.common.tile.manager.SlotCursors.Cursors;
+import ca.teamdman.sfm.common.util.ItemKey;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.ints.IntSortedSet;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.ToIntFunction;
+import javax.annotation.Nullable;
+import net.minecraft.item.ItemStack;
+import net.minecraftforge.items.IItemHandler;
+
+/**
+ * Moves items into the handlers of an output rule, item by item instead of slot by slot.
+ * <p>
+ * The output and input slots come from the manager's {@link OccupancyIndex}, so they are only
+ * read once per tick however many outputs use them, and the input slots are grouped by item.
+ * Each input slot then only visits output slots its item can go into, partial stacks first,
+ * and handlers without room for the item are skipped entirely. A move costs one simulated
+ * insert and one real extract and insert no matter how many output slots there are.
+ * <p>
+ * Slots are identified by a long packing the index of their handler and the slot number.
+ * <p>
+ * Input slots are read starting where the rule last took items, see {@link SlotCursors}, and
+ * round robin outputs start each input slot at the handler after the one last inserted into.
+ */
+public class BulkTransfer {
+
+	private final CompiledRule<ItemMovementRuleFlowData> OUTPUT;
+	private final ExecutionState STATE;
+	private final ExecutionBudget BUDGET;
+	private final Counters COUNTERS;
+	private final MoveTransaction TRANSACTION;
+	private final OccupancyIndex INDEX;
+	private final long TICK;
+	private final ExecutionPlan PLAN;
+	private final SlotCursors CURSORS;
+	private final Cursors OUT_CURSORS;
+	private final List<SlotOccupancy> OCCUPANCIES = new ArrayList<>();
+	// index of each occupancy in the handler list of the output rule
+	private final IntList HANDLER_INDICES = new IntArrayList();
+	// slots of each handler the output rule allows
+	private final List<BitSet> ALLOWED = new ArrayList<>();
+	private final Map<IItemHandler, Integer> INDICES = new IdentityHashMap<>();
+	private boolean moved = false;
+	@Nullable
+	private Resume suspended;
+
+	public BulkTransfer(
+		CompiledRule<ItemMovementRuleFlowData> output,
+		List<IItemHandler> outputHandlers,
+		ExecutionStep step
+	) {
+		this(
+			output,
+			outputHandlers,
+			step.STATE,
+			step.getBudget(),
+			step.getCounters(),
+			step.TILE.getOccupancyIndex(),
+			step.TILE.getWorld().getGameTime(),
+			step.PLAN,
+			step.TILE.getSlotCursors()
+		);
+	}
+
+	/**
+	 * @param index   Occupancies shared by every output of the manager this tick
+	 * @param tick    Current game time, see {@link OccupancyIndex#get}
+	 * @param cursors Where the rules of the plan last took items from
+	 */
+	public BulkTransfer(
+		CompiledRule<ItemMovementRuleFlowData> output,
+		List<IItemHandler> outputHandlers,
+		ExecutionState state,
+		ExecutionBudget budget,
+		Counters counters,
+		OccupancyIndex index,
+		long tick,
+		ExecutionPlan plan,
+		SlotCursors cursors
+	) {
+		this.OUTPUT = output;
+		this.STATE = state;
+		this.BUDGET = budget;
+		this.COUNTERS = counters;
+		this.TRANSACTION = new MoveTransaction(STATE, COUNTERS);
+		this.INDEX = index;
+		this.TICK = tick;
+		this.PLAN = plan;
+		this.CURSORS = cursors;
+		this.OUT_CURSORS = CURSORS.get(PLAN, output.RULE.getId(), outputHandlers.size());
+		for (int i = 0; i < outputHandlers.size(); i++) {
+			IItemHandler handler = outputHandlers.get(i);
+			// the same handler is often exposed on several faces
+			if (INDICES.containsKey(handler)) {
+				continue;
+			}
+			SlotOccupancy occupancy = getOccupancy(handler);
+			if (occupancy.isFull()) {
+				continue;
+			}
+			BitSet allowed = new BitSet(occupancy.getSlots());
+			output.RULE.slots.getSlots(occupancy.getSlots())
+				.filter(slot -> slot < occupancy.getSlots())
+				.forEach(allowed::set);
+			if (allowed.isEmpty()) {
+				continue;
+			}
+			INDICES.put(handler, OCCUPANCIES.size());
+			OCCUPANCIES.add(occupancy);
+			HANDLER_INDICES.add(i);
+			ALLOWED.add(allowed);
+		}
+	}
+
+	private SlotOccupancy getOccupancy(IItemHandler handler) {
+		if (INDEX.getIfPresent(handler, TICK) == null) {
+			// first use this tick, the occupancy reads every slot
+			BUDGET.consume(handler.getSlots());
+			COUNTERS.slotVisits += handler.getSlots();
+		}
+		return INDEX.get(handler, TICK);
+	}
+
+	private static long pack(int handler, int slot) {
+		return (long) handler << 32 | slot & 0xFFFFFFFFL;
+	}
+
+	/**
+	 * @return Index of the occupancy to try first, the handler after the one last inserted
+	 * into for round robin outputs
+	 */
+	private int getFirstHandler() {
+		if (!OUTPUT.RULE.roundRobin) {
+			return 0;
+		}
+		for (int index = 0; index < HANDLER_INDICES.size(); index++) {
+			if (HANDLER_INDICES.getInt(index) >= OUT_CURSORS.nextHandler) {
+				return index;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * @return true if anything was moved by this transfer
+	 */
+	public boolean hasMoved() {
+		return moved;
+	}
+
+	/**
+	 * @return Where to pick up next tick, if the last {@link #run} ran out of budget
+	 */
+	public Optional<Resume> getSuspended() {
+		return Optional.ofNullable(suspended);
+	}
+
+	/**
+	 * Moves as much as the quotas allow from the given input into the output.
+	 *
+	 * @param inputIndex Position of the input among the inputs of the output
+	 * @param resume     Where a previous tick stopped in this input, its grouped slots are used
+	 *                   again as long as the input still has the same handlers
+	 * @return false if the budget ran out before the input was done, see {@link
+	 * #getSuspended()}
+	 */
+	public boolean run(
+		int inputIndex,
+		CompiledRule<ItemMovementRuleFlowData> input,
+		List<IItemHandler> handlers,
+		@Nullable Resume resume
+	) {
+		suspended = null;
+		if (OCCUPANCIES.isEmpty()) {
+			// every output handler is full
+			return true;
+		}
+		ItemMovementRuleFlowData inRule = input.RULE;
+
+		List<IItemHandler> inHandlers;
+		List<Map.Entry<ItemKey, List<int[]>>> ordered;
+		int firstGroup = 0, firstSource = 0;
+		if (resume != null && resume.INPUT == inputIndex && resume.HANDLERS.equals(handlers)) {
+			// moved slots are checked against the live inventory, so the old grouping holds
+			inHandlers = resume.HANDLERS;
+			ordered = resume.QUEUE;
+			firstGroup = resume.GROUP;
+			firstSource = resume.SOURCE;
+		} else {
+			inHandlers = handlers;
+			ordered = group(inRule, inHandlers);
+		}
+		Cursors inCursors = CURSORS.get(PLAN, inRule.getId(), inHandlers.size());
+
+		boolean progressed = false;
+		for (int g = firstGroup; g < ordered.size(); g++) {
+			Map.Entry<ItemKey, List<int[]>> group = ordered.get(g);
+			List<int[]> sources = group.getValue();
+			LongSet refused = new LongOpenHashSet();
+			for (int s = g == firstGroup ? firstSource : 0; s < sources.size(); s++) {
+				int[] source = sources.get(s);
+				// stop between slots once out of budget, but always make some progress
+				if (progressed && BUDGET.isExhausted()) {
+					suspended = new Resume(inputIndex, inHandlers, ordered, g, s);
+					return false;
+				}
+				// nothing more is allowed to move
+				if (STATE.isExhausted(input) || STATE.isExhausted(OUTPUT)) {
+					return true;
+				}
+				IItemHandler inHandler = inHandlers.get(source[0]);
+				if (moveSlot(input, inHandler, source[1], group.getKey(), refused)) {
+					progressed = true;
+					inCursors.EXTRACT[source[0]] = source[2];
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Groups the input slots by item, ordered from where the rule last took items.
+	 *
+	 * @return Slots of each item, each slot being the handler, the slot, the position of the
+	 * slot in the rule and the number of slots in the rule
+	 */
+	private List<Map.Entry<ItemKey, List<int[]>>> group(
+		ItemMovementRuleFlowData inRule,
+		List<IItemHandler> inHandlers
+	) {
+		Cursors inCursors = CURSORS.get(PLAN, inRule.getId(), inHandlers.size());
+
+		// group the input slots by item, read from the occupancy shared by every output
+		// each source is the handler, the slot, and the position of the slot in the rule
+		Map<ItemKey, List<int[]>> groups = new HashMap<>();
+		for (int h = 0; h < inHandlers.size(); h++) {
+			SlotOccupancy occupancy = getOccupancy(inHandlers.get(h));
+			int[] slots = inRule.slots.getSlots(occupancy.getSlots()).toArray();
+			int[] positions = new int[occupancy.getSlots()];
+			Arrays.fill(positions, -1);
+			for (int i = 0; i < slots.length; i++) {
+				if (slots[i] >= 0 && slots[i] < positions.length) {
+					positions[slots[i]] = i;
+				}
+			}
+			for (ItemKey key : occupancy.getItems()) {
+				for (int slot : occupancy.getSlotsHolding(key)) {
+					if (positions[slot] != -1) {
+						BUDGET.consume(1);
+						groups.computeIfAbsent(key, __ -> new ArrayList<>())
+							.add(new int[]{h, slot, positions[slot], slots.length});
+					}
+				}
+			}
+		}
+
+		// slot order from where items were last taken, groups by their first slot in that order
+		ToIntFunction<int[]> order = source -> source[3] == 0 ? 0 : Math.floorMod(
+			source[2] - inCursors.EXTRACT[source[0]],
+			source[3]
+		);
+		Comparator<int[]> bySlot = Comparator.<int[]>comparingInt(source -> source[0])
+			.thenComparingInt(order);
+		List<Map.Entry<ItemKey, List<int[]>>> ordered = new ArrayList<>(groups.entrySet());
+		ordered.forEach(group -> group.getValue().sort(bySlot));
+		ordered.sort(Comparator.comparing(group -> group.getValue().get(0), bySlot));
+		return ordered;
+	}
+
+	/**
+	 * Moves the contents of one input slot into the output, partial stacks first.
+	 *
+	 * @param refused Output slots that refused this item, shared by the whole group
+	 * @return true if anything was moved
+	 */
+	private boolean moveSlot(
+		CompiledRule<ItemMovementRuleFlowData> input,
+		IItemHandler inHandler,
+		int inSlot,
+		ItemKey key,
+		LongSet refused
+	) {
+		ItemStack stack = inHandler.getStackInSlot(inSlot);
+		if (stack.isEmpty() || !key.matches(stack)) {
+			// changed by something that didn't keep the occupancy up to date
+			getOccupancy(inHandler).update(inSlot);
+			return false;
+		}
+
+		// transfer can be throttled input and output at the same time
+		int inMatcher = input.RULE.getBestItemMatcher(input, stack, STATE);
+		int outMatcher = OUTPUT.RULE.getBestItemMatcher(OUTPUT, stack, STATE);
+		int remaining = Math.min(
+			STATE.getRemainingQuantity(input.RULE, inMatcher),
+			STATE.getRemainingQuantity(OUTPUT.RULE, outMatcher)
+		);
+		if (remaining <= 0) {
+			return false;
+		}
+
+		Integer self = INDICES.get(inHandler);
+		int first = getFirstHandler();
+		boolean movedAny = false;
+		for (int pass = 0; pass < 2 && remaining > 0; pass++) {
+			// partial stacks of this item in every handler first, then empty slots
+			for (int i = 0; i < OCCUPANCIES.size() && remaining > 0; i++) {
+				int index = Cursors.rotate(first, i, OCCUPANCIES.size());
+				SlotOccupancy occupancy = OCCUPANCIES.get(index);
+				if (!occupancy.hasRoomFor(key)) {
+					continue;
+				}
+				BitSet allowed = ALLOWED.get(index);
+				int skip = self != null && self == index ? inSlot : -1;
+				// walk the live view by position, moves reclassify slots as we go
+				int cursor = -1;
+				while (remaining > 0) {
+					IntSortedSet targets = pass == 0
+						? occupancy.getPartialSlots(key)
+						: occupancy.getEmptySlots();
+					IntSortedSet rest = cursor < 0 ? targets : targets.tailSet(cursor + 1);
+					if (rest.isEmpty()) {
+						break;
+					}
+					int outSlot = rest.firstInt();
+					cursor = outSlot;
+					long target = pack(index, outSlot);
+					if (outSlot == skip || !allowed.get(outSlot) || refused.contains(target)) {
+						continue;
+					}
+					BUDGET.consume(1);
+
+					int count = move(
+						input,
+						inHandler,
+						inSlot,
+						occupancy.HANDLER,
+						outSlot,
+						remaining
+					);
+					if (count < 0) {
+						// source can't give any more
+						return movedAny;
+					}
+					if (count == 0) {
+						refused.add(target);
+						continue;
+					}
+					movedAny = true;
+					remaining -= count;
+					OUT_CURSORS.nextHandler = HANDLER_INDICES.getInt(index) + 1;
+					STATE.recordUsage(inMatcher, count);
+					STATE.recordUsage(outMatcher, count);
+
+					// keep the index in step with both slots, other faces are read again
+					INDEX.onMoved(occupancy.HANDLER);
+					INDEX.onMoved(inHandler);
+					occupancy.update(outSlot, TRANSACTION.wasRerouted());
+					SlotOccupancy source = INDEX.getIfPresent(inHandler, TICK);
+					if (source != null) {
+						source.update(inSlot, TRANSACTION.wasRerouted());
+					}
+
+					ItemStack left = source != null
+						? source.getStack(inSlot)
+						: inHandler.getStackInSlot(inSlot);
+					if (left.isEmpty()) {
+						return true;
+					}
+				}
+			}
+		}
+		return movedAny;
+	}
+
+	/**
+	 * Moves up to the given amount between two slots.
+	 *
+	 * @return Amount moved, 0 if the output slot wouldn't take any, -1 if the input slot
+	 * wouldn't give any
+	 */
+	private int move(
+		CompiledRule<ItemMovementRuleFlowData> input,
+		IItemHandler inHandler,
+		int inSlot,
+		IItemHandler outHandler,
+		int outSlot,
+		int amount
+	) {
+		// let the output have its say before anything leaves the input
+		int accepted = TrustedHandlers
+			.simulateMove(inHandler, inSlot, outHandler, outSlot, amount, COUNTERS);
+		if (accepted <= 0) {
+			return accepted;
+		}
+
+		// the output may still take less than it said it would, the rest is put back
+		int inserted = TRANSACTION.move(
+			inHandler,
+			inSlot,
+			input.RULE.slots,
+			outHandler,
+			outSlot,
+			OUTPUT.RULE.slots,
+			accepted
+		);
+		moved |= inserted > 0;
+		return inserted;
+	}
+
+	/**
+	 * Resume point for an output suspended part way through a bulk transfer: the input it was
+	 * on, its grouped slots and how far through them it got. Quota usage is kept in the
+	 * execution state and moved items are gone from the inputs, so nothing is moved twice.
+	 */
+	public static class Resume {
+
+		public final int INPUT;
+		private final List<IItemHandler> HANDLERS;
+		private final List<Map.Entry<ItemKey, List<int[]>>> QUEUE;
+		private final int GROUP, SOURCE;
+
+		private Resume(
+			int input,
+			List<IItemHandler> handlers,
+			List<Map.Entry<ItemKey, List<int[]>>> queue,
+			int group,
+			int source
+		) {
+			this.INPUT = input;
+			this.HANDLERS = handlers;
+			this.QUEUE = queue;
+			this.GROUP = group;
+			this.SOURCE = source;
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package ca.teamdman.sfm.common.tile.manager;
+
+import ca.teamdman.sfm.common.flow.core.ItemMatcher;
+import ca.teamdman.sfm.common.flow.core.TileMatcher;
+import ca.teamdman.sfm.common.flow.data.FlowData;
+import ca.teamdman.sfm.common.flow.data.ItemPickerMatcherFlowData;
+import ca.teamdman.sfm.common.flow.holder.BasicFlowDataContainer;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+
+/**
+ * A rule with its matcher ids already resolved against the flow data container.
+ *
+ * @param <R> Rule type
+ */
+public class CompiledRule<R extends FlowData> {
+
+	public final R RULE;
+	public final List<ItemMatcher> ITEM_MATCHERS;
+	/**
+	 * Plan wide ids of {@link #ITEM_MATCHERS}, in the same order
+	 */
+	public final int[] ITEM_MATCHER_IDS;
+	public final List<TileMatcher> TILE_MATCHERS;
+	/**
+	 * Indices into {@link #ITEM_MATCHERS} of the matchers that may match a stack of an item, in
+	 * list order. Item pickers only match their own item, the other kinds are checked for every
+	 * item and make up {@link #FALLBACK_MATCHERS}.
+	 */
+	private final Reference2ObjectMap<Item, int[]> MATCHERS_BY_ITEM;
+	private final int[] FALLBACK_MATCHERS;
+
+	public CompiledRule(
+		R rule,
+		Collection<UUID> itemMatcherIds,
+		Collection<UUID> tileMatcherIds,
+		BasicFlowDataContainer container,
+		ToIntFunction<ItemMatcher> matcherIds
+	) {
+		this.RULE = rule;
+		this.ITEM_MATCHERS = itemMatcherIds.stream()
+			.map(id -> container.get(id, ItemMatcher.class))
+			.filter(Optional::isPresent)
+			.map(Optional::get)
+			.collect(Collectors.toList());
+		this.ITEM_MATCHER_IDS = ITEM_MATCHERS.stream()
+			.mapToInt(matcherIds)
+			.toArray();
+		this.TILE_MATCHERS = tileMatcherIds.stream()
+			.map(id -> container.get(id, TileMatcher.class))
+			.filter(Optional::isPresent)
+			.map(Optional::get)
+			.collect(Collectors.toList());
+
+		Reference2ObjectMap<Item, IntList> byItem = new Reference2ObjectOpenHashMap<>();
+		IntList fallback = new IntArrayList();
+		for (int i = 0; i < ITEM_MATCHERS.size(); i++) {
+			ItemMatcher matcher = ITEM_MATCHERS.get(i);
+			if (matcher instanceof ItemPickerMatcherFlowData) {
+				Item item = ((ItemPickerMatcherFlowData) matcher).stack.getItem();
+				byItem.computeIfAbsent(item, __ -> new IntArrayList()).add(i);
+			} else {
+				fallback.add(i);
+			}
+		}
+		this.FALLBACK_MATCHERS = fallback.toIntArray();
+		this.MATCHERS_BY_ITEM = new Reference2ObjectOpenHashMap<>(byItem.size());
+		byItem.forEach((item, pickers) -> {
+			// merged in list order, ties between matchers go to the first one
+			IntList candidates = new IntArrayList(pickers);
+			candidates.addAll(fallback);
+			int[] sorted = candidates.toIntArray();
+			Arrays.sort(sorted);
+			MATCHERS_BY_ITEM.put(item, sorted);
+		});
+	}
+
+	/**
+	 * @return Indices into {@link #ITEM_MATCHERS} of the matchers that may match the stack, in
+	 * list order, each still has to be asked
+	 */
+	public int[] getCandidateMatchers(ItemStack stack) {
+		int[] candidates = MATCHERS_BY_ITEM.get(stack.getItem());
+		return candidates == null ? FALLBACK_MATCHERS : candidates;
+	}
+
+	/**
+	 * @return Plan ids of the matchers that match the stack, in list order
+	 */
+	public int[] getMatchingMatchers(ItemStack stack) {
+		IntList matching = new IntArrayList();
+		for (int i : getCandidateMatchers(stack)) {
+			if (ITEM_MATCHERS.get(i).matches(stack)) {
+				matching.add(ITEM_MATCHER_IDS[i]);
+			}
+		}
+		return matching.toIntArray();
+	}
+}
@@ -0,0 +1,35 @@
+package ca.teamdman.sfm.common.tile.manager;
+
+import ca.teamdman.sfm.common.config.Config;
+
+/**
+ * Forge Energy a manager may still move this tick, shared by all of its energy outputs.
+ * <p>
+ * Managers usually run every few ticks rather than every tick, so the allowance covers every
+ * tick since it was last refilled, the limit then holds on average whatever the interval.
+ */
+public class EnergyAllowance {
+
+	private long tick = Long.MIN_VALUE;
+	private long remaining;
+
+	/**
+	 * @return Energy that may still be moved during the given tick
+	 */
+	public int getRemaining(long gameTime) {
+		int max = Config.Server.maxEnergyPerTick;
+		if (max == 0) {
+			return Integer.MAX_VALUE;
+		}
+		if (gameTime != tick) {
+			long elapsed = tick == Long.MIN_VALUE ? 1 : Math.max(1, gameTime - tick);
+			remaining = Math.min(elapsed, Integer.MAX_VALUE / max) * max;
+			tick = gameTime;
+		}
+		return (int) Math.max(0, remaining);
+	}
+
+	public void use(int amount) {
+		remaining -= amount;
+	}
+}
@@ -0,0 +1,46 @@
+package ca.teamdman.sfm.common.tile.manager;
+
+import ca.teamdman.sfm.common.config.Config;
+
+/**
+ * Limits how much work a manager may do in a single tick.
+ * <p>
+ * Work that doesn't fit is suspended and picked up again next tick, see {@link
+ * ExecutionStep#suspend(Object)}.
+ */
+public class ExecutionBudget {
+
+	private final long DEADLINE;
+	private long remainingOperations;
+
+	/**
+	 * @param timeBudgetMicros Time allowed from now, 0 for no limit
+	 * @param operationBudget  Operations allowed, 0 for no limit
+	 */
+	public ExecutionBudget(long timeBudgetMicros, long operationBudget) {
+		this.DEADLINE = timeBudgetMicros <= 0
+			? Long.MAX_VALUE
+			: System.nanoTime() + timeBudgetMicros * 1000;
+		this.remainingOperations = operationBudget <= 0
+			? Long.MAX_VALUE
+			: operationBudget;
+	}
+
+	/**
+	 * @return Budget for the current tick according to the server config
+	 */
+	public static ExecutionBudget forTick() {
+		return new ExecutionBudget(
+			Config.Server.executionTimeBudgetMicros,
+			Config.Server.executionOperationBudget
+		);
+	}
+
+	public void consume(int operations) {
+		remainingOperations -= operations;
+	}
+
+	public boolean isExhausted() {
+		return remainingOperations <= 0 || System.nanoTime() >= DEADLINE;
+	}
+}
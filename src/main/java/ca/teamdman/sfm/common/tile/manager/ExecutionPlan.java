@@ -0,0 +1,317 @@
+package ca.teamdman.sfm.common.tile.manager;
+
+import ca.teamdman.sfm.common.flow.core.ItemMatcher;
+import ca.teamdman.sfm.common.flow.data.FlowData;
+import ca.teamdman.sfm.common.flow.data.InventoryChangeTriggerFlowData;
+import ca.teamdman.sfm.common.flow.data.ItemConditionRuleFlowData;
+import ca.teamdman.sfm.common.flow.data.ItemMovementRuleFlowData;
+import ca.teamdman.sfm.common.flow.data.RelationshipFlowData;
+import ca.teamdman.sfm.common.flow.data.TimerTriggerFlowData;
+import ca.teamdman.sfm.common.flow.holder.BasicFlowDataContainer;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable, array-indexed form of a manager program.
+ * <p>
+ * Walking the relationships in a {@link BasicFlowDataContainer} means streaming every
+ * relationship for every step. The plan does that work once, so that each step is a lookup
+ * into the successor array of the current node.
+ */
+public class ExecutionPlan {
+
+	private final FlowData[] NODES;
+	private final int[][] SUCCESSORS;
+	private final int[] TIMER_TRIGGERS;
+	private final int[] CHANGE_TRIGGERS;
+	private final int[] TOPOLOGICAL_POSITIONS;
+	private final Object2IntMap<UUID> INDICES;
+	private final Map<UUID, CompiledRule<?>> RULES;
+	private final int[] MATCHER_QUANTITIES;
+	private final boolean CYCLIC;
+	private final long FRAME_COUNT;
+
+	private ExecutionPlan(
+		FlowData[] nodes,
+		int[][] successors,
+		int[] timerTriggers,
+		int[] changeTriggers,
+		int[] topologicalPositions,
+		Object2IntMap<UUID> indices,
+		Map<UUID, CompiledRule<?>> rules,
+		int[] matcherQuantities,
+		boolean cyclic,
+		long frameCount
+	) {
+		this.NODES = nodes;
+		this.SUCCESSORS = successors;
+		this.TIMER_TRIGGERS = timerTriggers;
+		this.CHANGE_TRIGGERS = changeTriggers;
+		this.TOPOLOGICAL_POSITIONS = topologicalPositions;
+		this.INDICES = indices;
+		this.RULES = rules;
+		this.MATCHER_QUANTITIES = matcherQuantities;
+		this.CYCLIC = cyclic;
+		this.FRAME_COUNT = frameCount;
+	}
+
+	public static ExecutionPlan compile(BasicFlowDataContainer container) {
+		List<RelationshipFlowData> relationships = container.get(RelationshipFlowData.class)
+			.collect(Collectors.toList());
+
+		// assign an index to every node that can take part in execution
+		List<FlowData> nodes = new ArrayList<>();
+		Object2IntOpenHashMap<UUID> indices = new Object2IntOpenHashMap<>();
+		indices.defaultReturnValue(-1);
+		container.get(TimerTriggerFlowData.class)
+			.forEach(trigger -> addNode(trigger, nodes, indices));
+		container.get(InventoryChangeTriggerFlowData.class)
+			.forEach(trigger -> addNode(trigger, nodes, indices));
+		for (RelationshipFlowData rel : relationships) {
+			container.get(rel.from).ifPresent(data -> addNode(data, nodes, indices));
+			container.get(rel.to).ifPresent(data -> addNode(data, nodes, indices));
+		}
+
+		// resolve relationships into successor index arrays
+		IntArrayList[] successorLists = new IntArrayList[nodes.size()];
+		for (int i = 0; i < successorLists.length; i++) {
+			successorLists[i] = new IntArrayList();
+		}
+		for (RelationshipFlowData rel : relationships) {
+			int from = indices.getInt(rel.from);
+			int to = indices.getInt(rel.to);
+			if (from != -1 && to != -1) {
+				successorLists[from].add(to);
+			}
+		}
+
+		// the editor refuses cycles, but saved data may not have gone through it
+		// drop any relationship that leads back into its own path so execution always ends
+		IntArrayList postOrder = new IntArrayList(nodes.size());
+		boolean cyclic = removeBackEdges(successorLists, postOrder);
+		int[] topologicalPositions = new int[nodes.size()];
+		for (int i = 0; i < postOrder.size(); i++) {
+			topologicalPositions[postOrder.getInt(i)] = postOrder.size() - 1 - i;
+		}
+		int[][] successors = new int[successorLists.length][];
+		for (int i = 0; i < successors.length; i++) {
+			successors[i] = successorLists[i].toIntArray();
+		}
+
+		int[] timerTriggers = container.get(TimerTriggerFlowData.class)
+			.mapToInt(trigger -> indices.getInt(trigger.getId()))
+			.toArray();
+		int[] changeTriggers = container.get(InventoryChangeTriggerFlowData.class)
+			.mapToInt(trigger -> indices.getInt(trigger.getId()))
+			.toArray();
+
+		// count the frames a run would create, frames meeting at a node are merged so it runs
+		// once, creating one frame per edge leaving it on top of the frame of each trigger
+		boolean[] reachable = new boolean[nodes.size()];
+		IntArrayList open = new IntArrayList();
+		long frameCount = 0;
+		for (int[] triggers : new int[][]{timerTriggers, changeTriggers}) {
+			for (int trigger : triggers) {
+				frameCount++;
+				if (!reachable[trigger]) {
+					reachable[trigger] = true;
+					open.push(trigger);
+				}
+			}
+		}
+		while (!open.isEmpty()) {
+			IntArrayList edges = successorLists[open.popInt()];
+			frameCount += edges.size();
+			for (int next : edges) {
+				if (!reachable[next]) {
+					reachable[next] = true;
+					open.push(next);
+				}
+			}
+		}
+
+		// resolve the matchers used by each rule, numbering item matchers for quota tracking
+		Reference2IntOpenHashMap<ItemMatcher> matcherIds = new Reference2IntOpenHashMap<>();
+		IntArrayList matcherQuantities = new IntArrayList();
+		ToIntFunction<ItemMatcher> matcherId = matcher -> matcherIds.computeIntIfAbsent(
+			matcher,
+			__ -> {
+				matcherQuantities.add(matcher.getQuantity());
+				return matcherQuantities.size() - 1;
+			}
+		);
+		Map<UUID, CompiledRule<?>> rules = new HashMap<>();
+		container.get(ItemMovementRuleFlowData.class).forEach(rule -> rules.put(
+			rule.getId(),
+			new CompiledRule<>(
+				rule,
+				rule.itemMatcherIds,
+				rule.tileMatcherIds,
+				container,
+				matcherId
+			)
+		));
+		container.get(ItemConditionRuleFlowData.class).forEach(rule -> rules.put(
+			rule.getId(),
+			new CompiledRule<>(
+				rule,
+				rule.itemMatcherIds,
+				rule.tileMatcherIds,
+				container,
+				matcherId
+			)
+		));
+
+		return new ExecutionPlan(
+			nodes.toArray(new FlowData[0]),
+			successors,
+			timerTriggers,
+			changeTriggers,
+			topologicalPositions,
+			indices,
+			rules,
+			matcherQuantities.toIntArray(),
+			cyclic,
+			frameCount
+		);
+	}
+
+	/**
+	 * Depth first search removing every edge that points to a node still on the stack.
+	 *
+	 * @param successors Successor lists, modified in place
+	 * @param postOrder  Receives the nodes in the order they finished, successors first
+	 * @return true if any edges were removed
+	 */
+	private static boolean removeBackEdges(IntArrayList[] successors, IntArrayList postOrder) {
+		final byte UNVISITED = 0, VISITING = 1, DONE = 2;
+		byte[] status = new byte[successors.length];
+		int[] nextEdge = new int[successors.length];
+		IntArrayList stack = new IntArrayList();
+		boolean removed = false;
+		for (int root = 0; root < successors.length; root++) {
+			if (status[root] != UNVISITED) {
+				continue;
+			}
+			status[root] = VISITING;
+			stack.push(root);
+			while (!stack.isEmpty()) {
+				int node = stack.topInt();
+				IntArrayList edges = successors[node];
+				if (nextEdge[node] < edges.size()) {
+					int to = edges.getInt(nextEdge[node]);
+					if (status[to] == VISITING) {
+						edges.removeInt(nextEdge[node]);
+						removed = true;
+					} else {
+						nextEdge[node]++;
+						if (status[to] == UNVISITED) {
+							status[to] = VISITING;
+							stack.push(to);
+						}
+					}
+				} else {
+					status[node] = DONE;
+					stack.popInt();
+					postOrder.add(node);
+				}
+			}
+		}
+		return removed;
+	}
+
+	private static void addNode(
+		FlowData data,
+		List<FlowData> nodes,
+		Object2IntMap<UUID> indices
+	) {
+		if (!indices.containsKey(data.getId())) {
+			indices.put(data.getId(), nodes.size());
+			nodes.add(data);
+		}
+	}
+
+	public int size() {
+		return NODES.length;
+	}
+
+	public FlowData getNode(int index) {
+		return NODES[index];
+	}
+
+	/**
+	 * @return Index of the node with the given id, or -1 if it is not part of the plan
+	 */
+	public int indexOf(UUID id) {
+		return INDICES.getInt(id);
+	}
+
+	public int[] getSuccessors(int index) {
+		return SUCCESSORS[index];
+	}
+
+	public int[] getTimerTriggers() {
+		return TIMER_TRIGGERS;
+	}
+
+	/**
+	 * @return Indices of the {@link InventoryChangeTriggerFlowData} nodes
+	 */
+	public int[] getChangeTriggers() {
+		return CHANGE_TRIGGERS;
+	}
+
+	/**
+	 * @return Position of the node in a topological order of the plan, every node comes before
+	 * its successors
+	 */
+	public int getTopologicalPosition(int index) {
+		return TOPOLOGICAL_POSITIONS[index];
+	}
+
+	/**
+	 * @return true if relationships had to be dropped because they formed a loop
+	 */
+	public boolean isCyclic() {
+		return CYCLIC;
+	}
+
+	/**
+	 * @return Frames a run would create if every trigger fired and every branch was taken
+	 */
+	public long getFrameCount() {
+		return FRAME_COUNT;
+	}
+
+	/**
+	 * @return Quantity of each item matcher, indexed by the ids in {@link
+	 * CompiledRule#ITEM_MATCHER_IDS}
+	 */
+	public int[] getMatcherQuantities() {
+		return MATCHER_QUANTITIES;
+	}
+
+	/**
+	 * @param id    Rule id
+	 * @param clazz Rule type
+	 * @return The compiled rule, if one of the given type exists
+	 */
+	@SuppressWarnings("unchecked")
+	public <R extends FlowData> Optional<CompiledRule<R>> getRule(UUID id, Class<R> clazz) {
+		CompiledRule<?> rule = RULES.get(id);
+		if (rule != null && clazz.isInstance(rule.RULE)) {
+			return Optional.of((CompiledRule<R>) rule);
+		}
+		return Optional.empty();
+	}
+}
@@ -0,0 +1,182 @@
+package ca.teamdman.sfm.common.tile.manager;
+
+import ca.teamdman.sfm.common.util.SFMUtil;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import net.minecraft.network.PacketBuffer;
+
+/**
+ * Records how expensive each node of a manager program is over a rolling window.
+ * <p>
+ * Only active while someone has the manager open, otherwise execution skips the timing and
+ * counts into {@link Counters#DISCARD}.
+ */
+public class ExecutionProfiler {
+
+	public static final int BUCKET_TICKS = 20;
+	public static final int BUCKETS = 10;
+	private static final int NANOS = 0, RUNS = 1, SLOT_VISITS = 2, EXTRACTS = 3, INSERTS = 4,
+		MOVED = 5, STAT_COUNT = 6;
+
+	private final Map<UUID, long[][]> STATS = new HashMap<>();
+	private boolean active = false;
+	private long currentBucket = -1;
+	private long lastSync = Long.MIN_VALUE;
+
+	public boolean isActive() {
+		return active;
+	}
+
+	/**
+	 * Stats are discarded when the profiler is turned off so they don't go stale.
+	 */
+	public void setActive(boolean active) {
+		if (!active && this.active) {
+			STATS.clear();
+			currentBucket = -1;
+		}
+		this.active = active;
+	}
+
+	/**
+	 * Moves the window forward, clearing buckets that fell out of it.
+	 */
+	public void advance(long gameTime) {
+		long bucket = gameTime / BUCKET_TICKS;
+		if (currentBucket != -1 && bucket > currentBucket) {
+			long cleared = Math.min(bucket - currentBucket, BUCKETS);
+			for (long b = bucket - cleared + 1; b <= bucket; b++) {
+				int column = (int) (b % BUCKETS);
+				for (long[][] stats : STATS.values()) {
+					for (long[] stat : stats) {
+						stat[column] = 0;
+					}
+				}
+			}
+		}
+		currentBucket = bucket;
+	}
+
+	public void record(UUID node, long nanos, Counters counters) {
+		long[][] stats = STATS.computeIfAbsent(node, __ -> new long[STAT_COUNT][BUCKETS]);
+		int column = (int) (Math.max(0, currentBucket) % BUCKETS);
+		stats[NANOS][column] += nanos;
+		stats[RUNS][column]++;
+		stats[SLOT_VISITS][column] += counters.slotVisits;
+		stats[EXTRACTS][column] += counters.extractCalls;
+		stats[INSERTS][column] += counters.insertCalls;
+		stats[MOVED][column] += counters.itemsMoved;
+	}
+
+	/**
+	 * @return true once per bucket, when the stats should be sent to viewers
+	 */
+	public boolean shouldSync(long gameTime) {
+		// the first sync is always due, subtracting from the initial value would overflow
+		if (lastSync == Long.MIN_VALUE || gameTime - lastSync >= BUCKET_TICKS) {
+			lastSync = gameTime;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return Totals over the window for every node that executed in it
+	 */
+	public List<NodeSummary> summarize() {
+		List<NodeSummary> rtn = new ArrayList<>(STATS.size());
+		STATS.forEach((id, stats) -> {
+			long[] totals = new long[STAT_COUNT];
+			for (int i = 0; i < STAT_COUNT; i++) {
+				for (long value : stats[i]) {
+					totals[i] += value;
+				}
+			}
+			if (totals[RUNS] > 0) {
+				rtn.add(new NodeSummary(
+					id,
+					totals[NANOS],
+					totals[RUNS],
+					totals[SLOT_VISITS],
+					totals[EXTRACTS],
+					totals[INSERTS],
+					totals[MOVED]
+				));
+			}
+		});
+		return rtn;
+	}
+
+	/**
+	 * Work done by a single execution of a node.
+	 */
+	public static class Counters {
+
+		/**
+		 * Shared sink used while profiling is off
+		 */
+		public static final Counters DISCARD = new Counters();
+
+		public int slotVisits;
+		public int extractCalls;
+		public int insertCalls;
+		public int itemsMoved;
+	}
+
+	/**
+	 * Totals for one node over the window, as sent to the client.
+	 */
+	public static class NodeSummary {
+
+		public final UUID ID;
+		public final long NANOS;
+		public final long RUNS;
+		public final long SLOT_VISITS;
+		public final long EXTRACT_CALLS;
+		public final long INSERT_CALLS;
+		public final long ITEMS_MOVED;
+
+		public NodeSummary(
+			UUID id,
+			long nanos,
+			long runs,
+			long slotVisits,
+			long extractCalls,
+			long insertCalls,
+			long itemsMoved
+		) {
+			this.ID = id;
+			this.NANOS = nanos;
+			this.RUNS = runs;
+			this.SLOT_VISITS = slotVisits;
+			this.EXTRACT_CALLS = extractCalls;
+			this.INSERT_CALLS = insertCalls;
+			this.ITEMS_MOVED = itemsMoved;
+		}
+
+		public static NodeSummary fromBuffer(PacketBuffer buf) {
+			return new NodeSummary(
+				SFMUtil.readUUID(buf),
+				buf.readVarLong(),
+				buf.readVarLong(),
+				buf.readVarLong(),
+				buf.readVarLong(),
+				buf.readVarLong(),
+				buf.readVarLong()
+			);
+		}
+
+		public void toBuffer(PacketBuffer buf) {
+			SFMUtil.writeUUID(ID, buf);
+			buf.writeVarLong(NANOS);
+			buf.writeVarLong(RUNS);
+			buf.writeVarLong(SLOT_VISITS);
+			buf.writeVarLong(EXTRACT_CALLS);
+			buf.writeVarLong(INSERT_CALLS);
+			buf.writeVarLong(ITEMS_MOVED);
+		}
+	}
+}
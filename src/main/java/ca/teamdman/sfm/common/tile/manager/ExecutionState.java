@@ -1,40 +1,104 @@
 package ca.teamdman.sfm.common.tile.manager;
 
-import ca.teamdman.sfm.common.flow.core.ItemMatcher;
 import ca.teamdman.sfm.common.flow.data.ItemMovementRuleFlowData;
 import ca.teamdman.sfm.common.flow.data.ItemMovementRuleFlowData.FilterMode;
-import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
-import java.util.Map;
-import javax.annotation.Nullable;
+import java.util.Arrays;
 
+/**
+ * Quota usage for a single run of a program.
+ * <p>
+ * Item matchers are identified by the dense ids assigned when the {@link ExecutionPlan} was
+ * compiled, with -1 meaning no matcher, so checking and recording usage is an array access.
+ */
 public class ExecutionState {
 
-	private final Map<ItemMatcher, Integer> USAGE_HISTORY = new Object2IntOpenHashMap<>();
+	private final int[] QUANTITIES;
+	private final int[] USAGE;
 
-	public int getRemainingQuantity(
-		ItemMovementRuleFlowData rule,
-		@Nullable ItemMatcher matcher
-	) {
+	public ExecutionState(ExecutionPlan plan) {
+		this(plan.getMatcherQuantities());
+	}
+
+	private ExecutionState(int[] quantities) {
+		this.QUANTITIES = quantities;
+		this.USAGE = new int[quantities.length];
+	}
+
+	/**
+	 * @return true if this state tracks the matchers of the given plan
+	 */
+	public boolean isFor(ExecutionPlan plan) {
+		return QUANTITIES == plan.getMatcherQuantities();
+	}
+
+	/**
+	 * Forget all usage, ready for the next run.
+	 */
+	public void reset() {
+		Arrays.fill(USAGE, 0);
+	}
+
+	/**
+	 * @return Independent copy of the usage recorded so far, for planning off the server thread
+	 */
+	public ExecutionState copy() {
+		ExecutionState other = new ExecutionState(QUANTITIES);
+		System.arraycopy(USAGE, 0, other.USAGE, 0, USAGE.length);
+		return other;
+	}
+
+	/**
+	 * @param matcher Plan id of the matcher, or -1 if no matcher matched
+	 */
+	public int getRemainingQuantity(ItemMovementRuleFlowData rule, int matcher) {
 		if (rule.filterMode == FilterMode.WHITELIST) {
-			if (matcher == null) {
+			if (matcher == -1) {
 				// whitelist mode, no matcher, no transfer allowed
 				return 0;
 			} else {
 				// whitelist mode, matcher found, ensure not over-transferring
-				int maxAllowed = matcher.getQuantity();
-				int used = USAGE_HISTORY.getOrDefault(matcher, 0);
-				return Math.max(0, maxAllowed - used);
+				return Math.max(0, QUANTITIES[matcher] - USAGE[matcher]);
 			}
 		} else if (rule.filterMode == FilterMode.BLACKLIST) {
 			// blacklist mode, only transfer if no matcher
-			return matcher == null ? Integer.MAX_VALUE : 0;
+			return matcher == -1 ? Integer.MAX_VALUE : 0;
 		}
 		return 0;
 	}
 
-	public void recordUsage(@Nullable ItemMatcher matcher, int amount) {
-		if (matcher != null) {
-			USAGE_HISTORY.merge(matcher, amount, Integer::sum);
+	/**
+	 * @return true if the rule has no quota left for any item, only possible for whitelists
+	 */
+	public boolean isExhausted(CompiledRule<ItemMovementRuleFlowData> rule) {
+		if (rule.RULE.filterMode != FilterMode.WHITELIST) {
+			return false;
+		}
+		for (int matcher : rule.ITEM_MATCHER_IDS) {
+			if (QUANTITIES[matcher] > USAGE[matcher]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param matchers Plan ids of matchers
+	 * @return Hash of the usage recorded for the given matchers
+	 */
+	public int hashUsage(int[] matchers) {
+		int hash = 1;
+		for (int matcher : matchers) {
+			hash = 31 * hash + USAGE[matcher];
+		}
+		return hash;
+	}
+
+	/**
+	 * @param matcher Plan id of the matcher, or -1 if no matcher matched
+	 */
+	public void recordUsage(int matcher, int amount) {
+		if (matcher != -1) {
+			USAGE[matcher] += amount;
 		}
 	}
 }
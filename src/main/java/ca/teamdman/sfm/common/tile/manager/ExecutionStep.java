@@ -2,45 +2,152 @@ package ca.teamdman.sfm.common.tile.manager;
 
 import ca.teamdman.sfm.common.flow.data.FlowData;
 import ca.teamdman.sfm.common.flow.data.ItemMovementRuleFlowData;
-import ca.teamdman.sfm.common.flow.holder.BasicFlowDataContainer;
+import ca.teamdman.sfm.common.tile.manager.ExecutionProfiler.Counters;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.Set;
 
 public class ExecutionStep {
 
-	public final List<ItemMovementRuleFlowData> INPUTS = new ArrayList<>();
+	public final Set<CompiledRule<ItemMovementRuleFlowData>> INPUTS = new LinkedHashSet<>();
+	public final Set<CompiledRule<ItemMovementRuleFlowData>> FLUID_INPUTS = new LinkedHashSet<>();
+	public final Set<CompiledRule<ItemMovementRuleFlowData>> ENERGY_INPUTS = new LinkedHashSet<>();
+	public final Set<CompiledRule<ItemMovementRuleFlowData>> CHEMICAL_INPUTS = new LinkedHashSet<>();
 	public final ManagerTileEntity TILE;
+	public final ExecutionPlan PLAN;
+	public final int NODE;
 	public final FlowData CURRENT;
 	public final ExecutionState STATE;
+	private ExecutionBudget budget;
+	private Object resumePoint;
+	private boolean waiting;
+	private Counters counters = Counters.DISCARD;
 
 	public ExecutionStep(
 		ManagerTileEntity tile,
-		FlowData current,
+		ExecutionPlan plan,
+		int node,
 		ExecutionState state
 	) {
 		this.TILE = tile;
-		this.CURRENT = current;
+		this.PLAN = plan;
+		this.NODE = node;
+		this.CURRENT = plan.getNode(node);
 		this.STATE = state;
 	}
 
-	public List<ExecutionStep> step() {
-		BasicFlowDataContainer container = TILE.getFlowDataContainer();
-		CURRENT.execute(this);
-		return CURRENT.getNextUsingRelationships(container)
-			.map(this::fork)
-			.collect(Collectors.toList());
+	/**
+	 * Executes the current node.
+	 *
+	 * @param budget Work allowed for the remainder of this tick
+	 * @return Frames for the nodes that follow, empty if this step was suspended
+	 */
+	public List<ExecutionStep> step(ExecutionBudget budget) {
+		this.budget = budget;
+		ExecutionProfiler profiler = TILE.getProfiler();
+		if (profiler.isActive()) {
+			counters = new Counters();
+			long start = System.nanoTime();
+			CURRENT.execute(this);
+			profiler.record(CURRENT.getId(), System.nanoTime() - start, counters);
+			counters = Counters.DISCARD;
+		} else {
+			CURRENT.execute(this);
+		}
+		if (isSuspended()) {
+			return Collections.emptyList();
+		}
+		int[] successors = PLAN.getSuccessors(NODE);
+		List<ExecutionStep> next = new ArrayList<>(successors.length);
+		for (int successor : successors) {
+			if (CURRENT.canContinueTo(PLAN.getNode(successor))) {
+				next.add(fork(successor));
+			}
+		}
+		return next;
+	}
+
+	public ExecutionBudget getBudget() {
+		return budget;
+	}
+
+	/**
+	 * @return Where the current node should count the work it does for the profiler
+	 */
+	public Counters getCounters() {
+		return counters;
+	}
+
+	/**
+	 * Stops this step part way through, so that it is executed again next tick.
+	 *
+	 * @param resumePoint Whatever the current node needs to pick up where it left off
+	 */
+	public void suspend(Object resumePoint) {
+		this.resumePoint = resumePoint;
+		this.waiting = false;
+	}
+
+	/**
+	 * Like {@link #suspend(Object)}, but the node is waiting on work done elsewhere rather than
+	 * out of budget, so the rest of the run carries on meanwhile.
+	 */
+	public void await(Object resumePoint) {
+		this.resumePoint = resumePoint;
+		this.waiting = true;
+	}
+
+	public boolean isSuspended() {
+		return resumePoint != null;
+	}
+
+	/**
+	 * @return true if suspended through {@link #await(Object)}
+	 */
+	public boolean isWaiting() {
+		return waiting;
 	}
 
+	/**
+	 * Takes the resume point given to {@link #suspend(Object)}, clearing the suspension.
+	 *
+	 * @param clazz Type of resume point expected by the current node
+	 * @return Resume point, empty if this step is starting fresh
+	 */
+	public <T> Optional<T> resume(Class<T> clazz) {
+		Object point = resumePoint;
+		resumePoint = null;
+		waiting = false;
+		return Optional.ofNullable(point)
+			.filter(clazz::isInstance)
+			.map(clazz::cast);
+	}
 
 	/**
 	 * When multiple paths lead from a node, fork execution to preserve state
 	 *
 	 * @return New execution frame with a snapshot of the inputs
 	 */
-	public ExecutionStep fork(FlowData next) {
-		ExecutionStep other = new ExecutionStep(TILE, next, STATE);
+	public ExecutionStep fork(int next) {
+		ExecutionStep other = new ExecutionStep(TILE, PLAN, next, STATE);
 		other.INPUTS.addAll(INPUTS);
+		other.FLUID_INPUTS.addAll(FLUID_INPUTS);
+		other.ENERGY_INPUTS.addAll(ENERGY_INPUTS);
+		other.CHEMICAL_INPUTS.addAll(CHEMICAL_INPUTS);
 		return other;
 	}
+
+	/**
+	 * Combines another frame for the same node into this one, so the node executes once with
+	 * the inputs of both paths.
+	 */
+	public void merge(ExecutionStep other) {
+		INPUTS.addAll(other.INPUTS);
+		FLUID_INPUTS.addAll(other.FLUID_INPUTS);
+		ENERGY_INPUTS.addAll(other.ENERGY_INPUTS);
+		CHEMICAL_INPUTS.addAll(other.CHEMICAL_INPUTS);
+	}
 }
@@ -1,38 +1,247 @@
 package ca.teamdman.sfm.common.tile.manager;
 
-import ca.teamdman.sfm.common.flow.data.TimerTriggerFlowData;
-import java.util.ArrayDeque;
-import java.util.Deque;
+import ca.teamdman.sfm.SFM;
+import ca.teamdman.sfm.common.config.Config;
+import ca.teamdman.sfm.common.util.SFMUtil;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntLinkedOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import java.util.Arrays;
 import java.util.List;
-import net.minecraft.world.World;
+import net.minecraft.util.text.ITextComponent;
+import net.minecraft.util.text.TranslationTextComponent;
 
+/**
+ * Executes the program of a manager. When to execute is decided by the {@link
+ * ManagerScheduler}.
+ */
 public class FlowExecutor {
 
 	private final ManagerTileEntity TILE;
-	private final Deque<ExecutionStep> FRAMES = new ArrayDeque<>();
-	private int tick = 0;
+	// triggers that fired during a run, started together once the run finishes
+	private final IntSet RETRIGGERS = new IntLinkedOpenHashSet();
+	// pending frames by topological position of their node, at most one per node
+	private ExecutionStep[] frames = new ExecutionStep[0];
+	private int cursor = 0;
+	private int pendingCount = 0;
+	private ExecutionState state;
+	private ExecutionPlan validatedPlan;
+	private long framesThisRun;
+	private boolean abortReported;
+	private ExecutionPlan retriggerPlan;
 
 	public FlowExecutor(ManagerTileEntity TILE) {
 		this.TILE = TILE;
 	}
 
-	public void tick() {
-		World world = TILE.getWorld();
-		if (world == null || world.isRemote) {
+	/**
+	 * Starts execution from the given triggers. While a run that didn't fit in previous ticks is
+	 * still going, the triggers are remembered instead and start one more run once it finishes.
+	 *
+	 * @param plan     Plan the triggers were scheduled from
+	 * @param triggers Plan indices of the triggers that came due this tick
+	 */
+	public void trigger(ExecutionPlan plan, IntList triggers) {
+		if (hasPendingWork()) {
+			if (plan != retriggerPlan) {
+				RETRIGGERS.clear();
+				retriggerPlan = plan;
+			}
+			RETRIGGERS.addAll(triggers);
 			return;
 		}
-		tick++;
-		ExecutionState state = new ExecutionState();
-		TILE.getFlowDataContainer().get(TimerTriggerFlowData.class)
-			.filter(t -> tick % t.interval == 0)
-			.map(t -> new ExecutionStep(TILE, t, state))
-			.forEach(FRAMES::add);
+		start(plan, triggers);
+	}
+
+	/**
+	 * Starts the run remembered while the previous one was going, unless the program changed
+	 * since.
+	 */
+	private void retrigger() {
+		ExecutionPlan plan = retriggerPlan;
+		IntList triggers = new IntArrayList(RETRIGGERS);
+		retriggerPlan = null;
+		RETRIGGERS.clear();
+		if (plan == TILE.getExecutionPlan()) {
+			start(plan, triggers);
+		}
+	}
+
+	private void start(ExecutionPlan plan, IntList triggers) {
+		validate(plan);
+		framesThisRun = triggers.size();
+
+		// reuse the quota array between runs unless the program changed
+		if (state == null || !state.isFor(plan)) {
+			state = new ExecutionState(plan);
+		} else {
+			state.reset();
+		}
+		if (frames.length < plan.size()) {
+			frames = new ExecutionStep[plan.size()];
+		}
+		cursor = 0;
+		for (int trigger : triggers) {
+			enqueue(new ExecutionStep(TILE, plan, trigger, state));
+		}
+	}
+
+	/**
+	 * Adds a frame to the run, merging it with any frame already waiting at the same node.
+	 * Nodes run in topological order, so by the time a node runs every path to it has arrived.
+	 */
+	private void enqueue(ExecutionStep frame) {
+		int position = frame.PLAN.getTopologicalPosition(frame.NODE);
+		ExecutionStep existing = frames[position];
+		if (existing == null) {
+			frames[position] = frame;
+			pendingCount++;
+		} else {
+			existing.merge(frame);
+		}
+	}
+
+	private void clear() {
+		Arrays.fill(frames, null);
+		pendingCount = 0;
+	}
+
+	/**
+	 * Reports problems found when the plan was compiled, once per plan.
+	 */
+	private void validate(ExecutionPlan plan) {
+		if (plan == validatedPlan) {
+			return;
+		}
+		validatedPlan = plan;
+		abortReported = false;
+		if (plan.isCyclic()) {
+			report("Program contains a loop, ignoring the relationships that close it",
+				new TranslationTextComponent("gui.sfm.manager.status.cyclic")
+			);
+		}
+		int maxFrames = Config.Server.maxFramesPerRun;
+		if (maxFrames > 0 && plan.getFrameCount() > maxFrames) {
+			report("Program branches into too many steps, runs will be cut short",
+				new TranslationTextComponent(
+					"gui.sfm.manager.status.too_many_frames",
+					plan.getFrameCount(),
+					maxFrames
+				)
+			);
+		}
+	}
 
-		while (!FRAMES.isEmpty()) {
-			ExecutionStep frame = FRAMES.pop();
-			List<ExecutionStep> next = frame.step();
-			FRAMES.addAll(next);
+	private void report(String message, ITextComponent status) {
+		SFM.LOGGER.warn(
+			SFMUtil.getMarker(getClass()),
+			"Manager at {}: {}",
+			TILE.getPos(),
+			message
+		);
+		TILE.sendStatusToListeners(status);
+	}
+
+	/**
+	 * Marks every node reachable from the frame's node, their frames wait with it so that each
+	 * node still runs once with the inputs of every path.
+	 */
+	private static void block(ExecutionStep frame, boolean[] blocked) {
+		IntArrayList open = new IntArrayList();
+		open.push(frame.NODE);
+		while (!open.isEmpty()) {
+			for (int next : frame.PLAN.getSuccessors(open.popInt())) {
+				if (!blocked[next]) {
+					blocked[next] = true;
+					open.push(next);
+				}
+			}
 		}
 	}
 
+	public boolean hasPendingWork() {
+		return pendingCount > 0;
+	}
+
+	/**
+	 * Executes pending frames until there are none left or the tick's budget runs out.
+	 */
+	public void run() {
+		ExecutionProfiler profiler = TILE.getProfiler();
+		long gameTime = TILE.getWorld().getGameTime();
+		// turned on and off as the manager is opened and closed, see ManagerTileEntity
+		if (profiler.isActive() && !TILE.hasContainerListeners()) {
+			// players that left without closing the manager
+			profiler.setActive(false);
+		}
+		if (profiler.isActive()) {
+			profiler.advance(gameTime);
+		}
+
+		ExecutionBudget budget = ExecutionBudget.forTick();
+		int maxSteps = Config.Server.maxStepsPerTick;
+		int maxFrames = Config.Server.maxFramesPerRun;
+		int steps = 0;
+		// nodes that must not run yet because they follow a frame that is waiting
+		boolean[] blocked = null;
+		int position = cursor;
+		while (pendingCount > 0 && !budget.isExhausted()) {
+			while (position < frames.length && frames[position] == null) {
+				position++;
+			}
+			if (position == frames.length) {
+				// everything left is waiting or follows something waiting
+				break;
+			}
+			ExecutionStep frame = frames[position];
+			if (blocked != null && blocked[frame.NODE]) {
+				position++;
+				continue;
+			}
+
+			// hard limits, independent of how the program was built
+			if (maxSteps > 0 && steps++ >= maxSteps) {
+				break;
+			}
+			if (maxFrames > 0 && framesThisRun > maxFrames) {
+				clear();
+				if (!abortReported) {
+					abortReported = true;
+					report("Run stopped after too many steps",
+						new TranslationTextComponent("gui.sfm.manager.status.aborted", maxFrames)
+					);
+				}
+				break;
+			}
+
+			List<ExecutionStep> next = frame.step(budget);
+			if (frame.isWaiting()) {
+				// e.g. a transfer planned on another thread, run what doesn't depend on it
+				if (blocked == null) {
+					blocked = new boolean[frame.PLAN.size()];
+				}
+				block(frame, blocked);
+				position++;
+				continue;
+			}
+			if (frame.isSuspended()) {
+				// out of budget, continue this frame first next tick
+				break;
+			}
+			frames[position] = null;
+			pendingCount--;
+			next.forEach(this::enqueue);
+			framesThisRun += next.size();
+		}
+		while (cursor < frames.length && frames[cursor] == null) {
+			cursor++;
+		}
+		// inventories may change before the next tick, nothing read during this one still holds
+		TILE.getOccupancyIndex().clear();
+		if (!hasPendingWork() && retriggerPlan != null) {
+			// runs from the next tick on, so the manager stays in the running set
+			retrigger();
+		}
+	}
 }
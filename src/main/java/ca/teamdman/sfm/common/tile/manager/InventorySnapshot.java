@@ -0,0 +1,99 @@
+package ca.teamdman.sfm.common.tile.manager;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import net.minecraft.item.ItemStack;
+import net.minecraftforge.items.IItemHandler;
+import net.minecraftforge.items.ItemHandlerHelper;
+
+/**
+ * Copy of the slot contents of a set of item handlers, taken on the server thread so that
+ * transfers can be planned elsewhere.
+ * <p>
+ * The snapshot is mutable so the planner can apply the moves it decides on as it goes. It
+ * does not know about handler specific rules such as {@link IItemHandler#isItemValid(int,
+ * ItemStack)}, those are checked when the plan is applied.
+ */
+public class InventorySnapshot {
+
+	private final List<IItemHandler> HANDLERS = new ArrayList<>();
+	private final Map<IItemHandler, Integer> INDICES = new IdentityHashMap<>();
+	private final List<ItemStack[]> CONTENTS = new ArrayList<>();
+	private final List<int[]> LIMITS = new ArrayList<>();
+	private final List<Boolean> TRUSTED = new ArrayList<>();
+
+	/**
+	 * Copies the contents of the handler if it isn't already part of the snapshot.
+	 *
+	 * @return Index of the handler within the snapshot
+	 */
+	public int add(IItemHandler handler) {
+		Integer existing = INDICES.get(handler);
+		if (existing != null) {
+			return existing;
+		}
+		int slots = handler.getSlots();
+		ItemStack[] contents = new ItemStack[slots];
+		int[] limits = new int[slots];
+		for (int slot = 0; slot < slots; slot++) {
+			contents[slot] = handler.getStackInSlot(slot).copy();
+			limits[slot] = handler.getSlotLimit(slot);
+		}
+		int index = HANDLERS.size();
+		HANDLERS.add(handler);
+		INDICES.put(handler, index);
+		CONTENTS.add(contents);
+		LIMITS.add(limits);
+		TRUSTED.add(TrustedHandlers.isTrusted(handler));
+		return index;
+	}
+
+	public IItemHandler getHandler(int handler) {
+		return HANDLERS.get(handler);
+	}
+
+	public int getSlots(int handler) {
+		return CONTENTS.get(handler).length;
+	}
+
+	public ItemStack getStackInSlot(int handler, int slot) {
+		return CONTENTS.get(handler)[slot];
+	}
+
+	/**
+	 * Slots of handlers other than {@link TrustedHandlers} are only capped by their slot limit,
+	 * drawers and bins hold more than a stack per slot. Applying the plan has them simulate
+	 * the move, so whatever they won't take is left where it is.
+	 *
+	 * @return How many of the given stack would fit in the slot, ignoring the stack's count
+	 */
+	public int getSpace(int handler, int slot, ItemStack stack) {
+		ItemStack existing = getStackInSlot(handler, slot);
+		int limit = TRUSTED.get(handler)
+			? Math.min(LIMITS.get(handler)[slot], stack.getMaxStackSize())
+			: LIMITS.get(handler)[slot];
+		if (existing.isEmpty()) {
+			return limit;
+		}
+		if (!ItemHandlerHelper.canItemStacksStack(existing, stack)) {
+			return 0;
+		}
+		return Math.max(0, limit - existing.getCount());
+	}
+
+	/**
+	 * Records a move between two slots of the snapshot.
+	 */
+	public void move(int fromHandler, int fromSlot, int toHandler, int toSlot, int count) {
+		ItemStack from = getStackInSlot(fromHandler, fromSlot);
+		ItemStack to = getStackInSlot(toHandler, toSlot);
+		if (to.isEmpty()) {
+			CONTENTS.get(toHandler)[toSlot] = ItemHandlerHelper.copyStackWithSize(from, count);
+		} else {
+			to.grow(count);
+		}
+		from.shrink(count);
+	}
+}
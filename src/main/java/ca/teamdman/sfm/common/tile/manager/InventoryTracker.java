@@ -0,0 +1,154 @@
+package ca.teamdman.sfm.common.tile.manager;
+
+import ca.teamdman.sfm.common.cablenetwork.CableNetwork;
+import ca.teamdman.sfm.common.tile.VersionedInventory;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2LongMap;
+import it.unimi.dsi.fastutil.objects.Reference2LongOpenHashMap;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+import net.minecraft.item.ItemStack;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.Direction;
+import net.minecraftforge.items.IItemHandler;
+
+/**
+ * Tracks whether the inventories a node works on changed since the node last ran, so that
+ * nodes which found nothing to do can skip scanning the same slots again.
+ * <p>
+ * Only tiles implementing {@link VersionedInventory} can be told unchanged for free, nodes
+ * working on any other inventory always run, hashing it would cost about as much as the scan.
+ * Change triggers polling other inventories compare stamps, see {@link #getStamp}.
+ */
+public class InventoryTracker {
+
+	private final Reference2LongMap<IItemHandler> STAMPS = new Reference2LongOpenHashMap<>();
+	private final Object2LongMap<UUID> SIGNATURES = new Object2LongOpenHashMap<>();
+	// signatures of nodes that are part way through running, recorded once they finish idle
+	private final Object2LongMap<UUID> PENDING = new Object2LongOpenHashMap<>();
+	private ExecutionPlan plan;
+	private long stampTick = Long.MIN_VALUE;
+
+	/**
+	 * @return Stamp of the handler, changes whenever its contents do
+	 */
+	private long getStamp(IItemHandler handler, long tick) {
+		if (tick != stampTick) {
+			STAMPS.clear();
+			stampTick = tick;
+		}
+		if (STAMPS.containsKey(handler)) {
+			return STAMPS.getLong(handler);
+		}
+		long stamp = hashContents(handler);
+		STAMPS.put(handler, stamp);
+		return stamp;
+	}
+
+	/**
+	 * Hashes the inventories that don't report their changes, meant for polling.
+	 *
+	 * @return Combined stamp of every face of the given tiles
+	 */
+	public long getStamp(Stream<TileEntity> tiles, Set<Direction> faces, CableNetwork network) {
+		long stamp = 1;
+		for (Iterator<TileEntity> it = tiles.iterator(); it.hasNext(); ) {
+			TileEntity tile = it.next();
+			if (tile instanceof VersionedInventory) {
+				stamp = 31 * stamp + getVersion((VersionedInventory) tile);
+				continue;
+			}
+			long tick = tile.getWorld() == null ? 0 : tile.getWorld().getGameTime();
+			// faces exposing the same inventory are merged by the network, each is hashed once
+			for (IItemHandler handler : network.getItemHandlers(Stream.of(tile), faces)) {
+				stamp = 31 * stamp + getStamp(handler, tick);
+			}
+		}
+		return stamp;
+	}
+
+	/**
+	 * @return Combined version of the given tiles, empty if any of them doesn't report its
+	 * changes
+	 */
+	public static OptionalLong getVersion(Stream<TileEntity> tiles) {
+		long version = 1;
+		for (Iterator<TileEntity> it = tiles.iterator(); it.hasNext(); ) {
+			TileEntity tile = it.next();
+			if (!(tile instanceof VersionedInventory)) {
+				return OptionalLong.empty();
+			}
+			version = 31 * version + getVersion((VersionedInventory) tile);
+		}
+		return OptionalLong.of(version);
+	}
+
+	private static long getVersion(VersionedInventory tile) {
+		// one version covers every face, identity covers the tile being replaced by one that
+		// starts counting from zero
+		return 31L * System.identityHashCode(tile) + tile.getInventoryVersion();
+	}
+
+	/**
+	 * Item, tag and count of every slot.
+	 */
+	public static long hashContents(IItemHandler handler) {
+		long hash = 1;
+		for (int slot = 0; slot < handler.getSlots(); slot++) {
+			ItemStack stack = handler.getStackInSlot(slot);
+			if (stack.isEmpty()) {
+				hash = 31 * hash;
+				continue;
+			}
+			hash = 31 * hash + System.identityHashCode(stack.getItem());
+			hash = 31 * hash + Objects.hashCode(stack.getTag());
+			hash = 31 * hash + stack.getCount();
+		}
+		return hash;
+	}
+
+	/**
+	 * @param signature Combined stamps and whatever else the outcome of the node depends on
+	 * @return true if the node last finished idle with the same signature in the same plan
+	 */
+	public boolean isUnchanged(ExecutionPlan plan, UUID node, long signature) {
+		if (plan != this.plan) {
+			SIGNATURES.clear();
+			PENDING.clear();
+			this.plan = plan;
+			return false;
+		}
+		return SIGNATURES.containsKey(node) && SIGNATURES.getLong(node) == signature;
+	}
+
+	/**
+	 * Notes the signature a node started running with.
+	 */
+	public void begin(UUID node, long signature) {
+		PENDING.put(node, signature);
+	}
+
+	/**
+	 * The node changed an inventory, so its signature is stale and so are the cached stamps.
+	 */
+	public void onMoved(UUID node) {
+		PENDING.removeLong(node);
+		SIGNATURES.removeLong(node);
+		STAMPS.clear();
+	}
+
+	/**
+	 * The node finished, if it changed nothing since {@link #begin} it can be skipped until its
+	 * signature changes.
+	 */
+	public void finish(UUID node) {
+		if (PENDING.containsKey(node)) {
+			SIGNATURES.put(node, PENDING.removeLong(node));
+		}
+	}
+}
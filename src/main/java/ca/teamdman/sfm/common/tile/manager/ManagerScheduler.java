@@ -0,0 +1,312 @@
+package ca.teamdman.sfm.common.tile.manager;
+
+import ca.teamdman.sfm.SFM;
+import ca.teamdman.sfm.common.cablenetwork.CableNetwork;
+import ca.teamdman.sfm.common.cablenetwork.CableNetworkManager;
+import ca.teamdman.sfm.common.config.Config;
+import ca.teamdman.sfm.common.flow.data.InventoryChangeTriggerFlowData;
+import ca.teamdman.sfm.common.flow.data.ItemMovementRuleFlowData;
+import ca.teamdman.sfm.common.flow.data.TimerTriggerFlowData;
+import ca.teamdman.sfm.common.util.TimingWheel;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntLinkedOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.RegistryKey;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.IWorld;
+import net.minecraft.world.World;
+import net.minecraftforge.event.TickEvent.Phase;
+import net.minecraftforge.event.TickEvent.WorldTickEvent;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.fml.common.Mod.EventBusSubscriber.Bus;
+
+/**
+ * Runs the managers of each world from a single timing wheel, instead of having every manager
+ * tick and test each of its timer triggers.
+ * <p>
+ * A manager only costs anything on the ticks one of its triggers is due, or while it has work
+ * left over from a previous tick. Deadlines are derived from the world's game time and a phase
+ * unique to each manager and trigger, so managers with equal intervals are spread out and keep
+ * the same schedule across reloads.
+ * <p>
+ * Inventory change triggers fire on the tick after an inventory they watch changed. Cables
+ * report changes through {@link #onInventoryChanged}, which only covers inventories that update
+ * comparators beside the cable. Everything else is caught by hashing the watched contents every
+ * {@link Config.Server#changeTriggerPollInterval} ticks.
+ */
+@Mod.EventBusSubscriber(modid = SFM.MOD_ID, bus = Bus.FORGE)
+public class ManagerScheduler {
+
+	private static final Map<RegistryKey<World>, ManagerScheduler> SCHEDULERS = new HashMap<>();
+
+	private final TimingWheel<ScheduledTrigger> WHEEL;
+	private final Map<ManagerTileEntity, ExecutionPlan> SCHEDULED = new IdentityHashMap<>();
+	private final Set<ManagerTileEntity> NEEDS_SCHEDULE = new LinkedHashSet<>();
+	private final Set<ManagerTileEntity> RUNNING = new LinkedHashSet<>();
+	// managers with inventory change triggers
+	private final Set<ManagerTileEntity> WATCHING = new LinkedHashSet<>();
+	private final Set<BlockPos> CHANGED = new HashSet<>();
+
+	private ManagerScheduler(World world) {
+		this.WHEEL = new TimingWheel<>(world.getGameTime());
+	}
+
+	private static ManagerScheduler get(World world) {
+		return SCHEDULERS.computeIfAbsent(world.getDimensionKey(), __ -> new ManagerScheduler(world));
+	}
+
+	/**
+	 * Starts running the given manager. Safe to call again whenever its program changes.
+	 */
+	public static void register(ManagerTileEntity tile) {
+		World world = tile.getWorld();
+		if (world == null || world.isRemote) {
+			return;
+		}
+		get(world).NEEDS_SCHEDULE.add(tile);
+	}
+
+	/**
+	 * Stops running the given manager, dropping any work it has pending.
+	 */
+	public static void unregister(ManagerTileEntity tile) {
+		World world = tile.getWorld();
+		if (world == null || world.isRemote) {
+			return;
+		}
+		ManagerScheduler scheduler = SCHEDULERS.get(world.getDimensionKey());
+		if (scheduler != null) {
+			scheduler.SCHEDULED.remove(tile);
+			scheduler.NEEDS_SCHEDULE.remove(tile);
+			scheduler.RUNNING.remove(tile);
+			scheduler.WATCHING.remove(tile);
+		}
+	}
+
+	/**
+	 * Called by cables when the contents of a neighbouring block may have changed.
+	 */
+	public static void onInventoryChanged(World world, BlockPos pos) {
+		ManagerScheduler scheduler = SCHEDULERS.get(world.getDimensionKey());
+		if (scheduler != null && !scheduler.WATCHING.isEmpty()) {
+			scheduler.CHANGED.add(pos.toImmutable());
+		}
+	}
+
+	/**
+	 * @return First tick after the given tick on which a trigger with the given phase fires
+	 */
+	public static long getNextDeadline(long tick, int interval, int phase) {
+		return tick - Math.floorMod(tick - phase, interval) + interval;
+	}
+
+	/**
+	 * @return Offset of the trigger within its interval, stable for a given manager and trigger
+	 */
+	public static int getPhase(ManagerTileEntity tile, TimerTriggerFlowData trigger) {
+		return getPhase(tile, trigger.getId(), trigger.interval);
+	}
+
+	private static int getPhase(ManagerTileEntity tile, UUID trigger, int interval) {
+		int hash = Objects.hash(tile.getPos().toLong(), trigger);
+		// spread the bits, positions and ids of neighbouring managers differ very little
+		hash ^= hash >>> 16;
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		return Math.floorMod(hash, interval);
+	}
+
+	@SubscribeEvent
+	public static void onWorldTick(WorldTickEvent e) {
+		if (e.phase != Phase.END || e.world.isRemote) {
+			return;
+		}
+		ManagerScheduler scheduler = SCHEDULERS.get(e.world.getDimensionKey());
+		if (scheduler != null) {
+			scheduler.tick(e.world.getGameTime());
+		}
+	}
+
+	@SubscribeEvent
+	public static void onWorldUnload(WorldEvent.Unload e) {
+		IWorld world = e.getWorld();
+		if (world instanceof World && !world.isRemote()) {
+			SCHEDULERS.remove(((World) world).getDimensionKey());
+		}
+	}
+
+	private void tick(long gameTime) {
+		// schedule managers that were loaded or changed since the last tick
+		for (ManagerTileEntity tile : NEEDS_SCHEDULE) {
+			schedule(tile, WHEEL.getCurrentTick());
+		}
+		NEEDS_SCHEDULE.clear();
+
+		// collect the triggers that came due, grouped by manager
+		Map<ManagerTileEntity, IntSet> fired = new LinkedHashMap<>();
+		WHEEL.advance(gameTime, entry -> {
+			if (SCHEDULED.get(entry.TILE) != entry.PLAN) {
+				// manager was removed or its program changed since this was scheduled
+				return;
+			}
+			if (!entry.POLL || hasContentsChanged(entry)) {
+				fired.computeIfAbsent(entry.TILE, __ -> new IntLinkedOpenHashSet())
+					.add(entry.TRIGGER);
+			}
+			WHEEL.schedule(
+				entry,
+				getNextDeadline(WHEEL.getCurrentTick(), entry.INTERVAL, entry.PHASE)
+			);
+		});
+		if (!CHANGED.isEmpty()) {
+			for (ManagerTileEntity tile : WATCHING) {
+				collectChangeTriggers(tile, fired);
+			}
+			CHANGED.clear();
+		}
+		fired.forEach((tile, triggers) -> {
+			// managers still busy with a run start again once it finishes
+			tile.getExecutor().trigger(SCHEDULED.get(tile), new IntArrayList(triggers));
+			RUNNING.add(tile);
+		});
+
+		// run everything with work to do, including work left over from previous ticks
+		for (ManagerTileEntity tile : new ArrayList<>(RUNNING)) {
+			FlowExecutor executor = tile.getExecutor();
+			executor.run();
+			if (!executor.hasPendingWork()) {
+				RUNNING.remove(tile);
+			}
+		}
+	}
+
+	private void schedule(ManagerTileEntity tile, long tick) {
+		ExecutionPlan plan = tile.getExecutionPlan();
+		SCHEDULED.put(tile, plan);
+		for (int trigger : plan.getTimerTriggers()) {
+			TimerTriggerFlowData data = (TimerTriggerFlowData) plan.getNode(trigger);
+			int phase = getPhase(tile, data);
+			WHEEL.schedule(
+				new ScheduledTrigger(tile, plan, trigger, data.interval, phase, false),
+				getNextDeadline(tick, data.interval, phase)
+			);
+		}
+
+		if (plan.getChangeTriggers().length == 0) {
+			WATCHING.remove(tile);
+			return;
+		}
+		WATCHING.add(tile);
+		int interval = Config.Server.changeTriggerPollInterval;
+		if (interval > 0) {
+			for (int trigger : plan.getChangeTriggers()) {
+				int phase = getPhase(tile, plan.getNode(trigger).getId(), interval);
+				WHEEL.schedule(
+					new ScheduledTrigger(tile, plan, trigger, interval, phase, true),
+					getNextDeadline(tick, interval, phase)
+				);
+			}
+		}
+	}
+
+	/**
+	 * Adds the change triggers of a manager that watch any of the inventories that reported a
+	 * change this tick.
+	 */
+	private void collectChangeTriggers(
+		ManagerTileEntity tile,
+		Map<ManagerTileEntity, IntSet> fired
+	) {
+		ExecutionPlan plan = SCHEDULED.get(tile);
+		Optional<CableNetwork> network = CableNetworkManager.getOrRegisterNetwork(tile);
+		if (plan == null || !network.isPresent()) {
+			return;
+		}
+		for (BlockPos pos : CHANGED) {
+			TileEntity changed = network.get().getInventory(pos).orElse(null);
+			if (changed == null) {
+				continue;
+			}
+			for (int trigger : plan.getChangeTriggers()) {
+				InventoryChangeTriggerFlowData data = (InventoryChangeTriggerFlowData) plan
+					.getNode(trigger);
+				boolean watched = plan
+					.getRule(data.tileEntityRule, ItemMovementRuleFlowData.class)
+					.map(rule -> rule.TILE_MATCHERS.stream().anyMatch(m -> m.matches(changed)))
+					.orElse(false);
+				if (watched) {
+					fired.computeIfAbsent(tile, __ -> new IntLinkedOpenHashSet()).add(trigger);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Compares the stamps of the inventories watched by a change trigger, for inventories that
+	 * don't report changes. The first poll only records the stamp.
+	 */
+	private boolean hasContentsChanged(ScheduledTrigger entry) {
+		InventoryChangeTriggerFlowData data = (InventoryChangeTriggerFlowData) entry.PLAN
+			.getNode(entry.TRIGGER);
+		Optional<CableNetwork> network = CableNetworkManager.getOrRegisterNetwork(entry.TILE);
+		if (!network.isPresent()) {
+			return false;
+		}
+		long hash = entry.PLAN.getRule(data.tileEntityRule, ItemMovementRuleFlowData.class)
+			.map(rule -> entry.TILE.getInventoryTracker().getStamp(
+				rule.RULE.getTiles(rule.TILE_MATCHERS, network.get()),
+				rule.RULE.faces,
+				network.get()
+			))
+			.orElse(0L);
+		boolean changed = entry.hashed && hash != entry.contentHash;
+		entry.contentHash = hash;
+		entry.hashed = true;
+		return changed;
+	}
+
+	private static class ScheduledTrigger {
+
+		public final ManagerTileEntity TILE;
+		public final ExecutionPlan PLAN;
+		public final int TRIGGER;
+		public final int INTERVAL;
+		public final int PHASE;
+		/**
+		 * Content check for a change trigger, only fires if the contents changed
+		 */
+		public final boolean POLL;
+		public long contentHash;
+		public boolean hashed = false;
+
+		public ScheduledTrigger(
+			ManagerTileEntity tile,
+			ExecutionPlan plan,
+			int trigger,
+			int interval,
+			int phase,
+			boolean poll
+		) {
+			this.TILE = tile;
+			this.PLAN = plan;
+			this.TRIGGER = trigger;
+			this.INTERVAL = interval;
+			this.PHASE = phase;
+			this.POLL = poll;
+		}
+	}
+}
@@ -7,15 +7,20 @@ import static net.minecraftforge.common.util.Constants.BlockFlags.BLOCK_UPDATE;
 import static net.minecraftforge.common.util.Constants.BlockFlags.NOTIFY_NEIGHBORS;
 
 import ca.teamdman.sfm.SFM;
+import ca.teamdman.sfm.common.config.Config;
 import ca.teamdman.sfm.common.container.ManagerContainer;
 import ca.teamdman.sfm.common.flow.data.CursorFlowData;
 import ca.teamdman.sfm.common.flow.holder.BasicFlowDataContainer;
+import ca.teamdman.sfm.common.flow.holder.BasicFlowDataContainer.FlowDataContainerChange;
 import ca.teamdman.sfm.common.net.PacketHandler;
+import ca.teamdman.sfm.common.net.packet.manager.profile.ManagerProfilePacketS2C;
 import ca.teamdman.sfm.common.registrar.SFMTiles;
 import ca.teamdman.sfm.common.util.SFMUtil;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Observable;
 import java.util.Set;
 import java.util.UUID;
 import java.util.WeakHashMap;
@@ -31,7 +36,6 @@ import net.minecraft.inventory.container.Container;
 import net.minecraft.inventory.container.INamedContainerProvider;
 import net.minecraft.nbt.CompoundNBT;
 import net.minecraft.nbt.ListNBT;
-import net.minecraft.tileentity.ITickableTileEntity;
 import net.minecraft.tileentity.TileEntity;
 import net.minecraft.tileentity.TileEntityType;
 import net.minecraft.util.text.ITextComponent;
@@ -39,16 +43,20 @@ import net.minecraft.util.text.TranslationTextComponent;
 import net.minecraftforge.common.util.Constants.NBT;
 import net.minecraftforge.fml.network.PacketDistributor;
 
-public class ManagerTileEntity extends TileEntity implements
-	ITickableTileEntity,
-	INamedContainerProvider {
+public class ManagerTileEntity extends TileEntity implements INamedContainerProvider {
 
 	private final BasicFlowDataContainer FLOW_DATA_CONTAINER = new BasicFlowDataContainer();
 	private final FlowExecutor EXECUTOR;
+	private final ExecutionProfiler PROFILER = new ExecutionProfiler();
+	private final InventoryTracker INVENTORY_TRACKER = new InventoryTracker();
+	private final OccupancyIndex OCCUPANCY_INDEX = new OccupancyIndex();
+	private final SlotCursors SLOT_CURSORS = new SlotCursors();
+	private final EnergyAllowance ENERGY_ALLOWANCE = new EnergyAllowance();
 	private final int NBT_SCHEMA_VERSION = 2;
 	private final String NBT_SCHEMA_VERSION_KEY = "__version";
 	private final String NBT_SCHEMA_DATA_KEY = "__data";
 	private final Map<ServerPlayerEntity, Integer> CONTAINER_LISTENERS = new WeakHashMap<>();
+	private ExecutionPlan executionPlan;
 
 
 	public ManagerTileEntity() {
@@ -58,6 +66,77 @@ public class ManagerTileEntity extends TileEntity implements
 	public ManagerTileEntity(final TileEntityType<?> type) {
 		super(type);
 		EXECUTOR = new FlowExecutor(this);
+		FLOW_DATA_CONTAINER.addObserver(this::onFlowDataChanged);
+	}
+
+	/**
+	 * Discard the compiled program when the flow data it was built from changes
+	 */
+	private void onFlowDataChanged(Observable o, Object arg) {
+		if (arg instanceof FlowDataContainerChange) {
+			FlowDataContainerChange change = (FlowDataContainerChange) arg;
+			if (!(change.DATA instanceof CursorFlowData)) {
+				executionPlan = null;
+				if (!isRemoved()) {
+					ManagerScheduler.register(this);
+				}
+			}
+		}
+	}
+
+	public FlowExecutor getExecutor() {
+		return EXECUTOR;
+	}
+
+	public ExecutionProfiler getProfiler() {
+		return PROFILER;
+	}
+
+	public InventoryTracker getInventoryTracker() {
+		return INVENTORY_TRACKER;
+	}
+
+	public OccupancyIndex getOccupancyIndex() {
+		return OCCUPANCY_INDEX;
+	}
+
+	public SlotCursors getSlotCursors() {
+		return SLOT_CURSORS;
+	}
+
+	public EnergyAllowance getEnergyAllowance() {
+		return ENERGY_ALLOWANCE;
+	}
+
+	@Override
+	public void onLoad() {
+		super.onLoad();
+		ManagerScheduler.register(this);
+	}
+
+	@Override
+	public void remove() {
+		super.remove();
+		ManagerScheduler.unregister(this);
+	}
+
+	@Override
+	public void onChunkUnloaded() {
+		super.onChunkUnloaded();
+		ManagerScheduler.unregister(this);
+	}
+
+	/**
+	 * Gets the compiled program, compiling it again if the flow data changed since the last
+	 * call.
+	 *
+	 * @return Execution plan for the current flow data
+	 */
+	public ExecutionPlan getExecutionPlan() {
+		if (executionPlan == null) {
+			executionPlan = ExecutionPlan.compile(getFlowDataContainer());
+		}
+		return executionPlan;
 	}
 
 	@Nullable
@@ -83,6 +162,30 @@ public class ManagerTileEntity extends TileEntity implements
 	public void addContainerListener(ServerPlayerEntity player, int windowId) {
 		CONTAINER_LISTENERS.put(player, windowId);
 		pruneCursors();
+		PROFILER.setActive(Config.Server.allowProfiling);
+		if (PROFILER.isActive()) {
+			// whatever was recorded so far, rather than nothing until the next sync
+			PROFILER.advance(getWorld().getGameTime());
+			PacketHandler.INSTANCE.send(
+				PacketDistributor.PLAYER.with(() -> player),
+				new ManagerProfilePacketS2C(windowId, PROFILER.summarize())
+			);
+		}
+	}
+
+	/**
+	 * Sends the execution profile to everyone with the manager open, once per profiler bucket.
+	 * Called every tick while the manager is open, so the stats of a manager that stopped
+	 * running still age out of the overlay.
+	 */
+	public void syncProfile() {
+		PROFILER.setActive(Config.Server.allowProfiling && hasContainerListeners());
+		long gameTime = getWorld().getGameTime();
+		if (PROFILER.isActive() && PROFILER.shouldSync(gameTime)) {
+			PROFILER.advance(gameTime);
+			List<ExecutionProfiler.NodeSummary> summary = PROFILER.summarize();
+			sendPacketToListeners(windowId -> new ManagerProfilePacketS2C(windowId, summary));
+		}
 	}
 
 	/**
@@ -99,6 +202,10 @@ public class ManagerTileEntity extends TileEntity implements
 	}
 
 
+	public boolean hasContainerListeners() {
+		return !CONTAINER_LISTENERS.isEmpty();
+	}
+
 	public Stream<Entry<ServerPlayerEntity, Integer>> getContainerListeners() {
 		// get non-weak reference to all items in the list to avoid CMEs
 		return new ArrayList<>(CONTAINER_LISTENERS.entrySet()).stream();
@@ -111,6 +218,10 @@ public class ManagerTileEntity extends TileEntity implements
 	public void removeContainerListener(ServerPlayerEntity player) {
 		CONTAINER_LISTENERS.remove(player);
 		pruneCursors();
+		if (!hasContainerListeners()) {
+			// nobody to show it to, stop recording
+			PROFILER.setActive(false);
+		}
 	}
 
 	public void markAndNotify() {
@@ -138,6 +249,12 @@ public class ManagerTileEntity extends TileEntity implements
 			});
 	}
 
+	public void sendStatusToListeners(ITextComponent status) {
+		getContainerListeners()
+			.map(Entry::getKey)
+			.forEach(player -> player.sendStatusMessage(status, false));
+	}
+
 	public void closeGuiForAllListeners() {
 		getContainerListeners()
 			.map(Entry::getKey)
@@ -226,10 +343,4 @@ public class ManagerTileEntity extends TileEntity implements
 		compound.put("data", serializeNBT());
 		return compound;
 	}
-
-
-	@Override
-	public void tick() {
-		EXECUTOR.tick();
-	}
 }
@@ -0,0 +1,325 @@
+package ca.teamdman.sfm.common.tile.manager;
+
+import ca.teamdman.sfm.SFM;
+import ca.teamdman.sfm.common.capability.BulkItemHandler;
+import ca.teamdman.sfm.common.tile.manager.ExecutionProfiler.Counters;
+import ca.teamdman.sfm.common.util.SFMUtil;
+import ca.teamdman.sfm.common.util.SlotsRule;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import net.minecraft.item.ItemStack;
+import net.minecraftforge.items.IItemHandler;
+
+/**
+ * Carries out moves that were checked beforehand, and deals with inventories that take less
+ * than they said they would.
+ * <p>
+ * Items an inventory refuses go back to the slot they came from, then to the other slots of the
+ * destination its rule allows, then to the other slots of the source its rule allows. They are
+ * only voided if none of those take them. Items that end up in the destination count as
+ * moved, the ones that went back to the source don't.
+ * <p>
+ * Moves can be done one at a time with {@link #move}, or collected with {@link #add} and done
+ * together with {@link #commit}, grouped by destination. A {@link BulkItemHandler} destination
+ * is given everything in one insert, and items are taken from a bulk source in one extract per
+ * destination, so those inventories react once per batch rather than once per move.
+ */
+public class MoveTransaction {
+
+	private final ExecutionState STATE;
+	private final Counters COUNTERS;
+	// pending moves by destination, in the order destinations were first seen
+	private final Map<IItemHandler, List<Move>> PENDING = new IdentityHashMap<>();
+	private final List<IItemHandler> DESTINATIONS = new ArrayList<>();
+	private boolean rerouted = false;
+
+	public MoveTransaction(ExecutionState state, Counters counters) {
+		this.STATE = state;
+		this.COUNTERS = counters;
+	}
+
+	/**
+	 * Queues a move for {@link #commit}. Quota usage is recorded straight away so later moves
+	 * are checked against it, and given back for whatever doesn't end up moving.
+	 */
+	public void add(
+		IItemHandler from,
+		int fromSlot,
+		SlotsRule fromSlots,
+		IItemHandler to,
+		int toSlot,
+		SlotsRule toSlots,
+		int count,
+		int inMatcher,
+		int outMatcher
+	) {
+		PENDING.computeIfAbsent(to, handler -> {
+			DESTINATIONS.add(handler);
+			return new ArrayList<>();
+		}).add(new Move(from, fromSlot, fromSlots, toSlot, toSlots, count, inMatcher, outMatcher));
+		STATE.recordUsage(inMatcher, count);
+		STATE.recordUsage(outMatcher, count);
+	}
+
+	public boolean isEmpty() {
+		return DESTINATIONS.isEmpty();
+	}
+
+	/**
+	 * Carries out every queued move.
+	 *
+	 * @return true if anything was moved
+	 */
+	public boolean commit() {
+		boolean moved = false;
+		for (IItemHandler to : DESTINATIONS) {
+			List<Move> moves = PENDING.get(to);
+			if (to instanceof BulkItemHandler) {
+				moved |= commitBulk((BulkItemHandler) to, moves);
+				continue;
+			}
+			for (Move pending : moves) {
+				int count = move(
+					pending.FROM,
+					pending.FROM_SLOT,
+					pending.FROM_SLOTS,
+					to,
+					pending.TO_SLOT,
+					pending.TO_SLOTS,
+					pending.COUNT
+				);
+				moved |= settle(pending, Math.max(0, count));
+			}
+		}
+		PENDING.clear();
+		DESTINATIONS.clear();
+		return moved;
+	}
+
+	/**
+	 * Takes everything bound for a bulk destination out of the sources, then inserts it all
+	 * with one call.
+	 */
+	private boolean commitBulk(BulkItemHandler to, List<Move> moves) {
+		List<ItemStack> extracted = extractAll(moves);
+		int[] slots = new int[moves.size()];
+		for (int i = 0; i < moves.size(); i++) {
+			slots[i] = moves.get(i).TO_SLOT;
+		}
+		List<ItemStack> leftovers = to.insertItems(slots, extracted, false);
+		COUNTERS.insertCalls++;
+
+		boolean moved = false;
+		for (int i = 0; i < moves.size(); i++) {
+			Move pending = moves.get(i);
+			rerouted = false;
+			ItemStack stack = extracted.get(i);
+			ItemStack leftover = leftovers.get(i);
+			int count = stack.getCount() - leftover.getCount();
+			if (!leftover.isEmpty()) {
+				count += recover(
+					stack,
+					leftover,
+					pending.FROM,
+					pending.FROM_SLOT,
+					pending.FROM_SLOTS,
+					to,
+					pending.TO_SLOT,
+					pending.TO_SLOTS
+				);
+			}
+			COUNTERS.itemsMoved += count;
+			moved |= settle(pending, count);
+		}
+		return moved;
+	}
+
+	/**
+	 * @return What was extracted for each move, in order, with one call per bulk source
+	 */
+	private List<ItemStack> extractAll(List<Move> moves) {
+		ItemStack[] extracted = new ItemStack[moves.size()];
+		Map<IItemHandler, IntList> bySource = new IdentityHashMap<>();
+		for (int i = 0; i < moves.size(); i++) {
+			bySource.computeIfAbsent(moves.get(i).FROM, from -> new IntArrayList()).add(i);
+		}
+		bySource.forEach((from, indices) -> {
+			if (from instanceof BulkItemHandler) {
+				int[] slots = new int[indices.size()];
+				int[] amounts = new int[indices.size()];
+				for (int j = 0; j < indices.size(); j++) {
+					Move pending = moves.get(indices.getInt(j));
+					slots[j] = pending.FROM_SLOT;
+					amounts[j] = pending.COUNT;
+				}
+				List<ItemStack> taken = ((BulkItemHandler) from).extractItems(slots, amounts, false);
+				COUNTERS.extractCalls++;
+				for (int j = 0; j < indices.size(); j++) {
+					extracted[indices.getInt(j)] = taken.get(j);
+				}
+			} else {
+				for (int index : indices) {
+					Move pending = moves.get(index);
+					extracted[index] = from.extractItem(pending.FROM_SLOT, pending.COUNT, false);
+					COUNTERS.extractCalls++;
+				}
+			}
+		});
+		return Arrays.asList(extracted);
+	}
+
+	/**
+	 * Gives back the quota reserved for what didn't move.
+	 *
+	 * @return true if anything moved
+	 */
+	private boolean settle(Move pending, int count) {
+		STATE.recordUsage(pending.IN_MATCHER, count - pending.COUNT);
+		STATE.recordUsage(pending.OUT_MATCHER, count - pending.COUNT);
+		return count > 0;
+	}
+
+	/**
+	 * Moves between two slots right away. Quota usage is left to the caller.
+	 *
+	 * @param fromSlots Slots of the source its rule allows, refused items may go back to them
+	 * @param toSlots   Slots of the destination its rule allows, refused items may go to them
+	 * @return Amount that ended up in the destination, -1 if the source gave nothing
+	 */
+	public int move(
+		IItemHandler from,
+		int fromSlot,
+		SlotsRule fromSlots,
+		IItemHandler to,
+		int toSlot,
+		SlotsRule toSlots,
+		int count
+	) {
+		rerouted = false;
+		ItemStack extracted = from.extractItem(fromSlot, count, false);
+		COUNTERS.extractCalls++;
+		if (extracted.isEmpty()) {
+			return -1;
+		}
+		ItemStack leftover = to.insertItem(toSlot, extracted, false);
+		COUNTERS.insertCalls++;
+		int moved = extracted.getCount() - leftover.getCount();
+		if (!leftover.isEmpty()) {
+			moved += recover(extracted, leftover, from, fromSlot, fromSlots, to, toSlot, toSlots);
+		}
+		COUNTERS.itemsMoved += moved;
+		return moved;
+	}
+
+	/**
+	 * @return true if the last {@link #move} put refused items into slots other than its own
+	 */
+	public boolean wasRerouted() {
+		return rerouted;
+	}
+
+	/**
+	 * Finds a place for items the destination refused.
+	 *
+	 * @return Amount that went into other slots of the destination
+	 */
+	private int recover(
+		ItemStack extracted,
+		ItemStack leftover,
+		IItemHandler from,
+		int fromSlot,
+		SlotsRule fromSlots,
+		IItemHandler to,
+		int toSlot,
+		SlotsRule toSlots
+	) {
+		// roll back
+		leftover = from.insertItem(fromSlot, leftover, false);
+		COUNTERS.insertCalls++;
+		if (leftover.isEmpty()) {
+			return 0;
+		}
+
+		// output slots often refuse insertion, try the rest of the slots the rules allow
+		rerouted = true;
+		int before = leftover.getCount();
+		leftover = insertStacked(to, toSlots, toSlot, leftover);
+		int routed = before - leftover.getCount();
+		if (!leftover.isEmpty()) {
+			leftover = insertStacked(from, fromSlots, fromSlot, leftover);
+		}
+		if (!leftover.isEmpty()) {
+			SFM.LOGGER.warn(
+				SFMUtil.getMarker(getClass()),
+				"Failed to fully insert stack {}, remaining {} will be voided",
+				extracted,
+				leftover
+			);
+		}
+		return routed;
+	}
+
+	/**
+	 * Inserts into the allowed slots other than the given one, stacking onto matching stacks
+	 * before using empty slots.
+	 *
+	 * @return What didn't fit
+	 */
+	private ItemStack insertStacked(
+		IItemHandler handler,
+		SlotsRule slots,
+		int skip,
+		ItemStack stack
+	) {
+		int[] allowed = slots.getSlots(handler.getSlots())
+			.filter(slot -> slot != skip && slot < handler.getSlots())
+			.toArray();
+		for (int pass = 0; pass < 2 && !stack.isEmpty(); pass++) {
+			for (int slot : allowed) {
+				if (stack.isEmpty()) {
+					break;
+				}
+				if (pass == 0 && handler.getStackInSlot(slot).isEmpty()) {
+					continue;
+				}
+				stack = handler.insertItem(slot, stack, false);
+				COUNTERS.insertCalls++;
+			}
+		}
+		return stack;
+	}
+
+	private static class Move {
+
+		public final IItemHandler FROM;
+		public final int FROM_SLOT, TO_SLOT;
+		public final SlotsRule FROM_SLOTS, TO_SLOTS;
+		public final int COUNT;
+		public final int IN_MATCHER, OUT_MATCHER;
+
+		public Move(
+			IItemHandler from,
+			int fromSlot,
+			SlotsRule fromSlots,
+			int toSlot,
+			SlotsRule toSlots,
+			int count,
+			int inMatcher,
+			int outMatcher
+		) {
+			this.FROM = from;
+			this.FROM_SLOT = fromSlot;
+			this.FROM_SLOTS = fromSlots;
+			this.TO_SLOT = toSlot;
+			this.TO_SLOTS = toSlots;
+			this.COUNT = count;
+			this.IN_MATCHER = inMatcher;
+			this.OUT_MATCHER = outMatcher;
+		}
+	}
+}
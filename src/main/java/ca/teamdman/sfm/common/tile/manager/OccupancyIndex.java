@@ -0,0 +1,137 @@
+package ca.teamdman.sfm.common.tile.manager;
+
+import ca.teamdman.sfm.common.cablenetwork.CableNetwork;
+import ca.teamdman.sfm.common.flow.data.ItemMovementRuleFlowData;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import javax.annotation.Nullable;
+import net.minecraft.item.ItemStack;
+import net.minecraftforge.items.IItemHandler;
+
+/**
+ * The {@link SlotOccupancy} of every handler a manager moved items into or out of this tick,
+ * the slots read from any other handler this tick, and the handlers of every rule it used.
+ * <p>
+ * Shared by all outputs and conditions of the manager, so an input that feeds several outputs
+ * is only read once, and an output that runs after another one into the same inventory goes
+ * straight to the slots that are still free. Rebuilt every tick since other things may have
+ * changed the inventories in between.
+ */
+public class OccupancyIndex {
+
+	private final Map<IItemHandler, SlotOccupancy> OCCUPANCIES = new IdentityHashMap<>();
+	private final Map<UUID, List<IItemHandler>> HANDLERS = new HashMap<>();
+	// slots read from handlers without an occupancy, null where not read yet
+	private final Map<IItemHandler, ItemStack[]> READS = new IdentityHashMap<>();
+	// other handlers of the same tile, for the handlers of rules
+	private final Map<IItemHandler, Collection<IItemHandler>> SIBLINGS = new IdentityHashMap<>();
+	private long tick = Long.MIN_VALUE;
+
+	private void advance(long gameTime) {
+		if (gameTime != tick) {
+			clear();
+			tick = gameTime;
+		}
+	}
+
+	/**
+	 * @param gameTime Current game time, the index is cleared when it changes
+	 * @return Occupancy of the handler, building it if this is the first use this tick
+	 */
+	public SlotOccupancy get(IItemHandler handler, long gameTime) {
+		advance(gameTime);
+		// slots read already don't have to be read again
+		return OCCUPANCIES.computeIfAbsent(handler, h -> new SlotOccupancy(h, READS.remove(h)));
+	}
+
+	/**
+	 * Reads a slot at most once per tick, unless the handler has an occupancy, which reads the
+	 * slot again to catch changes made without going through it.
+	 *
+	 * @return Stack in the slot, must not be modified
+	 */
+	public ItemStack getStack(IItemHandler handler, int slot, long gameTime) {
+		advance(gameTime);
+		SlotOccupancy occupancy = OCCUPANCIES.get(handler);
+		if (occupancy != null) {
+			return occupancy.getStack(slot);
+		}
+		ItemStack[] stacks = READS.computeIfAbsent(handler, h -> new ItemStack[h.getSlots()]);
+		if (slot < 0 || slot >= stacks.length) {
+			return handler.getStackInSlot(slot);
+		}
+		if (stacks[slot] == null) {
+			stacks[slot] = handler.getStackInSlot(slot);
+		}
+		return stacks[slot];
+	}
+
+	/**
+	 * @return Occupancy of the handler if it was built this tick
+	 */
+	@Nullable
+	public SlotOccupancy getIfPresent(IItemHandler handler, long gameTime) {
+		return gameTime == tick ? OCCUPANCIES.get(handler) : null;
+	}
+
+	/**
+	 * @return Handlers of the rule, looked up once per tick
+	 */
+	public List<IItemHandler> getItemHandlers(
+		CompiledRule<ItemMovementRuleFlowData> rule,
+		CableNetwork network,
+		long gameTime
+	) {
+		advance(gameTime);
+		return HANDLERS.computeIfAbsent(rule.RULE.getId(), __ -> {
+			List<IItemHandler> handlers = rule.RULE.getItemHandlers(rule.TILE_MATCHERS, network);
+			for (IItemHandler handler : handlers) {
+				Collection<IItemHandler> siblings = network.getSiblingItemHandlers(handler);
+				if (siblings.size() > 1) {
+					SIBLINGS.put(handler, siblings);
+				}
+			}
+			return handlers;
+		});
+	}
+
+	/**
+	 * Forgets what was read from the other handlers of the tile, such as the other faces of a
+	 * sided inventory, after something moved through one of them. The handler itself is kept
+	 * up to date by its occupancy.
+	 */
+	public void onMoved(IItemHandler handler) {
+		Collection<IItemHandler> siblings = SIBLINGS.get(handler);
+		if (siblings == null) {
+			return;
+		}
+		for (IItemHandler sibling : siblings) {
+			if (sibling != handler) {
+				OCCUPANCIES.remove(sibling);
+				READS.remove(sibling);
+			}
+		}
+	}
+
+	/**
+	 * Forget all occupancies, called after inventories were changed without updating them.
+	 */
+	public void invalidate() {
+		OCCUPANCIES.clear();
+		READS.clear();
+	}
+
+	/**
+	 * Forget everything, called at the end of each tick the manager ran.
+	 */
+	public void clear() {
+		OCCUPANCIES.clear();
+		HANDLERS.clear();
+		READS.clear();
+		SIBLINGS.clear();
+	}
+}
@@ -0,0 +1,64 @@
+package ca.teamdman.sfm.common.tile.manager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Where each rule last took items from and put items into, per handler, so that repeated runs
+ * over large inventories start where the previous run left off instead of at slot 0.
+ * <p>
+ * Cursors are positions in the slot list of the rule rather than slot numbers, and are kept
+ * until the program changes or the rule covers a different number of handlers.
+ */
+public class SlotCursors {
+
+	private final Map<UUID, Cursors> CURSORS = new HashMap<>();
+	private ExecutionPlan plan;
+
+	/**
+	 * @param handlers Number of handlers the rule currently covers
+	 */
+	public Cursors get(ExecutionPlan plan, UUID rule, int handlers) {
+		if (plan != this.plan) {
+			CURSORS.clear();
+			this.plan = plan;
+		}
+		Cursors cursors = CURSORS.get(rule);
+		if (cursors == null || cursors.EXTRACT.length != handlers) {
+			cursors = new Cursors(handlers);
+			CURSORS.put(rule, cursors);
+		}
+		return cursors;
+	}
+
+	public static class Cursors {
+
+		/**
+		 * Position of the slot items were last taken from, per handler
+		 */
+		public final int[] EXTRACT;
+		/**
+		 * Position of the slot items were last put into, per handler
+		 */
+		public final int[] INSERT;
+		/**
+		 * Handler a round robin output inserts into next
+		 */
+		public int nextHandler = 0;
+
+		public Cursors(int handlers) {
+			this.EXTRACT = new int[handlers];
+			this.INSERT = new int[handlers];
+		}
+
+		/**
+		 * @param cursor Position to start from
+		 * @param i      How many positions have been visited so far
+		 * @return Position to visit next, wrapping around the end of the list
+		 */
+		public static int rotate(int cursor, int i, int size) {
+			return size == 0 ? 0 : (cursor + i) % size;
+		}
+	}
+}
@@ -0,0 +1,222 @@
+package ca.teamdman.sfm.common.tile.manager;
+
+import ca.teamdman.sfm.common.util.ItemKey;
+import it.unimi.dsi.fastutil.ints.IntRBTreeSet;
+import it.unimi.dsi.fastutil.ints.IntSortedSet;
+import it.unimi.dsi.fastutil.ints.IntSortedSets;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+import net.minecraft.item.ItemStack;
+import net.minecraftforge.items.IItemHandler;
+
+/**
+ * Which slots of a handler are empty, which hold partial stacks of which item, and which are
+ * full, so that inserting doesn't have to probe every slot. Also which slots hold each item
+ * and how many, so that extracting doesn't have to read every slot either.
+ * <p>
+ * Only slots of {@link TrustedHandlers} are ever classified as full. Other handlers may hold
+ * more than a stack per slot, like drawers and bins do, so their slots are left as partial and
+ * inserts keep probing them.
+ * <p>
+ * Built from the live handler and kept up to date by calling {@link #update(int)} for every
+ * slot changed through it. Changes made by anything else are only seen when a slot is read
+ * through {@link #getStack(int)}, so an occupancy is only trusted for the tick it was built in,
+ * see {@link OccupancyIndex}. Counts and keys are copies, handlers may grow their stacks in
+ * place.
+ */
+public class SlotOccupancy {
+
+	public final IItemHandler HANDLER;
+	// item in each slot, null if empty
+	private final ItemKey[] KEYS;
+	private final int[] COUNTS;
+	private final boolean[] FULL;
+	private final IntSortedSet EMPTY = new IntRBTreeSet();
+	private final Map<ItemKey, IntSortedSet> PARTIAL = new HashMap<>();
+	private final Map<ItemKey, IntSortedSet> HOLDING = new HashMap<>();
+	private final Object2IntMap<ItemKey> TOTALS = new Object2IntOpenHashMap<>();
+
+	public SlotOccupancy(IItemHandler handler) {
+		this(handler, null);
+	}
+
+	/**
+	 * @param read Stacks already read from the handler this tick by slot, null where a slot
+	 *             wasn't read yet
+	 */
+	public SlotOccupancy(IItemHandler handler, @Nullable ItemStack[] read) {
+		this.HANDLER = handler;
+		int slots = handler.getSlots();
+		this.KEYS = new ItemKey[slots];
+		this.COUNTS = new int[slots];
+		this.FULL = new boolean[slots];
+		for (int slot = 0; slot < slots; slot++) {
+			boolean wasRead = read != null && slot < read.length && read[slot] != null;
+			classify(slot, wasRead ? read[slot] : handler.getStackInSlot(slot));
+		}
+	}
+
+	/**
+	 * @return true if the slot of a trusted handler can't take any more of its stack, always
+	 * false for other handlers since only they know how much a slot holds
+	 */
+	private boolean isFull(int slot, ItemStack stack) {
+		if (!TrustedHandlers.isTrusted(HANDLER)) {
+			return false;
+		}
+		int limit = Math.min(HANDLER.getSlotLimit(slot), stack.getMaxStackSize());
+		return stack.getCount() >= limit;
+	}
+
+	public int getSlots() {
+		return KEYS.length;
+	}
+
+	/**
+	 * Reads the slot again after it was changed.
+	 *
+	 * @param elsewhere true if other slots may have changed too, all slots are read again
+	 */
+	public void update(int slot, boolean elsewhere) {
+		if (elsewhere) {
+			for (int i = 0; i < KEYS.length; i++) {
+				update(i);
+			}
+		} else {
+			update(slot);
+		}
+	}
+
+	/**
+	 * Reads the slot again after it was changed.
+	 */
+	public void update(int slot) {
+		if (slot < 0 || slot >= KEYS.length) {
+			return;
+		}
+		update(slot, HANDLER.getStackInSlot(slot));
+	}
+
+	private void update(int slot, ItemStack stack) {
+		ItemKey previous = KEYS[slot];
+		if (previous == null) {
+			EMPTY.remove(slot);
+		} else {
+			if (!FULL[slot]) {
+				remove(PARTIAL, previous, slot);
+			}
+			remove(HOLDING, previous, slot);
+			int total = TOTALS.getInt(previous) - COUNTS[slot];
+			if (total > 0) {
+				TOTALS.put(previous, total);
+			} else {
+				TOTALS.removeInt(previous);
+			}
+		}
+		classify(slot, stack);
+	}
+
+	private static void remove(Map<ItemKey, IntSortedSet> slots, ItemKey key, int slot) {
+		IntSortedSet set = slots.get(key);
+		set.remove(slot);
+		if (set.isEmpty()) {
+			slots.remove(key);
+		}
+	}
+
+	private void classify(int slot, ItemStack stack) {
+		if (stack.isEmpty()) {
+			KEYS[slot] = null;
+			COUNTS[slot] = 0;
+			FULL[slot] = false;
+			EMPTY.add(slot);
+			return;
+		}
+		ItemKey key = ItemKey.of(stack);
+		KEYS[slot] = key;
+		COUNTS[slot] = stack.getCount();
+		FULL[slot] = isFull(slot, stack);
+		HOLDING.computeIfAbsent(key, __ -> new IntRBTreeSet()).add(slot);
+		TOTALS.put(key, TOTALS.getInt(key) + stack.getCount());
+		if (!FULL[slot]) {
+			PARTIAL.computeIfAbsent(key, __ -> new IntRBTreeSet()).add(slot);
+		}
+	}
+
+	/**
+	 * Reads the slot from the handler, classifying it again if it changed without going through
+	 * this occupancy.
+	 *
+	 * @return Stack in the slot, must not be modified
+	 */
+	public ItemStack getStack(int slot) {
+		if (slot < 0 || slot >= KEYS.length) {
+			return ItemStack.EMPTY;
+		}
+		ItemStack stack = HANDLER.getStackInSlot(slot);
+		ItemKey key = KEYS[slot];
+		boolean changed = key == null
+			? !stack.isEmpty()
+			: stack.getCount() != COUNTS[slot] || !key.matches(stack);
+		if (changed) {
+			update(slot, stack);
+		}
+		return stack;
+	}
+
+	/**
+	 * @return Empty slots in slot order, a live view
+	 */
+	public IntSortedSet getEmptySlots() {
+		return EMPTY;
+	}
+
+	/**
+	 * @return Slots holding a stack of the given item with room left, in slot order, a live view
+	 */
+	public IntSortedSet getPartialSlots(ItemKey key) {
+		IntSortedSet partial = PARTIAL.get(key);
+		return partial == null ? IntSortedSets.EMPTY_SET : partial;
+	}
+
+	public boolean isEmpty(int slot) {
+		return slot >= 0 && slot < KEYS.length && KEYS[slot] == null;
+	}
+
+	/**
+	 * @return Items held by any slot, a live view
+	 */
+	public Set<ItemKey> getItems() {
+		return HOLDING.keySet();
+	}
+
+	/**
+	 * @return Slots holding the item, in slot order, a live view
+	 */
+	public IntSortedSet getSlotsHolding(ItemKey key) {
+		IntSortedSet slots = HOLDING.get(key);
+		return slots == null ? IntSortedSets.EMPTY_SET : slots;
+	}
+
+	/**
+	 * @return How many of the item all slots hold together
+	 */
+	public int getCount(ItemKey key) {
+		return TOTALS.getInt(key);
+	}
+
+	/**
+	 * @return false if no slot has room for the item
+	 */
+	public boolean hasRoomFor(ItemKey key) {
+		return !EMPTY.isEmpty() || PARTIAL.containsKey(key);
+	}
+
+	public boolean isFull() {
+		return EMPTY.isEmpty() && PARTIAL.isEmpty();
+	}
+}
@@ -0,0 +1,142 @@
+package ca.teamdman.sfm.common.tile.manager;
+
+import ca.teamdman.sfm.common.flow.data.ItemMovementRuleFlowData;
+import ca.teamdman.sfm.common.tile.manager.ExecutionProfiler.Counters;
+import java.util.ArrayList;
+import java.util.List;
+import net.minecraft.item.ItemStack;
+import net.minecraftforge.items.IItemHandler;
+import net.minecraftforge.items.ItemHandlerHelper;
+
+/**
+ * Moves decided by a {@link TransferPlanner}, to be applied on the server thread.
+ */
+public class TransferPlan {
+
+	private final List<Move> MOVES = new ArrayList<>();
+	// moves before this one were applied on an earlier tick
+	private int next = 0;
+
+	public void add(Move move) {
+		MOVES.add(move);
+	}
+
+	public int size() {
+		return MOVES.size();
+	}
+
+	/**
+	 * @return true if {@link #apply} ran out of budget before every move was applied
+	 */
+	public boolean hasRemaining() {
+		return next < MOVES.size();
+	}
+
+	/**
+	 * Performs the planned moves against the live inventories.
+	 * <p>
+	 * The inventories may have changed since the snapshot was taken, so every move is checked
+	 * again: the source slot must still hold the planned item, quotas are checked against the
+	 * usage recorded so far, and insertion is simulated before anything is extracted. The
+	 * moves that pass are then committed together in a {@link MoveTransaction}, which puts back
+	 * whatever the destinations refuse.
+	 * <p>
+	 * Stops once the budget runs out, having applied at least one move. Calling it again
+	 * continues with the remaining moves, see {@link #hasRemaining()}.
+	 *
+	 * @param state    Execution state to check and record quota usage against
+	 * @param budget   Budget to charge for each move
+	 * @param counters Profiler counters for the applying node
+	 * @return true if anything was moved
+	 */
+	public boolean apply(ExecutionState state, ExecutionBudget budget, Counters counters) {
+		MoveTransaction transaction = new MoveTransaction(state, counters);
+		int first = next;
+		for (; next < MOVES.size(); next++) {
+			if (next > first && budget.isExhausted()) {
+				break;
+			}
+			Move move = MOVES.get(next);
+			budget.consume(1);
+			counters.slotVisits++;
+
+			// skip if the source no longer holds what was planned
+			ItemStack live = move.FROM.getStackInSlot(move.FROM_SLOT);
+			if (live.isEmpty() || !ItemHandlerHelper.canItemStacksStack(live, move.ITEM)) {
+				continue;
+			}
+
+			// never exceed the quotas, they may have been used by other outputs meanwhile
+			int count = Math.min(
+				move.COUNT,
+				Math.min(
+					state.getRemainingQuantity(move.IN_RULE, move.IN_MATCHER),
+					state.getRemainingQuantity(move.OUT_RULE, move.OUT_MATCHER)
+				)
+			);
+			if (count <= 0) {
+				continue;
+			}
+
+			int toTransfer = TrustedHandlers.simulateMove(
+				move.FROM,
+				move.FROM_SLOT,
+				move.TO,
+				move.TO_SLOT,
+				count,
+				counters
+			);
+			if (toTransfer <= 0) {
+				continue;
+			}
+
+			// quota is reserved now and given back for anything that doesn't move
+			transaction.add(
+				move.FROM,
+				move.FROM_SLOT,
+				move.IN_RULE.slots,
+				move.TO,
+				move.TO_SLOT,
+				move.OUT_RULE.slots,
+				toTransfer,
+				move.IN_MATCHER,
+				move.OUT_MATCHER
+			);
+		}
+		return transaction.commit();
+	}
+
+	public static class Move {
+
+		public final IItemHandler FROM, TO;
+		public final int FROM_SLOT, TO_SLOT;
+		public final ItemStack ITEM;
+		public final int COUNT;
+		public final ItemMovementRuleFlowData IN_RULE, OUT_RULE;
+		public final int IN_MATCHER, OUT_MATCHER;
+
+		public Move(
+			IItemHandler from,
+			int fromSlot,
+			IItemHandler to,
+			int toSlot,
+			ItemStack item,
+			int count,
+			ItemMovementRuleFlowData inRule,
+			int inMatcher,
+			ItemMovementRuleFlowData outRule,
+			int outMatcher
+		) {
+			this.FROM = from;
+			this.FROM_SLOT = fromSlot;
+			this.TO = to;
+			this.TO_SLOT = toSlot;
+			this.ITEM = item;
+			this.COUNT = count;
+			this.IN_RULE = inRule;
+			this.IN_MATCHER = inMatcher;
+			this.OUT_RULE = outRule;
+			this.OUT_MATCHER = outMatcher;
+		}
+	}
+}
@@ -0,0 +1,192 @@
+package ca.teamdman.sfm.common.tile.manager;
+
+import ca.teamdman.sfm.common.config.Config;
+import ca.teamdman.sfm.common.flow.data.ItemMovementRuleFlowData;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import net.minecraft.item.ItemStack;
+import net.minecraftforge.items.IItemHandler;
+
+/**
+ * Plans the transfers of an output node on a worker thread.
+ * <p>
+ * The server thread gathers the handlers involved into an {@link InventorySnapshot} and asks
+ * the matchers about every stack in it, then the quota math and slot searching happen on the
+ * pool without touching any flow data. The resulting {@link TransferPlan} is applied back on the
+ * server thread.
+ */
+public class TransferPlanner {
+
+	private static ExecutorService pool;
+
+	private final InventorySnapshot SNAPSHOT = new InventorySnapshot();
+	private final List<Endpoint> INPUTS = new ArrayList<>();
+	private final Endpoint OUTPUT;
+	private final ExecutionState STATE;
+
+	/**
+	 * Takes the snapshot, must be called on the server thread.
+	 */
+	public TransferPlanner(
+		List<CompiledRule<ItemMovementRuleFlowData>> inputs,
+		List<List<IItemHandler>> inputHandlers,
+		CompiledRule<ItemMovementRuleFlowData> output,
+		List<IItemHandler> outputHandlers,
+		ExecutionState state
+	) {
+		for (int i = 0; i < inputs.size(); i++) {
+			Endpoint input = new Endpoint(inputs.get(i), inputHandlers.get(i));
+			input.match(output);
+			INPUTS.add(input);
+		}
+		this.OUTPUT = new Endpoint(output, outputHandlers);
+		this.STATE = state.copy();
+	}
+
+	private static synchronized ExecutorService getPool() {
+		if (pool == null) {
+			pool = Executors.newFixedThreadPool(
+				Config.Server.planningThreads,
+				new ThreadFactoryBuilder()
+					.setNameFormat("SFM Transfer Planner %d")
+					.setDaemon(true)
+					.build()
+			);
+		}
+		return pool;
+	}
+
+	public CompletableFuture<TransferPlan> submit() {
+		return CompletableFuture.supplyAsync(this::plan, getPool());
+	}
+
+	/**
+	 * Same traversal as the direct transfer in the output node, but against the snapshot.
+	 */
+	public TransferPlan plan() {
+		TransferPlan plan = new TransferPlan();
+		ItemMovementRuleFlowData outRule = OUTPUT.RULE.RULE;
+		for (Endpoint input : INPUTS) {
+			ItemMovementRuleFlowData inRule = input.RULE.RULE;
+			for (int h = 0; h < input.HANDLERS.length; h++) {
+				int inHandler = input.HANDLERS[h];
+				for (int s = 0; s < input.SLOTS[h].length; s++) {
+					int inSlot = input.SLOTS[h][s];
+					ItemStack stack = SNAPSHOT.getStackInSlot(inHandler, inSlot);
+					// slots only filled by this plan were not matched, the items just got there
+					if (stack.isEmpty() || input.inMatches[h][s] == null) {
+						continue;
+					}
+
+					int inMatcher = getBestMatcher(inRule, input.inMatches[h][s]);
+					int outMatcher = getBestMatcher(outRule, input.outMatches[h][s]);
+					int remainingQuantity = Math.min(
+						STATE.getRemainingQuantity(inRule, inMatcher),
+						STATE.getRemainingQuantity(outRule, outMatcher)
+					);
+
+					for (int o = 0; o < OUTPUT.HANDLERS.length && remainingQuantity > 0; o++) {
+						int outHandler = OUTPUT.HANDLERS[o];
+						for (int outSlot : OUTPUT.SLOTS[o]) {
+							if (remainingQuantity <= 0 || stack.isEmpty()) {
+								break;
+							}
+							if (outHandler == inHandler && outSlot == inSlot) {
+								continue;
+							}
+							int toTransfer = Math.min(
+								Math.min(remainingQuantity, stack.getCount()),
+								SNAPSHOT.getSpace(outHandler, outSlot, stack)
+							);
+							if (toTransfer <= 0) {
+								continue;
+							}
+							plan.add(new TransferPlan.Move(
+								SNAPSHOT.getHandler(inHandler),
+								inSlot,
+								SNAPSHOT.getHandler(outHandler),
+								outSlot,
+								stack.copy(),
+								toTransfer,
+								inRule,
+								inMatcher,
+								outRule,
+								outMatcher
+							));
+							SNAPSHOT.move(inHandler, inSlot, outHandler, outSlot, toTransfer);
+							STATE.recordUsage(inMatcher, toTransfer);
+							STATE.recordUsage(outMatcher, toTransfer);
+							remainingQuantity -= toTransfer;
+						}
+					}
+				}
+			}
+		}
+		return plan;
+	}
+
+	/**
+	 * Same choice as {@link ItemMovementRuleFlowData#getBestItemMatcher}, among matchers that
+	 * were already asked on the server thread.
+	 *
+	 * @param matching Plan ids of the matchers that match the stack, in list order
+	 */
+	private int getBestMatcher(ItemMovementRuleFlowData rule, int[] matching) {
+		int best = -1;
+		int bestRemaining = -1;
+		for (int id : matching) {
+			int remaining = STATE.getRemainingQuantity(rule, id);
+			if (remaining > bestRemaining) { // Most remaining first
+				best = id;
+				bestRemaining = remaining;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * The handlers and slots a rule covers, as snapshot indices
+	 */
+	private class Endpoint {
+
+		public final CompiledRule<ItemMovementRuleFlowData> RULE;
+		public final int[] HANDLERS;
+		public final int[][] SLOTS;
+		// plan ids of the matchers of this rule and of the output matching each slot, inputs only
+		public int[][][] inMatches, outMatches;
+
+		public Endpoint(CompiledRule<ItemMovementRuleFlowData> rule, List<IItemHandler> handlers) {
+			this.RULE = rule;
+			this.HANDLERS = new int[handlers.size()];
+			this.SLOTS = new int[handlers.size()][];
+			for (int i = 0; i < handlers.size(); i++) {
+				HANDLERS[i] = SNAPSHOT.add(handlers.get(i));
+				SLOTS[i] = rule.RULE.slots.getSlots(SNAPSHOT.getSlots(HANDLERS[i])).toArray();
+			}
+		}
+
+		/**
+		 * Asks the matchers of this rule and of the output about the stack in each slot, on the
+		 * server thread where the matchers may be edited.
+		 */
+		public void match(CompiledRule<ItemMovementRuleFlowData> output) {
+			inMatches = new int[HANDLERS.length][][];
+			outMatches = new int[HANDLERS.length][][];
+			for (int h = 0; h < HANDLERS.length; h++) {
+				inMatches[h] = new int[SLOTS[h].length][];
+				outMatches[h] = new int[SLOTS[h].length][];
+				for (int s = 0; s < SLOTS[h].length; s++) {
+					ItemStack stack = SNAPSHOT.getStackInSlot(HANDLERS[h], SLOTS[h][s]);
+					if (!stack.isEmpty()) {
+						inMatches[h][s] = RULE.getMatchingMatchers(stack);
+						outMatches[h][s] = output.getMatchingMatchers(stack);
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package ca.teamdman.sfm.common.tile.manager;
+
+import ca.teamdman.sfm.common.capability.RangedBulkWrapper;
+import ca.teamdman.sfm.common.config.Config;
+import ca.teamdman.sfm.common.tile.manager.ExecutionProfiler.Counters;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import net.minecraft.item.ItemStack;
+import net.minecraftforge.items.IItemHandler;
+import net.minecraftforge.items.ItemHandlerHelper;
+import net.minecraftforge.items.ItemStackHandler;
+import net.minecraftforge.items.wrapper.InvWrapper;
+
+/**
+ * Handler classes whose insert and extract behave exactly like {@link ItemStackHandler}, so the
+ * outcome of a move can be computed from the slot contents instead of simulated.
+ * <p>
+ * Only exact classes are trusted, a subclass may override insertion. Wrappers such as {@code
+ * SidedInvWrapper} and {@code RangedWrapper} are left out since their behaviour depends on what
+ * they wrap, which they don't expose. {@link RangedBulkWrapper} does, it is trusted when the
+ * handler it wraps is.
+ */
+public class TrustedHandlers {
+
+	private static final Set<Class<?>> TRUSTED = Collections
+		.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+
+	static {
+		register(ItemStackHandler.class);
+		register(InvWrapper.class);
+	}
+
+	/**
+	 * @param clazz Handler class that doesn't change how {@link ItemStackHandler} inserts and
+	 *              extracts, overriding {@code isItemValid}, {@code getSlotLimit} or {@code
+	 *              onContentsChanged} is fine
+	 */
+	public static void register(Class<? extends IItemHandler> clazz) {
+		TRUSTED.add(clazz);
+	}
+
+	public static boolean isTrusted(IItemHandler handler) {
+		if (!Config.Server.trustedHandlers) {
+			return false;
+		}
+		if (handler.getClass() == RangedBulkWrapper.class) {
+			// only narrows the slots, which getSlots and the slot methods already account for
+			handler = ((RangedBulkWrapper) handler).getWrapped();
+		}
+		return TRUSTED.contains(handler.getClass());
+	}
+
+	/**
+	 * @return Amount of the stack the slot of a trusted handler would accept
+	 */
+	public static int getInsertable(IItemHandler handler, int slot, ItemStack stack, int count) {
+		if (stack.isEmpty() || count <= 0 || !handler.isItemValid(slot, stack)) {
+			return 0;
+		}
+		int limit = Math.min(handler.getSlotLimit(slot), stack.getMaxStackSize());
+		ItemStack existing = handler.getStackInSlot(slot);
+		if (!existing.isEmpty()) {
+			if (!ItemHandlerHelper.canItemStacksStack(stack, existing)) {
+				return 0;
+			}
+			limit -= existing.getCount();
+		}
+		return Math.max(0, Math.min(limit, count));
+	}
+
+	/**
+	 * @return Amount the slot of a trusted handler would give
+	 */
+	public static int getExtractable(ItemStack stack, int amount) {
+		return Math.max(0, Math.min(amount, Math.min(stack.getCount(), stack.getMaxStackSize())));
+	}
+
+	/**
+	 * Finds out how much of a slot can move into another without moving anything, computing
+	 * the answer directly for trusted handlers and simulating it for the rest.
+	 *
+	 * @return Amount that can move, 0 if the output slot wouldn't take any, -1 if the input
+	 * slot wouldn't give any
+	 */
+	public static int simulateMove(
+		IItemHandler from,
+		int fromSlot,
+		IItemHandler to,
+		int toSlot,
+		int amount,
+		Counters counters
+	) {
+		ItemStack offered;
+		if (isTrusted(from)) {
+			offered = from.getStackInSlot(fromSlot);
+			amount = offered.isEmpty() ? 0 : getExtractable(offered, amount);
+		} else {
+			offered = from.extractItem(fromSlot, amount, true);
+			counters.extractCalls++;
+			amount = offered.getCount();
+		}
+		if (offered.isEmpty() || amount <= 0) {
+			return -1;
+		}
+
+		if (isTrusted(to)) {
+			return getInsertable(to, toSlot, offered, amount);
+		}
+		// simulated extracts are copies already, live stacks must not be handed out
+		ItemStack stack = isTrusted(from)
+			? ItemHandlerHelper.copyStackWithSize(offered, amount)
+			: offered;
+		ItemStack leftover = to.insertItem(toSlot, stack, true);
+		counters.insertCalls++;
+		return amount - leftover.getCount();
+	}
+}
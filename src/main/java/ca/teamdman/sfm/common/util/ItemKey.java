@@ -0,0 +1,57 @@
+package ca.teamdman.sfm.common.util;
+
+import java.util.Objects;
+import javax.annotation.Nullable;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.CompoundNBT;
+
+/**
+ * Item and tag of a stack, ignoring the count, for grouping stacks that can stack together.
+ * <p>
+ * Capabilities are not part of the key, so two stacks with equal keys may still refuse to
+ * stack. Anything relying on that has to let the handler have the final say.
+ */
+public class ItemKey {
+
+	public final Item ITEM;
+	@Nullable
+	public final CompoundNBT TAG;
+	private final int HASH;
+
+	private ItemKey(Item item, @Nullable CompoundNBT tag) {
+		this.ITEM = item;
+		this.TAG = tag;
+		this.HASH = 31 * System.identityHashCode(item) + Objects.hashCode(tag);
+	}
+
+	/**
+	 * @param stack Stack to take the key of, the tag is copied so the key stays the same when
+	 *              the stack is changed afterwards
+	 */
+	public static ItemKey of(ItemStack stack) {
+		CompoundNBT tag = stack.getTag();
+		return new ItemKey(stack.getItem(), tag == null ? null : tag.copy());
+	}
+
+	public boolean matches(ItemStack stack) {
+		return stack.getItem() == ITEM && Objects.equals(stack.getTag(), TAG);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof ItemKey)) {
+			return false;
+		}
+		ItemKey other = (ItemKey) o;
+		return ITEM == other.ITEM && HASH == other.HASH && Objects.equals(TAG, other.TAG);
+	}
+
+	@Override
+	public int hashCode() {
+		return HASH;
+	}
+}
@@ -0,0 +1,124 @@
+package ca.teamdman.sfm.common.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel keyed by tick.
+ * <p>
+ * Scheduling and advancing one tick are constant time regardless of how many entries are
+ * waiting, so entries that are far from their deadline cost nothing until they come due. Each
+ * level has {@link #SLOTS} slots, with a level covering {@link #SLOTS} times the span of the
+ * level below it. Entries move down a level whenever the slot they are in comes up.
+ *
+ * @param <T> Entry type
+ */
+public class TimingWheel<T> {
+
+	private static final int BITS = 6;
+	private static final int SLOTS = 1 << BITS;
+	private static final int LEVELS = 4;
+	private static final long SPAN = 1L << (BITS * LEVELS);
+
+	private final List<List<Entry<T>>> WHEEL = new ArrayList<>(SLOTS * LEVELS);
+	private long currentTick;
+	private int size = 0;
+
+	/**
+	 * @param currentTick Tick the wheel starts at, entries are due strictly after this
+	 */
+	public TimingWheel(long currentTick) {
+		this.currentTick = currentTick;
+		for (int i = 0; i < SLOTS * LEVELS; i++) {
+			WHEEL.add(new ArrayList<>());
+		}
+	}
+
+	public long getCurrentTick() {
+		return currentTick;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param value    Entry
+	 * @param deadline Tick the entry is due, deadlines already passed are due on the next tick
+	 */
+	public void schedule(T value, long deadline) {
+		place(new Entry<>(value, Math.max(deadline, currentTick + 1)));
+		size++;
+	}
+
+	/**
+	 * Moves the wheel forward to the given tick, passing every entry that came due to the
+	 * consumer in deadline order.
+	 */
+	public void advance(long tick, Consumer<T> consumer) {
+		if (tick - currentTick > SPAN) {
+			// jumped further than the wheel can represent, every entry is due
+			List<Entry<T>> due = new ArrayList<>(size);
+			WHEEL.forEach(due::addAll);
+			WHEEL.forEach(List::clear);
+			due.sort((a, b) -> Long.compare(a.DEADLINE, b.DEADLINE));
+			size = 0;
+			currentTick = tick;
+			due.forEach(entry -> consumer.accept(entry.VALUE));
+			return;
+		}
+		while (currentTick < tick) {
+			currentTick++;
+
+			// move entries from higher levels down, highest first so they can keep falling
+			for (int level = LEVELS - 1; level > 0; level--) {
+				if ((currentTick & ((1L << (BITS * level)) - 1)) == 0) {
+					List<Entry<T>> slot = getSlot(level, currentTick);
+					List<Entry<T>> moving = new ArrayList<>(slot);
+					slot.clear();
+					moving.forEach(this::place);
+				}
+			}
+
+			List<Entry<T>> slot = getSlot(0, currentTick);
+			if (slot.isEmpty()) {
+				continue;
+			}
+			List<Entry<T>> due = new ArrayList<>(slot);
+			slot.clear();
+			for (Entry<T> entry : due) {
+				if (entry.DEADLINE <= currentTick) {
+					size--;
+					consumer.accept(entry.VALUE);
+				} else {
+					place(entry);
+				}
+			}
+		}
+	}
+
+	private void place(Entry<T> entry) {
+		long delta = entry.DEADLINE - currentTick;
+		int level = 0;
+		while (level < LEVELS - 1 && delta >= 1L << (BITS * (level + 1))) {
+			level++;
+		}
+		getSlot(level, entry.DEADLINE).add(entry);
+	}
+
+	private List<Entry<T>> getSlot(int level, long tick) {
+		return WHEEL.get(level * SLOTS + (int) ((tick >> (BITS * level)) & (SLOTS - 1)));
+	}
+
+	private static class Entry<T> {
+
+		public final T VALUE;
+		public final long DEADLINE;
+
+		public Entry(T value, long deadline) {
+			this.VALUE = value;
+			this.DEADLINE = deadline;
+		}
+	}
+}
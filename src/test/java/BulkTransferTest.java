@@ -0,0 +1,287 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ca.teamdman.sfm.common.flow.core.Position;
+import ca.teamdman.sfm.common.flow.data.ItemMovementRuleFlowData;
+import ca.teamdman.sfm.common.flow.data.ItemMovementRuleFlowData.FilterMode;
+import ca.teamdman.sfm.common.flow.data.ItemPickerMatcherFlowData;
+import ca.teamdman.sfm.common.flow.holder.BasicFlowDataContainer;
+import ca.teamdman.sfm.common.tile.manager.BulkTransfer;
+import ca.teamdman.sfm.common.tile.manager.BulkTransfer.Resume;
+import ca.teamdman.sfm.common.tile.manager.CompiledRule;
+import ca.teamdman.sfm.common.tile.manager.ExecutionBudget;
+import ca.teamdman.sfm.common.tile.manager.ExecutionPlan;
+import ca.teamdman.sfm.common.tile.manager.ExecutionProfiler.Counters;
+import ca.teamdman.sfm.common.tile.manager.ExecutionState;
+import ca.teamdman.sfm.common.tile.manager.OccupancyIndex;
+import ca.teamdman.sfm.common.tile.manager.SlotCursors;
+import ca.teamdman.sfm.common.util.SlotsRule;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.UUID;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.util.Direction;
+import net.minecraft.util.registry.Bootstrap;
+import net.minecraftforge.items.IItemHandler;
+import net.minecraftforge.items.ItemStackHandler;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class BulkTransferTest {
+
+	private BasicFlowDataContainer container;
+	private ExecutionPlan plan;
+	private ExecutionState state;
+	private OccupancyIndex index;
+	private SlotCursors cursors;
+
+	@BeforeAll
+	public static void setup() {
+		Bootstrap.register();
+	}
+
+	@BeforeEach
+	public void reset() {
+		container = new BasicFlowDataContainer();
+		plan = null;
+		index = new OccupancyIndex();
+		cursors = new SlotCursors();
+	}
+
+	private static ItemMovementRuleFlowData rule(
+		FilterMode mode,
+		List<UUID> matchers,
+		String slots,
+		boolean roundRobin
+	) {
+		return new ItemMovementRuleFlowData(
+			UUID.randomUUID(),
+			"rule",
+			ItemStack.EMPTY,
+			new Position(),
+			mode,
+			matchers,
+			Collections.emptyList(),
+			EnumSet.allOf(Direction.class),
+			new SlotsRule(slots),
+			roundRobin,
+			false
+		);
+	}
+
+	/**
+	 * @return Rule taking every item from every slot
+	 */
+	private ItemMovementRuleFlowData anything() {
+		return anything("", false);
+	}
+
+	private ItemMovementRuleFlowData anything(String slots, boolean roundRobin) {
+		ItemMovementRuleFlowData rule = rule(
+			FilterMode.BLACKLIST,
+			Collections.emptyList(),
+			slots,
+			roundRobin
+		);
+		container.put(rule);
+		return rule;
+	}
+
+	private ItemMovementRuleFlowData only(ItemStack stack, int quantity) {
+		ItemPickerMatcherFlowData picker = new ItemPickerMatcherFlowData(
+			UUID.randomUUID(),
+			stack,
+			quantity,
+			false
+		);
+		container.put(picker);
+		ItemMovementRuleFlowData rule = rule(
+			FilterMode.WHITELIST,
+			Collections.singletonList(picker.getId()),
+			"",
+			false
+		);
+		container.put(rule);
+		return rule;
+	}
+
+	/**
+	 * Compiles every rule added so far, the first time it is called in a test.
+	 */
+	private CompiledRule<ItemMovementRuleFlowData> compile(ItemMovementRuleFlowData rule) {
+		if (plan == null) {
+			plan = ExecutionPlan.compile(container);
+			state = new ExecutionState(plan);
+		}
+		return plan.getRule(rule.getId(), ItemMovementRuleFlowData.class).get();
+	}
+
+	private BulkTransfer transfer(
+		ItemMovementRuleFlowData output,
+		ExecutionBudget budget,
+		IItemHandler... handlers
+	) {
+		return new BulkTransfer(
+			compile(output),
+			Arrays.asList(handlers),
+			state,
+			budget,
+			new Counters(),
+			index,
+			0,
+			plan,
+			cursors
+		);
+	}
+
+	private BulkTransfer transfer(ItemMovementRuleFlowData output, IItemHandler... handlers) {
+		return transfer(output, new ExecutionBudget(0, 0), handlers);
+	}
+
+	private static ItemStackHandler inventory(ItemStack... stacks) {
+		ItemStackHandler handler = new ItemStackHandler(stacks.length);
+		for (int slot = 0; slot < stacks.length; slot++) {
+			handler.setStackInSlot(slot, stacks[slot]);
+		}
+		return handler;
+	}
+
+	private static void assertSlot(IItemHandler handler, int slot, ItemStack expected) {
+		ItemStack stack = handler.getStackInSlot(slot);
+		assertTrue(
+			ItemStack.areItemStacksEqual(expected, stack),
+			"slot " + slot + " holds " + stack + ", expected " + expected
+		);
+	}
+
+	@Test
+	public void PartialStacksAreFilledBeforeEmptySlots() {
+		ItemMovementRuleFlowData input = anything();
+		ItemMovementRuleFlowData output = anything();
+		ItemStackHandler from = inventory(
+			new ItemStack(Items.STONE, 10),
+			ItemStack.EMPTY,
+			new ItemStack(Items.DIRT, 5)
+		);
+		ItemStackHandler to = inventory(
+			ItemStack.EMPTY,
+			new ItemStack(Items.STONE, 60),
+			ItemStack.EMPTY
+		);
+
+		BulkTransfer transfer = transfer(output, to);
+		assertTrue(transfer.run(0, compile(input), Collections.singletonList(from), null));
+		assertTrue(transfer.hasMoved());
+		assertSlot(to, 0, new ItemStack(Items.STONE, 6));
+		assertSlot(to, 1, new ItemStack(Items.STONE, 64));
+		assertSlot(to, 2, new ItemStack(Items.DIRT, 5));
+		for (int slot = 0; slot < from.getSlots(); slot++) {
+			assertSlot(from, slot, ItemStack.EMPTY);
+		}
+	}
+
+	@Test
+	public void QuotaLimitsHowMuchIsMoved() {
+		ItemMovementRuleFlowData input = anything();
+		ItemMovementRuleFlowData output = only(new ItemStack(Items.STONE), 4);
+		ItemStackHandler from = inventory(
+			new ItemStack(Items.STONE, 10),
+			new ItemStack(Items.DIRT, 10),
+			new ItemStack(Items.STONE, 10)
+		);
+		ItemStackHandler to = inventory(ItemStack.EMPTY, ItemStack.EMPTY);
+
+		transfer(output, to).run(0, compile(input), Collections.singletonList(from), null);
+		assertSlot(to, 0, new ItemStack(Items.STONE, 4));
+		assertSlot(to, 1, ItemStack.EMPTY);
+		assertSlot(from, 0, new ItemStack(Items.STONE, 6));
+		assertSlot(from, 1, new ItemStack(Items.DIRT, 10));
+		assertSlot(from, 2, new ItemStack(Items.STONE, 10));
+		assertTrue(state.isExhausted(compile(output)));
+	}
+
+	@Test
+	public void OnlySlotsTheRulesAllowAreUsed() {
+		ItemMovementRuleFlowData input = anything("1", false);
+		ItemMovementRuleFlowData output = anything("2", false);
+		ItemStackHandler from = inventory(
+			new ItemStack(Items.STONE, 10),
+			new ItemStack(Items.DIRT, 10)
+		);
+		ItemStackHandler to = inventory(ItemStack.EMPTY, ItemStack.EMPTY, ItemStack.EMPTY);
+
+		transfer(output, to).run(0, compile(input), Collections.singletonList(from), null);
+		assertSlot(from, 0, new ItemStack(Items.STONE, 10));
+		assertSlot(from, 1, ItemStack.EMPTY);
+		assertSlot(to, 0, ItemStack.EMPTY);
+		assertSlot(to, 1, ItemStack.EMPTY);
+		assertSlot(to, 2, new ItemStack(Items.DIRT, 10));
+	}
+
+	@Test
+	public void FullOutputsMoveNothing() {
+		ItemMovementRuleFlowData input = anything();
+		ItemMovementRuleFlowData output = anything();
+		ItemStackHandler from = inventory(new ItemStack(Items.STONE, 10));
+		ItemStackHandler to = inventory(new ItemStack(Items.DIRT, 64));
+
+		BulkTransfer transfer = transfer(output, to);
+		assertTrue(transfer.run(0, compile(input), Collections.singletonList(from), null));
+		assertFalse(transfer.hasMoved());
+		assertSlot(from, 0, new ItemStack(Items.STONE, 10));
+	}
+
+	@Test
+	public void RoundRobinStartsAtTheNextHandler() {
+		ItemMovementRuleFlowData input = anything();
+		ItemMovementRuleFlowData output = anything("", true);
+		ItemStackHandler from = inventory(
+			new ItemStack(Items.STONE, 10),
+			new ItemStack(Items.DIRT, 10)
+		);
+		ItemStackHandler first = inventory(ItemStack.EMPTY, ItemStack.EMPTY);
+		ItemStackHandler second = inventory(ItemStack.EMPTY, ItemStack.EMPTY);
+
+		transfer(output, first, second)
+			.run(0, compile(input), Collections.singletonList(from), null);
+		assertSlot(first, 0, new ItemStack(Items.STONE, 10));
+		assertSlot(first, 1, ItemStack.EMPTY);
+		assertSlot(second, 0, new ItemStack(Items.DIRT, 10));
+	}
+
+	@Test
+	public void SuspendedTransferPicksUpWhereItStopped() {
+		ItemMovementRuleFlowData input = anything();
+		ItemMovementRuleFlowData output = anything();
+		ItemStackHandler from = inventory(
+			new ItemStack(Items.STONE, 10),
+			new ItemStack(Items.DIRT, 10),
+			new ItemStack(Items.SAND, 10)
+		);
+		ItemStackHandler to = inventory(ItemStack.EMPTY, ItemStack.EMPTY, ItemStack.EMPTY);
+		List<IItemHandler> inputs = Collections.singletonList(from);
+
+		// reading the slots uses up the budget, one slot is still moved
+		BulkTransfer transfer = transfer(output, new ExecutionBudget(0, 1), to);
+		assertFalse(transfer.run(0, compile(input), inputs, null));
+		Resume resume = transfer.getSuspended().get();
+		assertEquals(0, resume.INPUT);
+		assertSlot(from, 0, ItemStack.EMPTY);
+		assertSlot(from, 1, new ItemStack(Items.DIRT, 10));
+		assertSlot(to, 0, new ItemStack(Items.STONE, 10));
+
+		BulkTransfer next = transfer(output, to);
+		assertTrue(next.run(0, compile(input), inputs, resume));
+		assertFalse(next.getSuspended().isPresent());
+		for (int slot = 0; slot < from.getSlots(); slot++) {
+			assertSlot(from, slot, ItemStack.EMPTY);
+		}
+		assertSlot(to, 1, new ItemStack(Items.DIRT, 10));
+		assertSlot(to, 2, new ItemStack(Items.SAND, 10));
+	}
+}
@@ -0,0 +1,94 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import ca.teamdman.sfm.common.flow.core.Position;
+import ca.teamdman.sfm.common.flow.data.FlowData;
+import ca.teamdman.sfm.common.flow.data.ItemModMatcherFlowData;
+import ca.teamdman.sfm.common.flow.data.ItemMovementRuleFlowData;
+import ca.teamdman.sfm.common.flow.data.ItemMovementRuleFlowData.FilterMode;
+import ca.teamdman.sfm.common.flow.data.ItemPickerMatcherFlowData;
+import ca.teamdman.sfm.common.flow.holder.BasicFlowDataContainer;
+import ca.teamdman.sfm.common.tile.manager.CompiledRule;
+import ca.teamdman.sfm.common.util.SlotsRule;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.util.Direction;
+import net.minecraft.util.registry.Bootstrap;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class CompiledRuleTest {
+
+	@BeforeAll
+	public static void setup() {
+		Bootstrap.register();
+	}
+
+	private static CompiledRule<ItemMovementRuleFlowData> compile(FlowData... matchers) {
+		BasicFlowDataContainer container = new BasicFlowDataContainer();
+		Arrays.stream(matchers).forEach(container::put);
+		List<UUID> ids = Arrays.stream(matchers)
+			.map(FlowData::getId)
+			.collect(Collectors.toList());
+		ItemMovementRuleFlowData rule = new ItemMovementRuleFlowData(
+			UUID.randomUUID(),
+			"rule",
+			ItemStack.EMPTY,
+			new Position(),
+			FilterMode.WHITELIST,
+			ids,
+			Collections.emptyList(),
+			EnumSet.allOf(Direction.class),
+			new SlotsRule(""),
+			false,
+			false
+		);
+		return new CompiledRule<>(
+			rule,
+			ids,
+			Collections.emptyList(),
+			container,
+			matcher -> ids.indexOf(((FlowData) matcher).getId())
+		);
+	}
+
+	private static ItemPickerMatcherFlowData picker(ItemStack stack) {
+		return new ItemPickerMatcherFlowData(UUID.randomUUID(), stack, 0, false);
+	}
+
+	private static ItemModMatcherFlowData mod(String modId) {
+		return new ItemModMatcherFlowData(UUID.randomUUID(), modId, 0, false);
+	}
+
+	@Test
+	public void PickersOnlyApplyToTheirItem() {
+		CompiledRule<ItemMovementRuleFlowData> rule = compile(
+			picker(new ItemStack(Items.DIRT)),
+			picker(new ItemStack(Items.STONE)),
+			picker(new ItemStack(Items.DIRT))
+		);
+		assertArrayEquals(new int[]{0, 2}, rule.getCandidateMatchers(new ItemStack(Items.DIRT)));
+		assertArrayEquals(new int[]{1}, rule.getCandidateMatchers(new ItemStack(Items.STONE)));
+		assertArrayEquals(new int[0], rule.getCandidateMatchers(new ItemStack(Items.SAND)));
+	}
+
+	@Test
+	public void OtherMatchersApplyToEveryItemInListOrder() {
+		CompiledRule<ItemMovementRuleFlowData> rule = compile(
+			mod("minecraft"),
+			picker(new ItemStack(Items.DIRT)),
+			mod("sfm")
+		);
+		assertArrayEquals(
+			new int[]{0, 1, 2},
+			rule.getCandidateMatchers(new ItemStack(Items.DIRT))
+		);
+		assertArrayEquals(new int[]{0, 2}, rule.getCandidateMatchers(new ItemStack(Items.SAND)));
+		assertArrayEquals(new int[]{0, 2}, rule.getCandidateMatchers(ItemStack.EMPTY));
+	}
+}
@@ -0,0 +1,95 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ca.teamdman.sfm.common.flow.core.Position;
+import ca.teamdman.sfm.common.flow.data.FlowData;
+import ca.teamdman.sfm.common.flow.data.RelationshipFlowData;
+import ca.teamdman.sfm.common.flow.data.TimerTriggerFlowData;
+import ca.teamdman.sfm.common.flow.holder.BasicFlowDataContainer;
+import ca.teamdman.sfm.common.tile.manager.ExecutionPlan;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+public class ExecutionPlanTraversalTest {
+
+	private static final int NODE_COUNT = 400;
+	private static final BasicFlowDataContainer CONTAINER = new BasicFlowDataContainer();
+	private static final List<FlowData> NODES;
+	private static final ExecutionPlan PLAN;
+
+	static {
+		NODES = IntStream.range(0, NODE_COUNT)
+			.mapToObj(i -> new TimerTriggerFlowData(UUID.randomUUID(), new Position(), 20, false))
+			.collect(Collectors.toList());
+		NODES.forEach(CONTAINER::put);
+
+		// each node leads to the next two, bypassing the edit-time cycle checks
+		for (int i = 0; i < NODE_COUNT; i++) {
+			for (int j = i + 1; j <= i + 2 && j < NODE_COUNT; j++) {
+				CONTAINER.put(new RelationshipFlowData(NODES.get(i).getId(), NODES.get(j).getId()));
+			}
+		}
+		PLAN = ExecutionPlan.compile(CONTAINER);
+	}
+
+	@Test
+	@RepeatedTest(16)
+	public void ContainerRelationships() {
+		System.out.println(NODES.stream()
+			.mapToLong(data -> data.getNextUsingRelationships(CONTAINER).count())
+			.sum());
+	}
+
+	@Test
+	@RepeatedTest(16)
+	public void CompiledPlan() {
+		long sum = 0;
+		for (FlowData data : NODES) {
+			int index = PLAN.indexOf(data.getId());
+			for (int successor : PLAN.getSuccessors(index)) {
+				if (data.canContinueTo(PLAN.getNode(successor))) {
+					sum++;
+				}
+			}
+		}
+		System.out.println(sum);
+	}
+
+	@Test
+	@RepeatedTest(16)
+	public void CompileOnly() {
+		System.out.println(ExecutionPlan.compile(CONTAINER).size());
+	}
+
+	@Test
+	public void LoopsAreBrokenAtCompile() {
+		BasicFlowDataContainer container = new BasicFlowDataContainer();
+		FlowData a = new TimerTriggerFlowData(UUID.randomUUID(), new Position(), 20, false);
+		FlowData b = new TimerTriggerFlowData(UUID.randomUUID(), new Position(), 20, false);
+		container.put(a);
+		container.put(b);
+		container.put(new RelationshipFlowData(a.getId(), b.getId()));
+		container.put(new RelationshipFlowData(b.getId(), a.getId()));
+
+		ExecutionPlan plan = ExecutionPlan.compile(container);
+		assertTrue(plan.isCyclic());
+		// one of the two edges is dropped, which one depends on iteration order, either way the
+		// two triggers and the edge that is left make three frames
+		assertEquals(3, plan.getFrameCount());
+		assertFalse(PLAN.isCyclic());
+	}
+
+	@Test
+	public void MergedFramesAreCountedOncePerEdge() {
+		// the ladder has an exponential number of paths, but merged frames only follow each edge
+		// once, so every node triggering adds up to the node count plus the edge count
+		int edges = 2 * (NODE_COUNT - 2) + 1;
+		assertEquals(NODE_COUNT + edges, PLAN.getFrameCount());
+		assertTrue(PLAN.getFrameCount() < 100000);
+	}
+}
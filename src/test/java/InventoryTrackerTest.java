@@ -0,0 +1,137 @@
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ca.teamdman.sfm.common.flow.holder.BasicFlowDataContainer;
+import ca.teamdman.sfm.common.tile.VersionedInventory;
+import ca.teamdman.sfm.common.tile.manager.ExecutionPlan;
+import ca.teamdman.sfm.common.tile.manager.InventoryTracker;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.stream.Stream;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.registry.Bootstrap;
+import net.minecraftforge.items.ItemStackHandler;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class InventoryTrackerTest {
+
+	private static final UUID NODE = UUID.randomUUID();
+
+	@BeforeAll
+	public static void setup() {
+		Bootstrap.register();
+	}
+
+	@Test
+	public void HashChangesWithCount() {
+		ItemStackHandler handler = new ItemStackHandler(2);
+		handler.setStackInSlot(1, new ItemStack(Items.STONE, 3));
+		long before = InventoryTracker.hashContents(handler);
+		handler.getStackInSlot(1).grow(1);
+		assertNotEquals(before, InventoryTracker.hashContents(handler));
+	}
+
+	@Test
+	public void HashChangesWithTag() {
+		ItemStackHandler handler = new ItemStackHandler(1);
+		handler.setStackInSlot(0, new ItemStack(Items.DIAMOND_SWORD));
+		long before = InventoryTracker.hashContents(handler);
+		handler.getStackInSlot(0).setDamage(10);
+		assertNotEquals(before, InventoryTracker.hashContents(handler));
+	}
+
+	@Test
+	public void HashChangesWithSlot() {
+		ItemStackHandler handler = new ItemStackHandler(2);
+		handler.setStackInSlot(0, new ItemStack(Items.STONE));
+		long before = InventoryTracker.hashContents(handler);
+		handler.setStackInSlot(1, handler.getStackInSlot(0));
+		handler.setStackInSlot(0, ItemStack.EMPTY);
+		assertNotEquals(before, InventoryTracker.hashContents(handler));
+	}
+
+	@Test
+	public void VersionIsEmptyUnlessEveryTileReportsChanges() {
+		TileEntity versioned = new VersionedTile();
+		TileEntity plain = new TileEntity(null) {
+		};
+		assertTrue(InventoryTracker.getVersion(Stream.of(versioned)).isPresent());
+		assertFalse(InventoryTracker.getVersion(Stream.of(versioned, plain)).isPresent());
+		assertFalse(InventoryTracker.getVersion(Stream.of(plain)).isPresent());
+	}
+
+	@Test
+	public void VersionChangesWithInventory() {
+		VersionedTile tile = new VersionedTile();
+		OptionalLong before = InventoryTracker.getVersion(Stream.of(tile));
+		tile.version++;
+		assertNotEquals(before, InventoryTracker.getVersion(Stream.of(tile)));
+		// a replacement tile starting from the same version isn't mistaken for the old one
+		VersionedTile replaced = new VersionedTile();
+		replaced.version = tile.version;
+		assertNotEquals(
+			InventoryTracker.getVersion(Stream.of(tile)),
+			InventoryTracker.getVersion(Stream.of(replaced))
+		);
+	}
+
+	@Test
+	public void IdleNodeIsUnchangedUntilItsSignatureChanges() {
+		ExecutionPlan plan = ExecutionPlan.compile(new BasicFlowDataContainer());
+		InventoryTracker tracker = new InventoryTracker();
+		assertFalse(tracker.isUnchanged(plan, NODE, 5));
+		tracker.begin(NODE, 5);
+		tracker.finish(NODE);
+		assertTrue(tracker.isUnchanged(plan, NODE, 5));
+		assertFalse(tracker.isUnchanged(plan, NODE, 6));
+	}
+
+	@Test
+	public void NodeThatMovedItemsRunsAgain() {
+		ExecutionPlan plan = ExecutionPlan.compile(new BasicFlowDataContainer());
+		InventoryTracker tracker = new InventoryTracker();
+		tracker.isUnchanged(plan, NODE, 5);
+		tracker.begin(NODE, 5);
+		tracker.onMoved(NODE);
+		tracker.finish(NODE);
+		assertFalse(tracker.isUnchanged(plan, NODE, 5));
+
+		// and an earlier idle signature is forgotten too
+		tracker.begin(NODE, 5);
+		tracker.finish(NODE);
+		tracker.begin(NODE, 5);
+		tracker.onMoved(NODE);
+		assertFalse(tracker.isUnchanged(plan, NODE, 5));
+	}
+
+	@Test
+	public void NewPlanForgetsSignatures() {
+		InventoryTracker tracker = new InventoryTracker();
+		ExecutionPlan plan = ExecutionPlan.compile(new BasicFlowDataContainer());
+		tracker.isUnchanged(plan, NODE, 5);
+		tracker.begin(NODE, 5);
+		tracker.finish(NODE);
+
+		ExecutionPlan recompiled = ExecutionPlan.compile(new BasicFlowDataContainer());
+		assertFalse(tracker.isUnchanged(recompiled, NODE, 5));
+		assertFalse(tracker.isUnchanged(recompiled, NODE, 5));
+	}
+
+	private static class VersionedTile extends TileEntity implements VersionedInventory {
+
+		private long version = 0;
+
+		public VersionedTile() {
+			super(null);
+		}
+
+		@Override
+		public long getInventoryVersion() {
+			return version;
+		}
+	}
+}
@@ -0,0 +1,159 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ca.teamdman.sfm.common.flow.holder.BasicFlowDataContainer;
+import ca.teamdman.sfm.common.tile.manager.ExecutionPlan;
+import ca.teamdman.sfm.common.tile.manager.ExecutionProfiler.Counters;
+import ca.teamdman.sfm.common.tile.manager.ExecutionState;
+import ca.teamdman.sfm.common.tile.manager.MoveTransaction;
+import ca.teamdman.sfm.common.util.SlotsRule;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.annotation.Nonnull;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.util.registry.Bootstrap;
+import net.minecraftforge.items.ItemStackHandler;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class MoveTransactionTest {
+
+	private static final SlotsRule ALL = new SlotsRule("");
+	private MoveTransaction transaction;
+
+	@BeforeAll
+	public static void setup() {
+		Bootstrap.register();
+	}
+
+	@BeforeEach
+	public void reset() {
+		ExecutionState state = new ExecutionState(
+			ExecutionPlan.compile(new BasicFlowDataContainer())
+		);
+		transaction = new MoveTransaction(state, new Counters());
+	}
+
+	private static Handler source(int count) {
+		Handler handler = new Handler(2);
+		handler.setStackInSlot(0, new ItemStack(Items.STONE, count));
+		return handler;
+	}
+
+	@Test
+	public void RefusedItemsGoBackToTheirSlot() {
+		Handler from = source(10);
+		Handler to = new Handler(2).refuse(0, 1);
+
+		assertEquals(0, transaction.move(from, 0, ALL, to, 0, ALL, 10));
+		assertFalse(transaction.wasRerouted());
+		assertEquals(10, from.getStackInSlot(0).getCount());
+		assertTrue(to.getStackInSlot(0).isEmpty());
+	}
+
+	@Test
+	public void PartlyAcceptedMoveRollsBackTheRest() {
+		Handler from = source(10);
+		Handler to = new Handler(1);
+		to.limit = 4;
+
+		assertEquals(4, transaction.move(from, 0, ALL, to, 0, ALL, 10));
+		assertFalse(transaction.wasRerouted());
+		assertEquals(6, from.getStackInSlot(0).getCount());
+		assertEquals(4, to.getStackInSlot(0).getCount());
+	}
+
+	@Test
+	public void RefusedItemsStackOntoOtherDestinationSlots() {
+		Handler from = source(10).refuse(0);
+		Handler to = new Handler(3).refuse(0);
+		to.setStackInSlot(2, new ItemStack(Items.STONE, 5));
+
+		// counts as moved, the items did end up in the destination
+		assertEquals(10, transaction.move(from, 0, ALL, to, 0, ALL, 10));
+		assertTrue(transaction.wasRerouted());
+		assertTrue(from.getStackInSlot(0).isEmpty());
+		assertTrue(to.getStackInSlot(1).isEmpty());
+		assertEquals(15, to.getStackInSlot(2).getCount());
+	}
+
+	@Test
+	public void RerouteOnlyUsesSlotsTheDestinationRuleAllows() {
+		Handler from = source(10).refuse(0);
+		Handler to = new Handler(3).refuse(0);
+
+		assertEquals(0, transaction.move(from, 0, ALL, to, 0, new SlotsRule("0"), 10));
+		assertTrue(transaction.wasRerouted());
+		assertTrue(to.getStackInSlot(1).isEmpty());
+		assertTrue(to.getStackInSlot(2).isEmpty());
+		assertEquals(10, from.getStackInSlot(1).getCount());
+	}
+
+	@Test
+	public void RefusedItemsGoToOtherSourceSlots() {
+		Handler from = source(10).refuse(0);
+		Handler to = new Handler(2).refuse(0, 1);
+
+		// back in the source, so nothing moved
+		assertEquals(0, transaction.move(from, 0, ALL, to, 0, ALL, 10));
+		assertTrue(transaction.wasRerouted());
+		assertTrue(from.getStackInSlot(0).isEmpty());
+		assertEquals(10, from.getStackInSlot(1).getCount());
+	}
+
+	@Test
+	public void ItemsNothingTakesAreVoided() {
+		Handler from = source(10).refuse(0, 1);
+		Handler to = new Handler(2).refuse(0, 1);
+
+		assertEquals(0, transaction.move(from, 0, ALL, to, 0, ALL, 10));
+		assertTrue(transaction.wasRerouted());
+		for (Handler handler : new Handler[]{from, to}) {
+			for (int slot = 0; slot < handler.getSlots(); slot++) {
+				assertTrue(handler.getStackInSlot(slot).isEmpty());
+			}
+		}
+	}
+
+	@Test
+	public void EmptySourceMovesNothing() {
+		Handler from = new Handler(1);
+		Handler to = new Handler(1);
+
+		assertEquals(-1, transaction.move(from, 0, ALL, to, 0, ALL, 10));
+		assertFalse(transaction.wasRerouted());
+	}
+
+	/**
+	 * Inventory whose slots can refuse insertion, like machine output slots.
+	 */
+	private static class Handler extends ItemStackHandler {
+
+		private final Set<Integer> REFUSED = new HashSet<>();
+		private int limit = 64;
+
+		public Handler(int slots) {
+			super(slots);
+		}
+
+		public Handler refuse(int... slots) {
+			REFUSED.addAll(Arrays.stream(slots).boxed().collect(Collectors.toSet()));
+			return this;
+		}
+
+		@Override
+		public boolean isItemValid(int slot, @Nonnull ItemStack stack) {
+			return !REFUSED.contains(slot);
+		}
+
+		@Override
+		public int getSlotLimit(int slot) {
+			return limit;
+		}
+	}
+}
@@ -0,0 +1,31 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import ca.teamdman.sfm.common.tile.manager.SlotCursors.Cursors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+public class SlotCursorsTest {
+
+	@Test
+	public void RotateVisitsEveryPositionOnceFromTheCursor() {
+		int[] visited = IntStream.range(0, 5)
+			.map(i -> Cursors.rotate(3, i, 5))
+			.toArray();
+		assertArrayEquals(new int[]{3, 4, 0, 1, 2}, visited);
+	}
+
+	@Test
+	public void RotateFromStartIsInOrder() {
+		int[] visited = IntStream.range(0, 4)
+			.map(i -> Cursors.rotate(0, i, 4))
+			.toArray();
+		assertArrayEquals(new int[]{0, 1, 2, 3}, visited);
+	}
+
+	@Test
+	public void RotateOverEmptyListStaysAtZero() {
+		assertEquals(0, Cursors.rotate(0, 0, 0));
+		assertEquals(0, Cursors.rotate(7, 3, 0));
+	}
+}
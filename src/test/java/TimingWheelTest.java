@@ -0,0 +1,75 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ca.teamdman.sfm.common.util.TimingWheel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class TimingWheelTest {
+
+	@Test
+	public void EntriesComeDueOnTheirDeadline() {
+		TimingWheel<Long> wheel = new TimingWheel<>(0);
+		// one per level, and either side of the level boundaries
+		List<Long> deadlines = Arrays.asList(1L, 63L, 64L, 65L, 4095L, 4096L, 4097L, 300000L);
+		deadlines.forEach(deadline -> wheel.schedule(deadline, deadline));
+		assertEquals(deadlines.size(), wheel.size());
+
+		List<Long> fired = new ArrayList<>();
+		for (long tick = 1; tick <= 300000; tick++) {
+			long now = tick;
+			wheel.advance(tick, deadline -> {
+				assertEquals(now, (long) deadline);
+				fired.add(deadline);
+			});
+		}
+		assertEquals(deadlines, fired);
+		assertEquals(0, wheel.size());
+	}
+
+	@Test
+	public void PassedDeadlinesAreDueNextTick() {
+		TimingWheel<String> wheel = new TimingWheel<>(100);
+		wheel.schedule("late", 50);
+		wheel.schedule("now", 100);
+
+		List<String> fired = new ArrayList<>();
+		wheel.advance(101, fired::add);
+		assertEquals(Arrays.asList("late", "now"), fired);
+	}
+
+	@Test
+	public void AdvancingManyTicksAtOnceKeepsDeadlineOrder() {
+		TimingWheel<Long> wheel = new TimingWheel<>(0);
+		List<Long> deadlines = new ArrayList<>();
+		for (long deadline = 5000; deadline > 0; deadline -= 7) {
+			deadlines.add(deadline);
+			wheel.schedule(deadline, deadline);
+		}
+
+		List<Long> fired = new ArrayList<>();
+		wheel.advance(2500, fired::add);
+		assertTrue(fired.stream().allMatch(deadline -> deadline <= 2500));
+		wheel.advance(5000, fired::add);
+
+		Collections.sort(deadlines);
+		assertEquals(deadlines, fired);
+		assertEquals(5000, wheel.getCurrentTick());
+	}
+
+	@Test
+	public void JumpingPastTheWheelFiresEverything() {
+		TimingWheel<Long> wheel = new TimingWheel<>(0);
+		wheel.schedule(3L, 3);
+		wheel.schedule(1L, 1);
+		wheel.schedule(2000000L, 2000000);
+
+		List<Long> fired = new ArrayList<>();
+		wheel.advance(1L << 30, fired::add);
+		assertEquals(Arrays.asList(1L, 3L, 2000000L), fired);
+		assertEquals(0, wheel.size());
+	}
+}